@@ -0,0 +1,265 @@
+package com.estebandev.minicloud.component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.service.utils.CacheStats;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+import com.estebandev.minicloud.service.utils.ParallelGzipOutputStream;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Gzip variants of text files, kept in {@code <root>/.minicloud/cache} so a
+ * file is compressed once and not on every view.
+ *
+ * Variants are named after the path, size, modification time and file key of
+ * the original, so a changed file simply gets a new variant and the stale one
+ * ages out. The cache is bounded by the total size of the variants and evicts
+ * the least recently used ones. Variants are deflated in parallel blocks on
+ * the {@link CompressionPool}, so a big file doesn't keep its first viewer
+ * waiting on one core.
+ */
+@Component
+@RequiredArgsConstructor
+@Setter
+public class CompressedVariantCache {
+    private static final String CACHE_DIR = "cache";
+    private static final String GZIP_SUFFIX = ".gz";
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Boolean>> compressing = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final CompressionPool compressionPool;
+    private long totalSize;
+    private boolean loaded;
+
+    @Value("${var.filepath}")
+    private String pathString;
+
+    /** Total size of the variants on disk, 0 disables the cache. */
+    @Value("${var.cache.compressed.max-size:256MB}")
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    @Value("${var.cache.compressed.min-file-size:1KB}")
+    private DataSize minFileSize = DataSize.ofKilobytes(1);
+
+    /** Bigger files are sent as they are, the first view would wait too long. */
+    @Value("${var.cache.compressed.max-file-size:64MB}")
+    private DataSize maxFileSize = DataSize.ofMegabytes(64);
+
+    @Value("${var.cache.compressed.level:6}")
+    private int level = 6;
+
+    /**
+     * Whether a gzip variant would be served for the file. It is cheap, nothing
+     * is read.
+     */
+    public boolean accepts(Path filePath, BasicFileAttributes attributes) throws IOException {
+        return maxSize.toBytes() > 0 && attributes.isRegularFile()
+                && attributes.size() >= minFileSize.toBytes() && attributes.size() <= maxFileSize.toBytes()
+                && attributes.size() <= maxSize.toBytes()
+                && FileManagerUtils.isCompressible(filePath);
+    }
+
+    /**
+     * Opens the gzip variant of the file, compressing it first if it isn't
+     * cached. Concurrent requests for the same missing variant wait for a
+     * single compression.
+     *
+     * @return the open variant, or {@code null} if the file isn't accepted or
+     *         changed while it was being compressed
+     */
+    public FileChannel openGzip(Path filePath, BasicFileAttributes attributes) throws IOException {
+        if (!accepts(filePath, attributes))
+            return null;
+
+        String name = FileManagerUtils.contentKey(filePath, attributes) + GZIP_SUFFIX;
+        Path variantPath = getCacheDir().resolve(name);
+
+        FileChannel channel = openCached(name, variantPath);
+        if (channel != null) {
+            hits.incrementAndGet();
+            return channel;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Boolean> own = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = compressing.putIfAbsent(name, own);
+        if (running != null)
+            return await(running) ? openCached(name, variantPath) : null;
+
+        try {
+            boolean stored = compress(filePath, attributes, name, variantPath);
+            own.complete(stored);
+            return stored ? openCached(name, variantPath) : null;
+        } catch (IOException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            compressing.remove(name, own);
+        }
+    }
+
+    public synchronized CacheStats stats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return CacheStats.builder()
+                .size(entries.size())
+                .hits(hitCount)
+                .misses(misses.get())
+                .evictions(evictions.get())
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .build();
+    }
+
+    /**
+     * The variant is opened while holding the lock, so it can't be evicted in
+     * between. Once open, deleting it doesn't affect the reader.
+     */
+    private synchronized FileChannel openCached(String name, Path variantPath) throws IOException {
+        load();
+        if (entries.get(name) == null)
+            return null;
+
+        try {
+            return FileChannel.open(variantPath, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            totalSize -= entries.remove(name);
+            return null;
+        }
+    }
+
+    private boolean compress(Path filePath, BasicFileAttributes attributes, String name, Path variantPath)
+            throws IOException {
+        Path tmpPath = variantPath.resolveSibling(name + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (InputStream inputStream = Files.newInputStream(filePath);
+                    OutputStream outputStream = new ParallelGzipOutputStream(
+                            Files.newOutputStream(tmpPath, StandardOpenOption.CREATE_NEW), compressionPool.get(),
+                            compressionPool.get().getParallelism(), level)) {
+                inputStream.transferTo(outputStream);
+            }
+
+            BasicFileAttributes current = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (current.size() != attributes.size()
+                    || !current.lastModifiedTime().equals(attributes.lastModifiedTime())) {
+                logger.debug("{} changed while it was being compressed", filePath);
+                return false;
+            }
+
+            long size = Files.size(tmpPath);
+            Files.move(tmpPath, variantPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            add(name, size);
+            return true;
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    private synchronized void add(String name, long size) {
+        load();
+        Long previous = entries.put(name, size);
+        totalSize += size - (previous == null ? 0 : previous);
+
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalSize > maxSize.toBytes() && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(name))
+                continue;
+
+            try {
+                Files.deleteIfExists(getCacheDir().resolve(eldest.getKey()));
+            } catch (IOException e) {
+                logger.warn("Couldn't evict {}: {}", eldest.getKey(), e.getMessage());
+                continue;
+            }
+            totalSize -= eldest.getValue();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Picks up the variants of a previous run, oldest first, and removes the
+     * temporary files an interrupted compression left behind.
+     */
+    private void load() {
+        if (loaded)
+            return;
+        loaded = true;
+
+        try (Stream<Path> files = Files.list(getCacheDir())) {
+            List<Path> variants = files.filter(path -> {
+                if (path.getFileName().toString().endsWith(GZIP_SUFFIX))
+                    return true;
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.debug("Couldn't delete {}: {}", path, e.getMessage());
+                }
+                return false;
+            }).sorted(Comparator.comparing(CompressedVariantCache::lastModified)).toList();
+
+            for (Path variant : variants) {
+                long size = Files.size(variant);
+                entries.put(variant.getFileName().toString(), size);
+                totalSize += size;
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't load the compressed variants: {}", e.getMessage());
+        }
+    }
+
+    private Path getCacheDir() throws IOException {
+        return Files.createDirectories(Path.of(pathString).resolve(FileManagerUtils.INTERNAL_DIR).resolve(CACHE_DIR));
+    }
+
+    private static boolean await(CompletableFuture<Boolean> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
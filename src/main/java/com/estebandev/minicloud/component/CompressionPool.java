@@ -0,0 +1,38 @@
+package com.estebandev.minicloud.component;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.estebandev.minicloud.service.utils.ParallelGzipOutputStream;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Setter;
+
+/**
+ * Threads deflating the blocks of every {@link ParallelGzipOutputStream}, the
+ * tar.gz downloads and the gzip variants of text files, so they share the
+ * cores instead of each starting a pool of its own.
+ */
+@Component
+@Setter
+public class CompressionPool {
+    private ForkJoinPool pool;
+
+    /** Threads compressing gzip streams, 0 uses every core. */
+    @Value("${var.compression.parallelism:0}")
+    private int parallelism;
+
+    public synchronized ForkJoinPool get() {
+        if (pool == null)
+            pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        return pool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+}
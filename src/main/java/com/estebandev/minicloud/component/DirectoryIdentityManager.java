@@ -0,0 +1,102 @@
+package com.estebandev.minicloud.component;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.estebandev.minicloud.service.utils.DirectoryIdentityStore;
+import com.estebandev.minicloud.service.utils.SidecarDirectoryIdentityStore;
+import com.estebandev.minicloud.service.utils.XattrDirectoryIdentityStore;
+
+import lombok.Setter;
+
+/**
+ * Picks where directory UUIDs are written: extended attributes when the file
+ * system supports them, the binary sidecar otherwise or when
+ * {@code var.identity.store} is {@code sidecar}. Reads look in both, so a tree
+ * written under one setting keeps working under the other.
+ */
+@Component
+@Setter
+public class DirectoryIdentityManager implements DirectoryIdentityStore {
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final DirectoryIdentityStore xattrStore;
+    private final DirectoryIdentityStore sidecarStore;
+    private volatile boolean xattrUnsupported;
+
+    /** {@code auto} or {@code sidecar}. */
+    @Value("${var.identity.store:auto}")
+    private String store = "auto";
+
+    public DirectoryIdentityManager() {
+        this(new XattrDirectoryIdentityStore(), new SidecarDirectoryIdentityStore());
+    }
+
+    DirectoryIdentityManager(DirectoryIdentityStore xattrStore, DirectoryIdentityStore sidecarStore) {
+        this.xattrStore = xattrStore;
+        this.sidecarStore = sidecarStore;
+    }
+
+    /**
+     * Looks in the store written to first, so an identity written under the
+     * current setting costs one read. Both stores are always read: a write
+     * falling back to the sidecar says nothing about the identities already
+     * kept in extended attributes.
+     */
+    @Override
+    public UUID read(Path dir) throws IOException {
+        if (usesXattr()) {
+            UUID uuid = xattrStore.read(dir);
+            return uuid != null ? uuid : sidecarStore.read(dir);
+        }
+
+        UUID uuid = sidecarStore.read(dir);
+        return uuid != null ? uuid : xattrStore.read(dir);
+    }
+
+    /**
+     * A file system without extended attributes switches every later write to
+     * the sidecar. Any other refusal, like a denied access or a full disk, only
+     * sends this directory's identity there.
+     */
+    @Override
+    public void write(Path dir, UUID uuid) throws IOException {
+        if (usesXattr()) {
+            try {
+                xattrStore.write(dir, uuid);
+                sidecarStore.delete(dir);
+                return;
+            } catch (NoSuchFileException e) {
+                throw e;
+            } catch (FileSystemException e) {
+                if (XattrDirectoryIdentityStore.isNotSupported(e)) {
+                    xattrUnsupported = true;
+                    logger.info("Extended attributes are not available ({}), directory identities go to {} files",
+                            e.getReason(), SidecarDirectoryIdentityStore.FILE_NAME);
+                } else {
+                    logger.warn("Could not write the identity of {} to its extended attributes ({}), using {}",
+                            dir, e.getReason(), SidecarDirectoryIdentityStore.FILE_NAME);
+                }
+            }
+        }
+        sidecarStore.write(dir, uuid);
+    }
+
+    @Override
+    public boolean delete(Path dir) throws IOException {
+        boolean deleted = xattrStore.delete(dir);
+        return sidecarStore.delete(dir) || deleted;
+    }
+
+    private boolean usesXattr() {
+        return !xattrUnsupported && !"sidecar".equalsIgnoreCase(store);
+    }
+}
@@ -0,0 +1,106 @@
+package com.estebandev.minicloud.component;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.estebandev.minicloud.service.FileMetadataService;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Moves the identities of existing trees from {@code .dirdata.xml} files to
+ * the identity store after startup, one directory at a time. Directories it
+ * hasn't reached yet keep working through the legacy file meanwhile.
+ */
+@Component
+@RequiredArgsConstructor
+@Setter
+public class DirectoryIdentityMigrator {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final FileMetadataService fileMetadataService;
+    private ExecutorService executor;
+
+    @Value("${var.filepath}")
+    private String pathString;
+
+    @Value("${var.identity.migrate:true}")
+    private boolean enabled = true;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled)
+            getExecutor().execute(this::migrateQuietly);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of directories migrated
+     */
+    public long migrate() throws IOException {
+        Path root = Path.of(pathString);
+        if (!Files.isDirectory(root))
+            return 0;
+
+        long[] migrated = { 0 };
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (Thread.currentThread().isInterrupted())
+                    return FileVisitResult.TERMINATE;
+                if (!dir.equals(root) && FileManagerUtils.isInternalFile(dir))
+                    return FileVisitResult.SKIP_SUBTREE;
+
+                try {
+                    if (fileMetadataService.migrateIdentity(dir))
+                        migrated[0]++;
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Couldn't migrate the identity of {}: {}", dir, e.getMessage());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return migrated[0];
+    }
+
+    private void migrateQuietly() {
+        try {
+            long migrated = migrate();
+            if (migrated > 0)
+                logger.info("Migrated the identity of {} directories", migrated);
+        } catch (IOException e) {
+            logger.warn("Directory identity migration failed: {}", e.getMessage());
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null)
+            executor = Executors.newSingleThreadExecutor();
+        return executor;
+    }
+}
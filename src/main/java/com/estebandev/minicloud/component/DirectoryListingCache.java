@@ -0,0 +1,188 @@
+package com.estebandev.minicloud.component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.estebandev.minicloud.service.utils.CacheStats;
+import com.estebandev.minicloud.service.utils.FileData;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bounded LRU cache of directory listings.
+ *
+ * Entries are dropped by {@link #invalidate(Path)} when minicloud changes a
+ * path, and by a {@link WatchService} registered on every cached directory for
+ * changes made outside of the application.
+ *
+ * A listing read while a change is in progress must not be stored after the
+ * change invalidated it, so {@link #put} only accepts listings read after the
+ * {@link #stamp()} they were started with, if nothing was invalidated since.
+ */
+@Component
+public class DirectoryListingCache implements Closeable {
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final int maxEntries;
+    private final boolean watch;
+    private final Map<Path, List<FileData>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private WatchService watchService;
+
+    public DirectoryListingCache(@Value("${var.cache.listing.max-entries:1024}") int maxEntries,
+            @Value("${var.cache.listing.watch:true}") boolean watch) {
+        this.maxEntries = maxEntries;
+        this.watch = watch;
+    }
+
+    public synchronized List<FileData> get(Path dir) {
+        List<FileData> listing = entries.get(key(dir));
+        (listing == null ? misses : hits).incrementAndGet();
+        return listing;
+    }
+
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public synchronized void put(Path dir, List<FileData> listing, long stamp) {
+        if (maxEntries <= 0 || stamp != invalidations.get())
+            return;
+
+        Path key = key(dir);
+        if (watch && !watchKeys.containsKey(key)) {
+            try {
+                watchKeys.put(key, key.register(getWatchService(), StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+            } catch (IOException e) {
+                logger.debug("Could not watch {}, not caching it: {}", key, e.getMessage());
+                return;
+            }
+        }
+        entries.put(key, List.copyOf(listing));
+
+        Iterator<Path> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            cancelWatch(eldest.next());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops the listing of the parent of {@code path} and of every cached
+     * directory at or below {@code path}.
+     */
+    public synchronized void invalidate(Path path) {
+        invalidations.incrementAndGet();
+
+        Path key = key(path);
+        Path parent = key.getParent();
+        Iterator<Path> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            Path dir = iterator.next();
+            if (dir.startsWith(key) || dir.equals(parent)) {
+                cancelWatch(dir);
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations.incrementAndGet();
+        watchKeys.values().forEach(WatchKey::cancel);
+        watchKeys.clear();
+        entries.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return CacheStats.builder()
+                .size(entries.size())
+                .hits(hitCount)
+                .misses(misses.get())
+                .evictions(evictions.get())
+                .invalidations(invalidations.get())
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .build();
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (watchService != null)
+            watchService.close();
+    }
+
+    private WatchService getWatchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread watcher = new Thread(this::processEvents, "listing-cache-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        return watchService;
+    }
+
+    private void processEvents() {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+        }
+
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = (Path) watchKey.watchable();
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    invalidateAll();
+                } else if (!FileManagerUtils.isInternalFile((Path) event.context())) {
+                    invalidate(dir.resolve((Path) event.context()));
+                }
+            }
+
+            if (!watchKey.reset())
+                invalidate(dir);
+        }
+    }
+
+    private void cancelWatch(Path dir) {
+        WatchKey watchKey = watchKeys.remove(dir);
+        if (watchKey != null)
+            watchKey.cancel();
+    }
+
+    private static Path key(Path dir) {
+        return dir.toAbsolutePath().normalize();
+    }
+}
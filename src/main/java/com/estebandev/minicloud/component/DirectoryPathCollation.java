@@ -0,0 +1,51 @@
+package com.estebandev.minicloud.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Makes {@code directory.path} compare byte for byte on MySQL. Its default
+ * {@code utf8mb4_0900_ai_ci} collation ignores case and accents, so the
+ * {@code LIKE} of a subtree rewrite would also match {@code alice/FOO} or
+ * {@code alice/föo} when renaming {@code alice/foo}, while the file system
+ * tells them apart.
+ *
+ * {@code ddl-auto: update} neither creates the column with a collation nor
+ * alters an existing one, so this checks it once the schema is up to date and
+ * migrates it when needed, before the application takes requests. The index
+ * on the column is kept and rebuilt by the {@code ALTER}. Other databases,
+ * like H2 in the tests, already compare case sensitively.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class DirectoryPathCollation {
+    static final String COLLATION = "utf8mb4_bin";
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (database == null || !(database.equalsIgnoreCase("MySQL") || database.equalsIgnoreCase("MariaDB")))
+            return;
+
+        String collation = jdbcTemplate.queryForObject("SELECT COLLATION_NAME FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'directory' AND COLUMN_NAME = 'path'",
+                String.class);
+        if (COLLATION.equals(collation))
+            return;
+
+        logger.info("Changing the collation of directory.path from {} to {}", collation, COLLATION);
+        jdbcTemplate.execute("ALTER TABLE directory MODIFY path VARCHAR(768) CHARACTER SET utf8mb4 COLLATE "
+                + COLLATION + " NOT NULL");
+    }
+}
@@ -0,0 +1,68 @@
+package com.estebandev.minicloud.component;
+
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.estebandev.minicloud.service.FileMetadataService;
+import com.estebandev.minicloud.service.FileSecurityService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Moves the owner and path rows of the {@code file_metadata} table into the
+ * {@code directory} table on startup, then the {@code ACCESS_TO_} user
+ * metadata rows into the {@code directory_share} table. Migrated rows are
+ * deleted, so once done it only costs two queries per start.
+ *
+ * Authorization reads the new table only: until it finishes, directories not
+ * migrated yet are only reachable below their user's home.
+ */
+@Component
+@RequiredArgsConstructor
+@Setter
+public class DirectoryTableMigrator {
+    private static final int BATCH_SIZE = 500;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final FileMetadataService fileMetadataService;
+    private final FileSecurityService fileSecurityService;
+
+    @Value("${var.filepath}")
+    private String pathString;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        Path root = Path.of(pathString).normalize();
+        long lastId = 0;
+        int batches = 0;
+        try {
+            while ((lastId = fileMetadataService.migrateRows(root, lastId, BATCH_SIZE)) != -1) {
+                batches++;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Directory rows migration stopped: {}", e.getMessage());
+            return;
+        }
+        if (batches > 0)
+            logger.info("Migrated the directory rows in {} batches", batches);
+
+        int shares = 0;
+        try {
+            int read;
+            while ((read = fileSecurityService.migrateShares(BATCH_SIZE)) > 0) {
+                shares += read;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Directory shares migration stopped: {}", e.getMessage());
+            return;
+        }
+        if (shares > 0)
+            logger.info("Migrated {} directory share rows", shares);
+    }
+}
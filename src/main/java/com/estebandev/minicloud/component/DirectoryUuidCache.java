@@ -0,0 +1,101 @@
+package com.estebandev.minicloud.component;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.estebandev.minicloud.service.utils.CacheStats;
+
+/**
+ * Bounded LRU cache of the UUIDs read from the identity files of
+ * directories, so authorization doesn't parse XML on every request.
+ *
+ * An entry is only used while the directory has the same file key and its
+ * identity file the same modification time and size as when it was read, so
+ * a directory replaced or rewritten outside of minicloud is read again.
+ * {@link #invalidate(Path)} drops the entries of a renamed, moved or deleted
+ * tree right away.
+ */
+@Component
+public class DirectoryUuidCache {
+    private final int maxEntries;
+    private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public DirectoryUuidCache(@Value("${var.cache.uuid.max-entries:16384}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public synchronized UUID get(Path dir, BasicFileAttributes dirAttributes,
+            BasicFileAttributes metadataAttributes) {
+        Entry entry = entries.get(key(dir));
+        if (entry == null || !entry.matches(dirAttributes, metadataAttributes)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.uuid();
+    }
+
+    public synchronized void put(Path dir, BasicFileAttributes dirAttributes, BasicFileAttributes metadataAttributes,
+            UUID uuid) {
+        if (maxEntries <= 0)
+            return;
+
+        entries.put(key(dir), new Entry(dirAttributes.fileKey(), metadataAttributes.lastModifiedTime(),
+                metadataAttributes.size(), uuid));
+        Iterator<Path> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops the entries of {@code path} and of every directory below it.
+     */
+    public synchronized void invalidate(Path path) {
+        invalidations.incrementAndGet();
+
+        Path key = key(path);
+        entries.keySet().removeIf(dir -> dir.startsWith(key));
+    }
+
+    public synchronized CacheStats stats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return CacheStats.builder()
+                .size(entries.size())
+                .hits(hitCount)
+                .misses(misses.get())
+                .evictions(evictions.get())
+                .invalidations(invalidations.get())
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .build();
+    }
+
+    private static Path key(Path dir) {
+        return dir.toAbsolutePath().normalize();
+    }
+
+    private record Entry(Object fileKey, FileTime metadataModified, long metadataSize, UUID uuid) {
+        boolean matches(BasicFileAttributes dirAttributes, BasicFileAttributes metadataAttributes) {
+            return Objects.equals(fileKey, dirAttributes.fileKey())
+                    && metadataModified.equals(metadataAttributes.lastModifiedTime())
+                    && metadataSize == metadataAttributes.size();
+        }
+    }
+}
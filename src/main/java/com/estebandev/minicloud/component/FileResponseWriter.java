@@ -0,0 +1,339 @@
+package com.estebandev.minicloud.component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+import com.estebandev.minicloud.service.utils.ByteRange;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Writes a file to the response honouring conditional requests
+ * ({@code If-None-Match}, {@code If-Modified-Since}, ...), {@code Range} and
+ * {@code If-Range}.
+ *
+ * Single ranges and full bodies of at least 48 KiB are handed to the
+ * container's sendfile support when it is available, and then the bytes never
+ * go through the JVM heap. Otherwise they are copied with
+ * {@link FileChannel#transferTo} to a channel wrapping the servlet output
+ * stream, which still copies them through a small heap array: it only saves
+ * the read loop, not the copy. Multipart ranges, gzip variants and stored
+ * compressed files always take that path.
+ * Files stored as {@link BlockCompressedFile}s are inflated on the way, only
+ * the blocks covering the requested ranges.
+ *
+ * Text files are sent gzipped to clients accepting it: stored compressed files
+ * as they are, the others from the {@link CompressedVariantCache}.
+ */
+@Component
+@RequiredArgsConstructor
+public class FileResponseWriter {
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private final CompressedVariantCache compressedVariantCache;
+
+    @Value("${var.cache.files.max-age:0s}")
+    private Duration maxAge = Duration.ZERO;
+
+    public void write(HttpServletRequest request, HttpServletResponse response, Path filePath,
+            String contentType, String contentDisposition) throws IOException {
+        write(request, response, filePath, contentType, contentDisposition,
+                CacheControl.maxAge(maxAge).cachePrivate());
+    }
+
+    /**
+     * Same as {@link #write(HttpServletRequest, HttpServletResponse, Path, String, String)}
+     * with a caching policy of its own, for content whose URL changes with it.
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, Path filePath,
+            String contentType, String contentDisposition, CacheControl cacheControl) throws IOException {
+        try (BlockCompressedFile compressed = BlockCompressedFile.openIfCompressed(filePath)) {
+            write(request, response, filePath, compressed, contentType, contentDisposition, cacheControl);
+        }
+    }
+
+    /**
+     * Files stored compressed are answered with their original length and
+     * ranges. A full body for a client accepting gzip is sent with the stored
+     * blocks as they are, under its own entity tag.
+     */
+    private void write(HttpServletRequest request, HttpServletResponse response, Path filePath,
+            BlockCompressedFile compressed, String contentType, String contentDisposition,
+            CacheControl cacheControl) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        long length = compressed == null ? attributes.size() : compressed.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        boolean encodable = compressed != null || compressedVariantCache.accepts(filePath, attributes);
+        boolean gzip = encodable && rangeHeader == null && acceptsGzip(request);
+        String etag = gzip ? etag(attributes, "gz") : etag(attributes);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (encodable)
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified))
+            return;
+
+        if (gzip && compressed == null) {
+            try (FileChannel variant = compressedVariantCache.openGzip(filePath, attributes)) {
+                if (variant != null) {
+                    writeGzipVariant(request, response, variant, contentType, contentDisposition);
+                    return;
+                }
+            }
+            gzip = false;
+            etag = etag(attributes);
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+
+        if (contentDisposition != null)
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+
+        List<ByteRange> ranges = List.of();
+        if (rangeHeader != null && "GET".equals(request.getMethod())
+                && isIfRangeValid(request, etag, lastModified)) {
+            try {
+                ranges = toByteRanges(HttpRange.parseRanges(rangeHeader), length);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+
+            if (ranges == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        if (gzip) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLengthLong(compressed.gzipSize());
+            if (!head)
+                compressed.transferGzipTo(Channels.newChannel(response.getOutputStream()));
+            return;
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head)
+                transfer(request, response, filePath, compressed, new ByteRange(0, length));
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+            response.setContentLengthLong(range.length());
+            if (!head)
+                transfer(request, response, filePath, compressed, range);
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head)
+            return;
+
+        OutputStream outputStream = response.getOutputStream();
+        try (FileChannel channel = compressed == null ? FileChannel.open(filePath, StandardOpenOption.READ) : null) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            for (ByteRange range : ranges) {
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, length) + "\r\n\r\n";
+                outputStream.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                if (compressed == null)
+                    transferTo(channel, range, target);
+                else
+                    compressed.newInputStream(range.start(), range.end()).transferTo(outputStream);
+            }
+            outputStream.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void writeGzipVariant(HttpServletRequest request, HttpServletResponse response, FileChannel variant,
+            String contentType, String contentDisposition) throws IOException {
+        if (contentDisposition != null)
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+
+        long length = variant.size();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setContentLengthLong(length);
+        if (!"HEAD".equals(request.getMethod()))
+            transferTo(variant, new ByteRange(0, length), Channels.newChannel(response.getOutputStream()));
+    }
+
+    /**
+     * Strong validator built from the size, the modification time in
+     * nanoseconds and the file key (device and inode on unix), so a file
+     * replaced by another one with the same size and second still gets a new
+     * tag.
+     */
+    public static String etag(BasicFileAttributes attributes) {
+        return etag(attributes, null);
+    }
+
+    /**
+     * @param encoding content coding of the representation, which needs a tag
+     *                 of its own
+     */
+    static String etag(BasicFileAttributes attributes, String encoding) {
+        Object fileKey = attributes.fileKey();
+        return "\"" + Long.toHexString(attributes.size())
+                + "-" + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS))
+                + (fileKey == null ? "" : "-" + Integer.toHexString(fileKey.hashCode()))
+                + (encoding == null ? "" : "-" + encoding)
+                + "\"";
+    }
+
+    /**
+     * {@code gzip} (or {@code *}) listed in {@code Accept-Encoding} without a
+     * zero quality.
+     */
+    static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null)
+            return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*"))
+                continue;
+
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) == 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@code If-Range} needs a strong match: either the current entity tag or
+     * the exact modification second of the file. Anything else means the
+     * client's copy is stale and it must receive the whole file.
+     */
+    boolean isIfRangeValid(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null)
+            return true;
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return ifRange.equals(etag);
+
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the satisfiable ranges, an empty list when the whole file should be
+     *         sent, or {@code null} when no range can be satisfied
+     */
+    static List<ByteRange> toByteRanges(List<HttpRange> httpRanges, long length) {
+        List<ByteRange> ranges = new ArrayList<>();
+        long total = 0;
+        for (HttpRange httpRange : httpRanges) {
+            long start = httpRange.getRangeStart(length);
+            long end = httpRange.getRangeEnd(length) + 1;
+            if (start >= length || start >= end)
+                continue;
+
+            ranges.add(new ByteRange(start, end));
+            total += end - start;
+        }
+
+        if (httpRanges.isEmpty())
+            return List.of();
+        if (ranges.isEmpty())
+            return null;
+        if (total >= length && ranges.size() > 1)
+            return List.of();
+        return ranges;
+    }
+
+    private void transfer(HttpServletRequest request, HttpServletResponse response, Path filePath,
+            BlockCompressedFile compressed, ByteRange range) throws IOException {
+        if (compressed != null) {
+            compressed.newInputStream(range.start(), range.end()).transferTo(response.getOutputStream());
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && range.length() >= SENDFILE_MIN_SIZE) {
+            request.setAttribute(SENDFILE_FILENAME, filePath.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            transferTo(channel, range, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void transferTo(FileChannel channel, ByteRange range, WritableByteChannel target)
+            throws IOException {
+        long position = range.start();
+        while (position < range.end()) {
+            long transferred = channel.transferTo(position, range.end() - position, target);
+            if (transferred <= 0)
+                throw new IOException("The file changed while it was being sent");
+            position += transferred;
+        }
+    }
+
+    private static String contentRange(ByteRange range, long length) {
+        return "bytes " + range.start() + "-" + (range.end() - 1) + "/" + length;
+    }
+}
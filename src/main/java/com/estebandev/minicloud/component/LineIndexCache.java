@@ -0,0 +1,117 @@
+package com.estebandev.minicloud.component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.service.utils.CacheStats;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+import com.estebandev.minicloud.service.utils.IOSupplier;
+import com.estebandev.minicloud.service.utils.LineIndex;
+
+import lombok.Setter;
+
+/**
+ * Bounded LRU cache of {@link LineIndex}es, keyed by the content key of the
+ * file, so a changed file is simply indexed again. Concurrent requests for a
+ * file not indexed yet wait for a single scan.
+ */
+@Component
+@Setter
+public class LineIndexCache {
+    private final Map<String, LineIndex> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<LineIndex>> building = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Value("${var.cache.line-index.max-entries:64}")
+    private int maxEntries = 64;
+
+    /** Bytes between two indexed lines, also the most read to reach a line. */
+    @Value("${var.cache.line-index.granularity:64KB}")
+    private DataSize granularity = DataSize.ofBytes(LineIndex.DEFAULT_GRANULARITY);
+
+    /**
+     * @param content opens the text from its start, only called on a miss
+     */
+    public LineIndex get(Path filePath, BasicFileAttributes attributes, IOSupplier<InputStream> content)
+            throws IOException {
+        String key = FileManagerUtils.contentKey(filePath, attributes);
+        LineIndex index = cached(key);
+        if (index != null) {
+            hits.incrementAndGet();
+            return index;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<LineIndex> own = new CompletableFuture<>();
+        CompletableFuture<LineIndex> running = building.putIfAbsent(key, own);
+        if (running != null)
+            return await(running);
+
+        try (InputStream inputStream = content.get()) {
+            index = LineIndex.build(key, inputStream, (int) granularity.toBytes());
+            put(key, index);
+            own.complete(index);
+            return index;
+        } catch (IOException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(key, own);
+        }
+    }
+
+    public synchronized CacheStats stats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return CacheStats.builder()
+                .size(entries.size())
+                .hits(hitCount)
+                .misses(misses.get())
+                .evictions(evictions.get())
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .build();
+    }
+
+    private synchronized LineIndex cached(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, LineIndex index) {
+        if (maxEntries <= 0)
+            return;
+
+        entries.put(key, index);
+        Iterator<Map.Entry<String, LineIndex>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static LineIndex await(CompletableFuture<LineIndex> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while the file was being indexed", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Couldn't index the file", e.getCause());
+        }
+    }
+}
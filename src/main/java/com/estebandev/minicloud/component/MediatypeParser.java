@@ -95,4 +95,20 @@ public class MediatypeParser {
         return TYPES.getOrDefault(extension.toLowerCase(), "application/octet-stream");
     }
 
+    /**
+     * Text formats, which usually shrink a lot when deflated. Everything else
+     * known here is already compressed or binary.
+     */
+    public static boolean isCompressible(String mediaType) {
+        return mediaType.startsWith("text/") || mediaType.equals("image/svg+xml");
+    }
+
+    /** Image formats ImageIO decodes without extra plugins. */
+    public static boolean isThumbnailable(String mediaType) {
+        return switch (mediaType) {
+            case "image/png", "image/jpeg", "image/gif", "image/bmp" -> true;
+            default -> false;
+        };
+    }
+
 }
@@ -3,6 +3,8 @@ package com.estebandev.minicloud.config;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.slf4j.Logger;
@@ -11,10 +13,10 @@ import org.springframework.security.access.expression.method.MethodSecurityExpre
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
-import com.estebandev.minicloud.entity.FileMetadata;
 import com.estebandev.minicloud.service.FileManagerService;
 import com.estebandev.minicloud.service.FileMetadataService;
 import com.estebandev.minicloud.service.FileSecurityService;
+import com.estebandev.minicloud.service.utils.IOSupplier;
 
 import lombok.RequiredArgsConstructor;
 
@@ -25,6 +27,24 @@ public class FileActionSecurityManager {
     private final FileManagerService fileManagerService;
     private final FileMetadataService fileMetadataService;
     private final FileSecurityService fileSecurityService;
+    private final ThreadLocal<Map<String, Boolean>> decisions = new ThreadLocal<>();
+
+    /**
+     * Remembers the decisions taken while {@code work} runs on the current
+     * thread, so the operations of a batch on the same directory are
+     * authorized once.
+     */
+    public <T> T rememberingDecisions(IOSupplier<T> work) throws IOException {
+        if (decisions.get() != null)
+            return work.get();
+
+        decisions.set(new HashMap<>());
+        try {
+            return work.get();
+        } finally {
+            decisions.remove();
+        }
+    }
 
     public boolean decide(String pathString, boolean onlyOwner, MethodSecurityExpressionOperations operations) {
         if (operations.hasAuthority("ADMIN_DASHBOARD")) return true;
@@ -41,9 +61,19 @@ public class FileActionSecurityManager {
             pathString = path.toString();
         }
 
+        Map<String, Boolean> remembered = decisions.get();
+        if (remembered == null)
+            return decideDirectory(path, pathString, onlyOwner, email);
+
+        Path dirPath = path;
+        String dirPathString = pathString;
+        return remembered.computeIfAbsent(dirPath + (onlyOwner ? "#owner" : "#access"),
+                key -> decideDirectory(dirPath, dirPathString, onlyOwner, email));
+    }
+
+    private boolean decideDirectory(Path path, String pathString, boolean onlyOwner, String email) {
         try {
-            FileMetadata ownerMetadata = fileMetadataService.findMetadataFromKey(path, "owner");
-            if (ownerMetadata.getValue().equals(email))
+            if (fileMetadataService.findOwnerEmail(path).equals(email))
                 return true;
 
         } catch (NoSuchElementException | IOException e) {
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 import java.util.function.Supplier;
 
@@ -15,11 +16,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.stereotype.Component;
 
-import com.estebandev.minicloud.entity.FileMetadata;
-import com.estebandev.minicloud.entity.User;
 import com.estebandev.minicloud.service.FileManagerService;
 import com.estebandev.minicloud.service.FileMetadataService;
-import com.estebandev.minicloud.service.UserService;
+import com.estebandev.minicloud.service.FileSecurityService;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -30,7 +29,7 @@ public class FileSecurityAuthorizationManager implements AuthorizationManager<Re
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final FileMetadataService fileMetadataService;
     private final FileManagerService fileManagerService;
-    private final UserService userService;
+    private final FileSecurityService fileSecurityService;
     private final List<String> acceptedUris = List.of(
             "/files",
             "/files/action/createIfNotExistPersonalDirectory",
@@ -78,25 +77,20 @@ public class FileSecurityAuthorizationManager implements AuthorizationManager<Re
             pathString = path.toString();
         }
 
-        FileMetadata ownerMetadata;
+        String ownerEmail;
+        UUID uuid;
         try {
-            ownerMetadata = fileMetadataService.findMetadataFromKey(path, "owner");
-        } catch (IOException e) {
+            ownerEmail = fileMetadataService.findOwnerEmail(path);
+            uuid = fileMetadataService.getUuidFromDir(path);
+        } catch (IOException | NoSuchElementException e) {
 
             logger.error("Authorization Manager, path={}, Exception=\n{}", pathString, e.getMessage());
             return new AuthorizationDecision(false);
         }
 
-        if (email.equals(ownerMetadata.getValue()))
+        if (email.equals(ownerEmail))
             return new AuthorizationDecision(true);
 
-        User user = userService.findAllDataByEmail(email);
-        List<UUID> directoriesWithAccess = user.getUserMetadata().stream()
-                .filter(um -> um.getKey().startsWith("ACCESS_TO_") && um.getValue().equals("true"))
-                .map(um -> UUID.fromString(um.getKey().substring(10)))
-                .toList();
-
-        boolean result = directoriesWithAccess.contains(UUID.fromString(ownerMetadata.getUuid()));
-        return new AuthorizationDecision(result);
+        return new AuthorizationDecision(fileSecurityService.isSharedWith(uuid, email));
     }
 }
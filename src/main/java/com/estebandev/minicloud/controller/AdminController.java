@@ -1,5 +1,8 @@
 package com.estebandev.minicloud.controller;
 
+import java.io.IOException;
+import java.util.Map;
+
 import org.springframework.data.domain.Page;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -12,11 +15,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.estebandev.minicloud.component.CompressedVariantCache;
+import com.estebandev.minicloud.component.DirectoryListingCache;
+import com.estebandev.minicloud.component.DirectoryUuidCache;
+import com.estebandev.minicloud.component.LineIndexCache;
 import com.estebandev.minicloud.controller.dto.UserDTO;
 import com.estebandev.minicloud.entity.User;
 import com.estebandev.minicloud.service.AdminService;
+import com.estebandev.minicloud.service.BlobStoreService;
 import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.CacheStats;
+import com.estebandev.minicloud.service.utils.DedupStats;
 
 import lombok.RequiredArgsConstructor;
 
@@ -25,6 +36,11 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class AdminController {
     private final AdminService adminService;
+    private final BlobStoreService blobStoreService;
+    private final DirectoryListingCache directoryListingCache;
+    private final CompressedVariantCache compressedVariantCache;
+    private final LineIndexCache lineIndexCache;
+    private final DirectoryUuidCache directoryUuidCache;
 
     @GetMapping("/dashboard")
     @PreAuthorize("hasAuthority('ADMIN_DASHBOARD')")
@@ -107,4 +123,26 @@ public class AdminController {
             return "redirect:/admin/dashboard";
         }
     }
+
+    @GetMapping("/storage/stats")
+    @ResponseBody
+    @PreAuthorize("hasAuthority('ADMIN_DASHBOARD')")
+    public DedupStats storageStats() throws IOException {
+        return blobStoreService.stats();
+    }
+
+    @PostMapping("/storage/gc")
+    @ResponseBody
+    @PreAuthorize("hasAuthority('ADMIN_DASHBOARD')")
+    public Map<String, Long> collectGarbage() throws IOException {
+        return Map.of("deleted", blobStoreService.collectGarbage());
+    }
+
+    @GetMapping("/cache/stats")
+    @ResponseBody
+    @PreAuthorize("hasAuthority('ADMIN_DASHBOARD')")
+    public Map<String, CacheStats> cacheStats() {
+        return Map.of("listing", directoryListingCache.stats(), "compressed", compressedVariantCache.stats(),
+                "lineIndex", lineIndexCache.stats(), "uuid", directoryUuidCache.stats());
+    }
 }
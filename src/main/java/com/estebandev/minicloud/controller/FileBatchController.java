@@ -0,0 +1,35 @@
+package com.estebandev.minicloud.controller;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.estebandev.minicloud.controller.dto.BatchRequestDTO;
+import com.estebandev.minicloud.controller.dto.BatchResultDTO;
+import com.estebandev.minicloud.service.BatchOperationService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/files/action/batch")
+public class FileBatchController {
+    private final BatchOperationService batchOperationService;
+
+    /**
+     * @param pathString the directory the batch was started from
+     */
+    @PostMapping
+    public List<BatchResultDTO> execute(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestBody BatchRequestDTO request) {
+
+        return batchOperationService.execute(request.getOperations()).stream()
+                .map(BatchResultDTO::new)
+                .toList();
+    }
+}
@@ -0,0 +1,41 @@
+package com.estebandev.minicloud.controller;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.estebandev.minicloud.controller.dto.DeleteJobDTO;
+import com.estebandev.minicloud.service.DeleteJobService;
+import com.estebandev.minicloud.service.exception.ServiceException;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/files/action/delete")
+public class FileDeleteController {
+    private final DeleteJobService deleteJobService;
+
+    @PostMapping("/recursive")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public DeleteJobDTO deleteRecursive(
+            @RequestParam(required = true, name = "path") String pathString) throws IOException {
+
+        return new DeleteJobDTO(deleteJobService.start(pathString));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public DeleteJobDTO getJob(
+            @RequestParam(required = true, name = "path") String pathString,
+            @PathVariable String id) throws ServiceException {
+
+        return new DeleteJobDTO(deleteJobService.find(id));
+    }
+}
@@ -0,0 +1,67 @@
+package com.estebandev.minicloud.controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.estebandev.minicloud.component.FileResponseWriter;
+import com.estebandev.minicloud.controller.dto.ContactSheetDTO;
+import com.estebandev.minicloud.service.ThumbnailService;
+import com.estebandev.minicloud.service.utils.ContactSheet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Contact sheets for gallery views: a page of a directory's thumbnails in a
+ * single image plus the offset of every tile, two requests instead of one per
+ * image.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/files/action/gallery")
+public class FileGalleryController {
+    private final ThumbnailService thumbnailService;
+    private final FileResponseWriter fileResponseWriter;
+
+    /**
+     * The map is revalidated with its version as entity tag, the image it
+     * links carries the version too and never changes.
+     */
+    @GetMapping
+    public ResponseEntity<ContactSheetDTO> contactSheet(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(defaultValue = "0") int page) throws IOException {
+
+        ContactSheet sheet = thumbnailService.contactSheet(pathString, page);
+        return ResponseEntity.ok()
+                .eTag(sheet.getVersion())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(new ContactSheetDTO(pathString, sheet));
+    }
+
+    @GetMapping("/sheet")
+    public void contactSheetImage(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false, name = "v") String version,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        Path sheetPath = thumbnailService.contactSheetImage(pathString, page);
+        if (version != null && sheetPath.getFileName().toString().endsWith("-" + version + ".jpg")) {
+            fileResponseWriter.write(request, response, sheetPath, "image/jpeg", null,
+                    CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable());
+        } else {
+            fileResponseWriter.write(request, response, sheetPath, "image/jpeg", null);
+        }
+    }
+}
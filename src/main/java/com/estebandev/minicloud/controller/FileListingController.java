@@ -0,0 +1,58 @@
+package com.estebandev.minicloud.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.estebandev.minicloud.controller.dto.FileDataDTO;
+import com.estebandev.minicloud.controller.dto.ListingPageDTO;
+import com.estebandev.minicloud.service.FileManagerService;
+import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.utils.ListingSort;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/files/action/list")
+public class FileListingController {
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final FileManagerService fileManagerService;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping
+    public ListingPageDTO listPage(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) throws IOException, FileIsNotDirectoryException {
+
+        return new ListingPageDTO(fileManagerService.listPage(pathString, ListingSort.parse(sort), ListingSort.isDescending(order),
+                cursor, size));
+    }
+
+    /**
+     * Newline delimited JSON, one entry per line in directory order, written
+     * while the directory is read.
+     */
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public void streamFiles(
+            @RequestParam(required = true, name = "path") String pathString,
+            HttpServletResponse response) throws IOException, FileIsNotDirectoryException {
+
+        response.setContentType(NDJSON);
+        OutputStream outputStream = response.getOutputStream();
+        fileManagerService.streamFiles(pathString, fileData -> {
+            outputStream.write(objectMapper.writeValueAsBytes(new FileDataDTO(fileData)));
+            outputStream.write('\n');
+        });
+    }
+}
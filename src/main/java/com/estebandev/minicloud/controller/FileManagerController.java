@@ -5,12 +5,12 @@ import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -22,16 +22,26 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.estebandev.minicloud.component.FileResponseWriter;
 import com.estebandev.minicloud.component.MediatypeParser;
 import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.ArchiveService;
+import com.estebandev.minicloud.service.DeleteJobService;
 import com.estebandev.minicloud.service.FileManagerService;
 import com.estebandev.minicloud.service.FileSecurityService;
+import com.estebandev.minicloud.service.ThumbnailService;
 import com.estebandev.minicloud.service.UserService;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
 import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.ArchiveFormat;
 import com.estebandev.minicloud.service.utils.FileData;
 import com.estebandev.minicloud.service.utils.FileManagerUtils;
+import com.estebandev.minicloud.service.utils.ListingPage;
+import com.estebandev.minicloud.service.utils.ListingSort;
+import com.estebandev.minicloud.service.utils.UploadResult;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
@@ -40,9 +50,15 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 @RequestMapping("/files/action")
 public class FileManagerController {
+    private static final int DIRECTORY_PAGE_SIZE = 200;
+
     private final UserService userService;
     private final FileManagerService fileManagerService;
     private final FileSecurityService fileSecurityService;
+    private final FileResponseWriter fileResponseWriter;
+    private final DeleteJobService deleteJobService;
+    private final ArchiveService archiveService;
+    private final ThumbnailService thumbnailService;
 
     @GetMapping("/createIfNotExistPersonalDirectory")
     public String createIfNotExistPersonalDirectory() throws IOException {
@@ -74,16 +90,23 @@ public class FileManagerController {
 
     @GetMapping("/go/dir")
     public String goToDir(@RequestParam(defaultValue = ".", name = "path") String pathString,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) String cursor,
             RedirectAttributes redirectAttributes,
             Model model,
             WebRequest webRequest)
             throws IOException, FileNotFoundException {
 
         try {
-            List<FileData> fileList = fileManagerService.listFiles(pathString);
+            ListingPage page = fileManagerService.listPage(pathString, ListingSort.parse(sort),
+                    ListingSort.isDescending(order), cursor, DIRECTORY_PAGE_SIZE);
             Path path = fileManagerService.getRoot().resolve(pathString).normalize();
             Path backPath = fileManagerService.getRoot().relativize(path).getParent();
-            model.addAttribute("fileList", fileList);
+            model.addAttribute("fileList", page.getEntries());
+            model.addAttribute("nextCursor", page.getNextCursor());
+            model.addAttribute("sort", sort);
+            model.addAttribute("order", order);
             model.addAttribute("fileData", fileManagerService.findFileData(pathString));
             model.addAttribute("path", fileManagerService.getRoot().relativize(path).toString());
             model.addAttribute("backPath", backPath == null ? path.relativize(path) : backPath);
@@ -118,23 +141,52 @@ public class FileManagerController {
     }
 
     @GetMapping("/read")
-    public ResponseEntity<Resource> readFile(
+    public void readFile(
             @RequestParam(required = true, name = "path") String pathString,
-            RedirectAttributes redirectAttributes) throws IOException {
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
         try {
             Resource resource = fileManagerService.findFile(pathString);
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(fileManagerService.getMimeType(pathString)))
-                    .body(resource);
+            fileResponseWriter.write(request, response, resource.getFile().toPath(),
+                    fileManagerService.getMimeType(pathString), null);
+        } catch (FileNotFoundException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Listings link thumbnails with the modification time of the image in
+     * {@code v}, so a changed image gets a new URL and a versioned one can be
+     * cached for good.
+     */
+    @GetMapping("/thumb")
+    public void thumbnail(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(defaultValue = "128") int size,
+            @RequestParam(required = false, name = "v") String version,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        try {
+            Path thumbnailPath = thumbnailService.thumbnail(pathString, size);
+            String contentType = FileManagerUtils.getMimeType(thumbnailPath);
+            if (version == null) {
+                fileResponseWriter.write(request, response, thumbnailPath, contentType, null);
+            } else {
+                fileResponseWriter.write(request, response, thumbnailPath, contentType, null,
+                        CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable());
+            }
         } catch (FileNotFoundException e) {
             throw new IOException(e.getMessage());
         }
     }
 
     @GetMapping("/download")
-    public ResponseEntity<Resource> downloadFile(@RequestParam(name = "path") String pathString) throws IOException {
+    public void downloadFile(@RequestParam(name = "path") String pathString,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         Resource resource;
         try {
             resource = fileManagerService.findFile(pathString);
@@ -149,21 +201,46 @@ public class FileManagerController {
             contentType = "application/octet-stream"; // Fallback si no se detecta
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
-        headers.add(HttpHeaders.CONTENT_TYPE, contentType);
+        fileResponseWriter.write(request, response, resource.getFile().toPath(), contentType,
+                "attachment; filename=\"" + filename + "\"");
+    }
 
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(resource);
+    @GetMapping("/download/archive")
+    public void downloadArchive(@RequestParam(name = "path") String pathString,
+            @RequestParam(required = false, name = "name") List<String> names,
+            @RequestParam(defaultValue = "zip") String format,
+            @RequestParam(defaultValue = "deflated") String method,
+            HttpServletResponse response) throws IOException {
+        ArchiveFormat archiveFormat = ArchiveFormat.parse(format);
+        boolean stored = ArchiveFormat.isStored(method);
+
+        Path path = Path.of(pathString).normalize();
+        String filename = names != null && names.size() == 1 ? names.get(0)
+                : path.getFileName() == null || path.getFileName().toString().isEmpty() ? "files"
+                        : path.getFileName().toString();
+
+        response.setContentType(archiveFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + filename + archiveFormat.getExtension() + "\"");
+        archiveService.writeArchive(pathString, names == null ? List.of() : names, archiveFormat, stored,
+                response.getOutputStream());
     }
 
     @PostMapping("/upload")
-    public String uploadFilePost(@RequestParam("file") MultipartFile file,
+    public String uploadFilePost(@RequestParam("file") List<MultipartFile> files,
             @RequestParam(required = true, name = "path") String pathString,
             RedirectAttributes redirectAttributes) throws IOException, FileNotFoundException {
         try {
-            fileManagerService.uploadFile(pathString, file);
+            if (files.size() == 1) {
+                fileManagerService.uploadFile(pathString, files.get(0));
+            } else {
+                List<String> failed = fileManagerService.uploadFiles(pathString, files).stream()
+                        .filter(result -> !result.isSuccess())
+                        .map(UploadResult::getName)
+                        .toList();
+                if (!failed.isEmpty())
+                    throw new IOException("Couldn't upload " + String.join(", ", failed));
+            }
             redirectAttributes.addAttribute("path", pathString);
             return "redirect:/files/action/go/dir";
         } catch (FileIsNotDirectoryException e) {
@@ -186,10 +263,14 @@ public class FileManagerController {
 
     @PostMapping("/delete")
     public String delete(@RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(defaultValue = "false") boolean recursive,
             RedirectAttributes redirectAttributes)
             throws IOException, FileNotFoundException {
 
-        fileManagerService.delete(pathString);
+        if (recursive)
+            deleteJobService.start(pathString);
+        else
+            fileManagerService.delete(pathString);
         redirectAttributes.addAttribute("path", FileManagerUtils.getParent(pathString).toString());
         return "redirect:/files/action/go/dir";
     }
@@ -205,6 +286,18 @@ public class FileManagerController {
         return "redirect:/files/action/go/dir";
     }
 
+    @PostMapping("/move")
+    public String move(@RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(required = true) String target,
+            @RequestParam(defaultValue = "false") boolean copy,
+            RedirectAttributes redirectAttributes)
+            throws IOException, FileNotFoundException {
+
+        Path newPath = copy ? fileManagerService.copy(pathString, target) : fileManagerService.move(pathString, target);
+        redirectAttributes.addAttribute("path", newPath.toString());
+        return "redirect:/files/action/go/dir";
+    }
+
     @GetMapping("/manage/access")
     public String accesDashboard(
             @RequestParam(required = true, name = "path") String pathString,
@@ -0,0 +1,53 @@
+package com.estebandev.minicloud.controller;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.exception.ServiceException;
+
+@RestControllerAdvice(assignableTypes = { FileUploadController.class, FileListingController.class,
+        FileDeleteController.class, FileBatchController.class, FileGalleryController.class,
+        FileTextController.class })
+public class FileRestControllerAdvice {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @SuppressWarnings("rawtypes")
+    private static final Map<Class, HttpStatus> STATUSES = Map.ofEntries(
+            Map.entry(FileNotFoundException.class, HttpStatus.NOT_FOUND),
+            Map.entry(FileIsNotDirectoryException.class, HttpStatus.BAD_REQUEST),
+            Map.entry(FileAlreadyExistsException.class, HttpStatus.CONFLICT),
+            Map.entry(IllegalArgumentException.class, HttpStatus.BAD_REQUEST),
+            Map.entry(ServiceException.class, HttpStatus.BAD_REQUEST),
+            Map.entry(AccessDeniedException.class, HttpStatus.FORBIDDEN));
+
+    @ExceptionHandler({ IOException.class, IllegalArgumentException.class, ServiceException.class,
+            AccessDeniedException.class })
+    public ResponseEntity<Map<String, String>> handleException(Exception e) {
+        logger.debug("Rest exception handler invoked. Exception {} \nMessage: {}", e.getClass(), e.getMessage());
+
+        HttpStatus status = statusOf(e);
+        return ResponseEntity.status(status).body(Map.of("error", messageOf(e)));
+    }
+
+    /**
+     * Status of the error, shared with the per item results of the batch API.
+     */
+    public static HttpStatus statusOf(Exception e) {
+        return STATUSES.getOrDefault(e.getClass(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    public static String messageOf(Exception e) {
+        return e.getMessage() == null ? statusOf(e).getReasonPhrase() : e.getMessage();
+    }
+}
@@ -0,0 +1,40 @@
+package com.estebandev.minicloud.controller;
+
+import java.io.IOException;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.estebandev.minicloud.controller.dto.TextWindowDTO;
+import com.estebandev.minicloud.service.TextViewService;
+import com.estebandev.minicloud.service.utils.TextWindow;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/files/action/text")
+public class FileTextController {
+    private final TextViewService textViewService;
+
+    /**
+     * A window of lines of a text file. The entity tag follows the file
+     * version, so pages already seen are revalidated without reading them.
+     */
+    @GetMapping
+    public ResponseEntity<TextWindowDTO> readLines(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(defaultValue = "0") long from,
+            @RequestParam(defaultValue = "500") int count) throws IOException {
+
+        TextWindow window = textViewService.readLines(pathString, from, count);
+        return ResponseEntity.ok()
+                .eTag(window.getVersion().substring(0, 16) + "-" + from + "-" + count)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(new TextWindowDTO(window));
+    }
+}
@@ -0,0 +1,113 @@
+package com.estebandev.minicloud.controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.estebandev.minicloud.controller.dto.UploadResultDTO;
+import com.estebandev.minicloud.controller.dto.UploadSessionDTO;
+import com.estebandev.minicloud.entity.UploadSession;
+import com.estebandev.minicloud.service.FileManagerService;
+import com.estebandev.minicloud.service.UploadSessionService;
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.ByteRange;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/files/action/upload")
+public class FileUploadController {
+    private final FileManagerService fileManagerService;
+    private final UploadSessionService uploadSessionService;
+
+    /**
+     * Raw body upload. The body is not multipart, so neither the servlet
+     * container nor the security filters spool it before it reaches the service.
+     */
+    @PutMapping("/stream")
+    public Map<String, String> uploadStream(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(required = true) String name,
+            HttpServletRequest request) throws IOException {
+
+        Path filePath = fileManagerService.uploadFile(pathString, name, request.getInputStream());
+        return Map.of("path", filePath.toString());
+    }
+
+    /**
+     * Many files in one multipart request, stored concurrently. Answers one
+     * result per part, a part that fails doesn't fail the others.
+     */
+    @PostMapping("/multipart")
+    public List<UploadResultDTO> uploadFiles(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam("file") List<MultipartFile> files) throws IOException {
+
+        return fileManagerService.uploadFiles(pathString, files).stream()
+                .map(UploadResultDTO::new)
+                .toList();
+    }
+
+    @PostMapping("/session")
+    @ResponseStatus(HttpStatus.CREATED)
+    public UploadSessionDTO createSession(
+            @RequestParam(required = true, name = "path") String pathString,
+            @RequestParam(required = true) String name,
+            @RequestParam(required = true) long size) throws IOException, ServiceException {
+
+        UploadSession session = uploadSessionService.create(pathString, name, size);
+        return new UploadSessionDTO(session, List.of());
+    }
+
+    @GetMapping("/session/{id}")
+    public UploadSessionDTO getSession(
+            @RequestParam(required = true, name = "path") String pathString,
+            @PathVariable String id) throws ServiceException {
+
+        UploadSession session = uploadSessionService.find(pathString, id);
+        return new UploadSessionDTO(session, uploadSessionService.receivedRanges(session));
+    }
+
+    @PutMapping("/session/{id}")
+    public List<ByteRange> writeChunk(
+            @RequestParam(required = true, name = "path") String pathString,
+            @PathVariable String id,
+            @RequestParam(required = true) long offset,
+            HttpServletRequest request) throws IOException, ServiceException {
+
+        return uploadSessionService.writeChunk(pathString, id, offset, request.getInputStream());
+    }
+
+    @PostMapping("/session/{id}/complete")
+    public Map<String, String> completeSession(
+            @RequestParam(required = true, name = "path") String pathString,
+            @PathVariable String id) throws IOException, ServiceException {
+
+        Path filePath = uploadSessionService.complete(pathString, id);
+        return Map.of("path", filePath.toString());
+    }
+
+    @DeleteMapping("/session/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancelSession(
+            @RequestParam(required = true, name = "path") String pathString,
+            @PathVariable String id) throws IOException, ServiceException {
+
+        uploadSessionService.cancel(pathString, id);
+    }
+}
@@ -0,0 +1,18 @@
+package com.estebandev.minicloud.controller.dto;
+
+import java.util.List;
+
+import com.estebandev.minicloud.service.utils.BatchOperation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchRequestDTO {
+    private List<BatchOperation> operations;
+}
@@ -0,0 +1,30 @@
+package com.estebandev.minicloud.controller.dto;
+
+import com.estebandev.minicloud.controller.FileRestControllerAdvice;
+import com.estebandev.minicloud.service.utils.BatchOperation;
+import com.estebandev.minicloud.service.utils.BatchResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchResultDTO {
+    private int index;
+    private BatchOperation.Type op;
+    private String path;
+    private int status;
+    private String error;
+
+    public BatchResultDTO(BatchResult result) {
+        this.index = result.getIndex();
+        this.op = result.getOperation().getOp();
+        this.path = result.getPath();
+        this.status = result.isSuccess() ? 200 : FileRestControllerAdvice.statusOf(result.getError()).value();
+        this.error = result.isSuccess() ? null : FileRestControllerAdvice.messageOf(result.getError());
+    }
+}
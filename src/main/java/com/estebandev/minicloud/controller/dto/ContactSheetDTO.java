@@ -0,0 +1,45 @@
+package com.estebandev.minicloud.controller.dto;
+
+import java.util.List;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.estebandev.minicloud.service.utils.ContactSheet;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ContactSheetDTO {
+    private String image;
+    private String version;
+    private int page;
+    private boolean hasMore;
+    private int tileSize;
+    private int columns;
+    private int width;
+    private int height;
+    private List<ContactSheet.Tile> tiles;
+
+    public ContactSheetDTO(String pathString, ContactSheet sheet) {
+        this.image = UriComponentsBuilder.fromPath("/files/action/gallery/sheet")
+                .queryParam("path", pathString)
+                .queryParam("page", sheet.getPage())
+                .queryParam("v", sheet.getVersion())
+                .encode()
+                .toUriString();
+        this.version = sheet.getVersion();
+        this.page = sheet.getPage();
+        this.hasMore = sheet.isHasMore();
+        this.tileSize = sheet.getTileSize();
+        this.columns = sheet.getColumns();
+        this.width = sheet.getWidth();
+        this.height = sheet.getHeight();
+        this.tiles = sheet.getTiles();
+    }
+}
@@ -0,0 +1,30 @@
+package com.estebandev.minicloud.controller.dto;
+
+import com.estebandev.minicloud.service.utils.DeleteJob;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DeleteJobDTO {
+    private String id;
+    private String path;
+    private DeleteJob.Status status;
+    private long total;
+    private long deleted;
+    private String error;
+
+    public DeleteJobDTO(DeleteJob job) {
+        this.id = job.getId();
+        this.path = job.getPath();
+        this.status = job.getStatus();
+        this.total = job.getTotal();
+        this.deleted = job.getDeleted();
+        this.error = job.getError();
+    }
+}
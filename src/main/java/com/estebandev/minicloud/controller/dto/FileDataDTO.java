@@ -0,0 +1,34 @@
+package com.estebandev.minicloud.controller.dto;
+
+import java.time.Instant;
+
+import com.estebandev.minicloud.service.utils.FileData;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FileDataDTO {
+    private String fileName;
+    private String path;
+    private boolean directory;
+    private String mediaType;
+    private long size;
+    private Instant lastModified;
+    private Instant created;
+
+    public FileDataDTO(FileData fileData) {
+        this.fileName = fileData.getFileName();
+        this.path = fileData.getPath().toString();
+        this.directory = fileData.isDirectory();
+        this.mediaType = fileData.getMediaType();
+        this.size = fileData.getSizeBytes();
+        this.lastModified = fileData.getLastModified();
+        this.created = fileData.getCreated();
+    }
+}
@@ -0,0 +1,24 @@
+package com.estebandev.minicloud.controller.dto;
+
+import java.util.List;
+
+import com.estebandev.minicloud.service.utils.ListingPage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ListingPageDTO {
+    private List<FileDataDTO> entries;
+    private String nextCursor;
+
+    public ListingPageDTO(ListingPage page) {
+        this.entries = page.getEntries().stream().map(FileDataDTO::new).toList();
+        this.nextCursor = page.getNextCursor();
+    }
+}
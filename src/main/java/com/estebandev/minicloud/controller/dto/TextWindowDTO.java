@@ -0,0 +1,30 @@
+package com.estebandev.minicloud.controller.dto;
+
+import java.util.List;
+
+import com.estebandev.minicloud.service.utils.TextWindow;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TextWindowDTO {
+    private long from;
+    private long totalLines;
+    private boolean hasMore;
+    private boolean truncated;
+    private List<String> lines;
+
+    public TextWindowDTO(TextWindow window) {
+        this.from = window.getFrom();
+        this.totalLines = window.getTotalLines();
+        this.hasMore = window.getFrom() + window.getLines().size() < window.getTotalLines();
+        this.truncated = window.isTruncated();
+        this.lines = window.getLines();
+    }
+}
@@ -0,0 +1,29 @@
+package com.estebandev.minicloud.controller.dto;
+
+import com.estebandev.minicloud.controller.FileRestControllerAdvice;
+import com.estebandev.minicloud.service.utils.UploadResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadResultDTO {
+    private String name;
+    private String path;
+    private long size;
+    private int status;
+    private String error;
+
+    public UploadResultDTO(UploadResult result) {
+        this.name = result.getName();
+        this.path = result.getPath();
+        this.size = result.getSize();
+        this.status = result.isSuccess() ? 201 : FileRestControllerAdvice.statusOf(result.getError()).value();
+        this.error = result.isSuccess() ? null : FileRestControllerAdvice.messageOf(result.getError());
+    }
+}
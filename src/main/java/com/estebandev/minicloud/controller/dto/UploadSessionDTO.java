@@ -0,0 +1,29 @@
+package com.estebandev.minicloud.controller.dto;
+
+import java.util.List;
+
+import com.estebandev.minicloud.entity.UploadSession;
+import com.estebandev.minicloud.service.utils.ByteRange;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionDTO {
+    private String id;
+    private String fileName;
+    private long size;
+    private List<ByteRange> received;
+
+    public UploadSessionDTO(UploadSession session, List<ByteRange> received) {
+        this.id = session.getId();
+        this.fileName = session.getFileName();
+        this.size = session.getSize();
+        this.received = received;
+    }
+}
@@ -0,0 +1,104 @@
+package com.estebandev.minicloud.entity;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A directory managed by minicloud, identified by the UUID stored in it.
+ *
+ * The UUID is assigned before the row exists, so the entity tells Spring Data
+ * whether it is new instead of letting {@code save} select it first.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "directory", indexes = {
+        @Index(name = "idx_directory_owner", columnList = "owner_id"),
+        @Index(name = "idx_directory_parent", columnList = "parent_uuid"),
+        @Index(name = "idx_directory_path", columnList = "path") })
+@EqualsAndHashCode(exclude = { "owner", "isNew" })
+@ToString(exclude = { "owner" })
+public class Directory implements Persistable<String> {
+    @Id
+    @Column(length = 36)
+    private String uuid;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "owner_id", referencedColumnName = "id", nullable = false)
+    private User owner;
+
+    /** {@code null} for the directories right under the root. */
+    @Column(name = "parent_uuid", length = 36)
+    private String parentUuid;
+
+    /**
+     * Relative to the root, like {@code user@mail.com/docs}. Its index serves
+     * the {@code LIKE 'prefix/%'} subtree rewrites of renames and moves, and
+     * the length keeps the whole column within the index key limit. On MySQL
+     * it must use a binary collation for those to be case sensitive, which
+     * {@link com.estebandev.minicloud.component.DirectoryPathCollation} sets.
+     */
+    @Column(nullable = false, length = 768)
+    private String path;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @Override
+    public String getId() {
+        return uuid;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null)
+            createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    void preUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
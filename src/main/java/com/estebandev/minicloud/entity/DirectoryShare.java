@@ -0,0 +1,58 @@
+package com.estebandev.minicloud.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Access of a user to a directory somebody else owns. The unique constraint
+ * indexes the shares of a directory, the other index the shares of a user.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "directory_share",
+        uniqueConstraints = @UniqueConstraint(name = "uk_directory_share_directory_user",
+                columnNames = { "directory_uuid", "user_id" }),
+        indexes = @Index(name = "idx_directory_share_user_directory", columnList = "user_id, directory_uuid"))
+@EqualsAndHashCode(exclude = { "user" })
+@ToString(exclude = { "user" })
+public class DirectoryShare {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "directory_uuid", nullable = false, length = 36)
+    private String directoryUuid;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", referencedColumnName = "id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private SharePermission permission;
+
+    @Column(nullable = false)
+    private LocalDateTime grantedAt;
+}
@@ -0,0 +1,10 @@
+package com.estebandev.minicloud.entity;
+
+/**
+ * What a directory share allows. Shares granted from the sharing page are
+ * {@link #WRITE}, the same access the old {@code ACCESS_TO_} rows gave.
+ */
+public enum SharePermission {
+    READ,
+    WRITE
+}
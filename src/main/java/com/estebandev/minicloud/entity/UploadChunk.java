@@ -0,0 +1,39 @@
+package com.estebandev.minicloud.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "upload_chunk", indexes = @Index(columnList = "session_id"))
+public class UploadChunk {
+    @Id
+    @SequenceGenerator(name = "upload_chunk_secuence", sequenceName = "upload_chunk_secuence", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "session_id", referencedColumnName = "id", nullable = false)
+    private UploadSession session;
+
+    @Column(name = "chunk_offset", nullable = false)
+    private long offset;
+
+    @Column(name = "chunk_length", nullable = false)
+    private long length;
+}
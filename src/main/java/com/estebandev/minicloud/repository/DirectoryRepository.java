@@ -0,0 +1,46 @@
+package com.estebandev.minicloud.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.estebandev.minicloud.entity.Directory;
+
+public interface DirectoryRepository extends JpaRepository<Directory, String> {
+    @Query("SELECT d.owner.email FROM Directory d WHERE d.uuid = :uuid")
+    Optional<String> findOwnerEmail(@Param("uuid") String uuid);
+
+    List<Directory> findByUuidIn(List<String> uuids);
+
+    @Query("SELECT d FROM Directory d WHERE d.owner.id = :owner_id")
+    List<Directory> findByOwnerId(@Param("owner_id") Long ownerId);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Directory d SET d.parentUuid = :parent_uuid, d.updatedAt = LOCAL DATETIME "
+            + "WHERE d.uuid = :uuid")
+    int updateParent(@Param("uuid") String uuid, @Param("parent_uuid") String parentUuid);
+
+    /**
+     * Replaces the leading {@code old_path} of a directory and of its whole
+     * subtree. {@code old_prefix} is the LIKE pattern of the subtree, escaped
+     * with {@code !}.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Directory d SET d.path = CONCAT(:new_path, SUBSTRING(d.path, :old_length + 1)), "
+            + "d.updatedAt = LOCAL DATETIME "
+            + "WHERE d.path = :old_path OR d.path LIKE :old_prefix ESCAPE '!'")
+    int updatePathPrefix(@Param("old_path") String oldPath, @Param("old_prefix") String oldPrefix,
+            @Param("old_length") int oldLength, @Param("new_path") String newPath);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Directory d WHERE d.uuid IN :uuids")
+    int deleteByUuidIn(@Param("uuids") List<String> uuids);
+}
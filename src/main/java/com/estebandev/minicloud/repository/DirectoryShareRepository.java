@@ -0,0 +1,36 @@
+package com.estebandev.minicloud.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.estebandev.minicloud.entity.DirectoryShare;
+import com.estebandev.minicloud.entity.User;
+
+public interface DirectoryShareRepository extends JpaRepository<DirectoryShare, Long> {
+    @Query("SELECT COUNT(s) > 0 FROM DirectoryShare s WHERE s.directoryUuid = :uuid AND s.user.email = :email")
+    boolean existsByDirectoryUuidAndUserEmail(@Param("uuid") String uuid, @Param("email") String email);
+
+    @Query("SELECT COUNT(s) > 0 FROM DirectoryShare s WHERE s.directoryUuid = :uuid AND s.user.id = :user_id")
+    boolean existsByDirectoryUuidAndUserId(@Param("uuid") String uuid, @Param("user_id") Long userId);
+
+    @Query("SELECT s.user FROM DirectoryShare s WHERE s.directoryUuid = :uuid")
+    List<User> findUsersByDirectoryUuid(@Param("uuid") String uuid);
+
+    @Query("SELECT s.directoryUuid FROM DirectoryShare s WHERE s.user.id = :user_id")
+    List<String> findDirectoryUuidsByUserId(@Param("user_id") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DirectoryShare s WHERE s.directoryUuid = :uuid AND s.user.id = :user_id")
+    int deleteByDirectoryUuidAndUserId(@Param("uuid") String uuid, @Param("user_id") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DirectoryShare s WHERE s.directoryUuid IN :uuids")
+    int deleteByDirectoryUuidIn(@Param("uuids") List<String> uuids);
+}
@@ -3,6 +3,7 @@ package com.estebandev.minicloud.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -11,7 +12,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.estebandev.minicloud.entity.FileMetadata;
 
+/**
+ * Key/value rows directories were described with before the
+ * {@code directory} table. They are only read to migrate them.
+ */
 public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long> {
+    List<FileMetadata> findByKeyAndIdGreaterThanOrderById(String key, Long id, Pageable pageable);
+
     List<FileMetadata> findByUuid(String uuid);
 
     @Modifying(clearAutomatically = true)
@@ -19,11 +26,28 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long
     @Query("UPDATE FileMetadata fm SET fm.uuid = :new_uuid WHERE fm.uuid = :old_uuid")
     int updateUuid(@Param("old_uuid") String oldUUID, @Param("new_uuid") String newUUID);
 
+    /**
+     * Replaces the leading {@code old_path} of the path rows of a directory
+     * and of its whole subtree. {@code old_prefix} is the LIKE pattern of the
+     * subtree, escaped with {@code !}.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE FileMetadata fm SET fm.value = CONCAT(:new_path, SUBSTRING(fm.value, :old_length + 1)) "
+            + "WHERE fm.key = 'path' AND (fm.value = :old_path OR fm.value LIKE :old_prefix ESCAPE '!')")
+    int updatePathPrefix(@Param("old_path") String oldPath, @Param("old_prefix") String oldPrefix,
+            @Param("old_length") int oldLength, @Param("new_path") String newPath);
+
     @Modifying
     @Transactional
     @Query("DELETE FROM FileMetadata fm WHERE fm.uuid = :uuid")
     int deleteByUuid(@Param("uuid") String uuid);
 
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileMetadata fm WHERE fm.uuid IN :uuids")
+    int deleteByUuidIn(@Param("uuids") List<String> uuids);
+
     @Query("SELECT fm FROM FileMetadata fm WHERE fm.uuid IN :uuids AND fm.key = :key")
     List<FileMetadata> findByUuidsAndKey(@Param("uuids") List<String> uuids, @Param("key") String key);
 
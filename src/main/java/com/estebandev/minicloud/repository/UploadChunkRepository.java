@@ -0,0 +1,20 @@
+package com.estebandev.minicloud.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.estebandev.minicloud.entity.UploadChunk;
+
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+    List<UploadChunk> findBySessionIdOrderByOffset(String sessionId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadChunk uc WHERE uc.session.id = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+}
@@ -0,0 +1,21 @@
+package com.estebandev.minicloud.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.estebandev.minicloud.entity.UploadSession;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime dateTime);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession us SET us.updatedAt = :now WHERE us.id = :id")
+    int touch(@Param("id") String id, @Param("now") LocalDateTime now);
+}
@@ -1,5 +1,6 @@
 package com.estebandev.minicloud.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.estebandev.minicloud.entity.User;
@@ -10,4 +11,5 @@ public interface UserMetadataRepository extends JpaRepository<UserMetadata, Long
     List<UserMetadata> findByKey(String key);
     List<UserMetadata> findByKeyContaining(String contain);
     List<UserMetadata> findByUserAndKeyContaining(User user, String contain);
+    List<UserMetadata> findByKeyStartingWithOrderById(String prefix, Pageable pageable);
 }
@@ -0,0 +1,22 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.estebandev.minicloud.service.utils.ArchiveFormat;
+
+public interface ArchiveService {
+    /**
+     * Streams an archive to {@code outputStream} while the tree is walked, so
+     * nothing is buffered on disk and memory does not grow with the tree.
+     * Internal files and the subdirectories the user can't read are left out.
+     *
+     * @param names  entries of the directory to put in the archive, or an empty
+     *               list to archive the path itself
+     * @param stored whether zip entries are stored instead of deflated
+     */
+    void writeArchive(String pathString, List<String> names, ArchiveFormat format, boolean stored,
+            OutputStream outputStream) throws FileNotFoundException, IOException;
+}
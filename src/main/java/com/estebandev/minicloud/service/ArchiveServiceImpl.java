@@ -0,0 +1,313 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import com.estebandev.minicloud.component.CompressionPool;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.utils.ArchiveFormat;
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+import com.estebandev.minicloud.service.utils.BufferPool;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+import com.estebandev.minicloud.service.utils.ParallelGzipOutputStream;
+import com.estebandev.minicloud.service.utils.TarOutputStream;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class ArchiveServiceImpl implements ArchiveService {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final FileManagerService fileManagerService;
+    private final FileSecurityService fileSecurityService;
+    private final UserService userService;
+    private final CompressionPool compressionPool;
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public void writeArchive(String pathString, List<String> names, ArchiveFormat format, boolean stored,
+            OutputStream outputStream) throws FileNotFoundException, IOException {
+        Path root = fileManagerService.getRoot().normalize();
+        List<Path> sources = resolveSources(root, root.resolve(pathString).normalize(), names);
+        DirectoryAccess access = directoryAccess(root);
+
+        ArchiveWriter writer = switch (format) {
+            case ZIP -> new ZipArchiveWriter(outputStream, stored);
+            case TAR -> new TarArchiveWriter(outputStream);
+            case TAR_GZ -> new TarArchiveWriter(
+                    new ParallelGzipOutputStream(outputStream, compressionPool.get(),
+                            compressionPool.get().getParallelism()));
+        };
+
+        for (Path source : sources) {
+            Path base = source.getParent();
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (FileManagerUtils.isInternalFile(dir) || !access.canRead(dir))
+                        return FileVisitResult.SKIP_SUBTREE;
+
+                    writer.putDirectory(entryName(base, dir), attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && !FileManagerUtils.isInternalFile(file))
+                        writer.putFile(entryName(base, file), file, attrs);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                    if (e instanceof NoSuchFileException)
+                        return FileVisitResult.CONTINUE;
+                    throw e;
+                }
+            });
+        }
+
+        writer.finish();
+    }
+
+    private List<Path> resolveSources(Path root, Path path, List<String> names)
+            throws FileNotFoundException, IOException {
+        if (!path.startsWith(root))
+            throw new IllegalArgumentException("The path is outside of the storage");
+        if (!Files.exists(path) || FileManagerUtils.isInternalFile(path))
+            throw new FileNotFoundException("File not exists");
+
+        if (names == null || names.isEmpty())
+            return List.of(path);
+
+        if (!Files.isDirectory(path))
+            throw new IOException("The file isn't a directory");
+
+        List<Path> sources = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (name.isBlank() || name.contains("/") || name.contains("\\") || name.equals(".")
+                    || name.equals(".."))
+                throw new IllegalArgumentException("Invalid name " + name);
+
+            Path source = path.resolve(name);
+            if (!Files.exists(source) || FileManagerUtils.isInternalFile(source))
+                throw new FileNotFoundException("File not exists: " + name);
+            sources.add(source);
+        }
+        return sources;
+    }
+
+    /**
+     * Subdirectories may belong to someone else and be shared on their own, so
+     * every directory of the walk is checked like a direct request to it would
+     * be.
+     */
+    private DirectoryAccess directoryAccess(Path root) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ADMIN_DASHBOARD"));
+        if (admin)
+            return dir -> true;
+
+        User user = userService.getUserAllDataFromAuth();
+        return dir -> {
+            try {
+                return fileSecurityService.isUserHasAccessTo(root.relativize(dir).toString(), user);
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Archive skips {}: {}", dir, e.getMessage());
+                return false;
+            }
+        };
+    }
+
+    private static String entryName(Path base, Path path) {
+        Path relative = base == null ? path : base.relativize(path);
+        return StreamSupport.stream(relative.spliterator(), false)
+                .map(Path::toString)
+                .collect(Collectors.joining("/"));
+    }
+
+    @FunctionalInterface
+    private interface DirectoryAccess {
+        boolean canRead(Path dir);
+    }
+
+    private interface ArchiveWriter {
+        void putDirectory(String name, BasicFileAttributes attrs) throws IOException;
+
+        void putFile(String name, Path file, BasicFileAttributes attrs) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static class ZipArchiveWriter implements ArchiveWriter {
+        private final ZipOutputStream zip;
+        private final boolean stored;
+
+        ZipArchiveWriter(OutputStream outputStream, boolean stored) {
+            this.zip = new ZipOutputStream(outputStream);
+            this.stored = stored;
+            if (stored)
+                zip.setMethod(ZipOutputStream.STORED);
+        }
+
+        @Override
+        public void putDirectory(String name, BasicFileAttributes attrs) throws IOException {
+            ZipEntry entry = new ZipEntry(name + "/");
+            entry.setLastModifiedTime(attrs.lastModifiedTime());
+            if (stored) {
+                entry.setSize(0);
+                entry.setCompressedSize(0);
+                entry.setCrc(0);
+            }
+            zip.putNextEntry(entry);
+            zip.closeEntry();
+        }
+
+        /**
+         * Stored entries need the size and the checksum in the local header,
+         * so the file is read once to get them and a second time to send it.
+         * Compressed files already keep both.
+         * If it changes in between the checksum won't match and the archive
+         * is aborted instead of being sent corrupt.
+         */
+        @Override
+        public void putFile(String name, Path file, BasicFileAttributes attrs) throws IOException {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setLastModifiedTime(attrs.lastModifiedTime());
+
+            try (BlockCompressedFile compressed = BlockCompressedFile.openIfCompressed(file)) {
+                if (compressed != null) {
+                    if (stored) {
+                        entry.setSize(compressed.size());
+                        entry.setCompressedSize(compressed.size());
+                        entry.setCrc(compressed.crc());
+                    }
+                    zip.putNextEntry(entry);
+                    compressed.newInputStream(0, compressed.size()).transferTo(zip);
+                    zip.closeEntry();
+                    return;
+                }
+            }
+
+            ByteBuffer buffer = BufferPool.shared().acquire();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (stored) {
+                    CRC32 crc = new CRC32();
+                    long size = 0;
+                    int read;
+                    while ((read = channel.read(buffer.clear())) != -1) {
+                        crc.update(buffer.array(), 0, read);
+                        size += read;
+                    }
+                    entry.setSize(size);
+                    entry.setCompressedSize(size);
+                    entry.setCrc(crc.getValue());
+                    channel.position(0);
+                }
+
+                zip.putNextEntry(entry);
+                int read;
+                while ((read = channel.read(buffer.clear())) != -1) {
+                    zip.write(buffer.array(), 0, read);
+                }
+                zip.closeEntry();
+            } finally {
+                BufferPool.shared().release(buffer);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            zip.finish();
+            zip.flush();
+        }
+    }
+
+    private static class TarArchiveWriter implements ArchiveWriter {
+        private final TarOutputStream tar;
+        private final ParallelGzipOutputStream gzip;
+
+        TarArchiveWriter(OutputStream outputStream) {
+            this.tar = new TarOutputStream(outputStream);
+            this.gzip = null;
+        }
+
+        TarArchiveWriter(ParallelGzipOutputStream gzip) {
+            this.tar = new TarOutputStream(gzip);
+            this.gzip = gzip;
+        }
+
+        @Override
+        public void putDirectory(String name, BasicFileAttributes attrs) throws IOException {
+            tar.putEntry(name, 0, attrs.lastModifiedTime().toMillis(), true);
+            tar.closeEntry();
+        }
+
+        /**
+         * The size goes in the header before the content, so exactly that many
+         * bytes are copied even if the file grows meanwhile.
+         */
+        @Override
+        public void putFile(String name, Path file, BasicFileAttributes attrs) throws IOException {
+            try (BlockCompressedFile compressed = BlockCompressedFile.openIfCompressed(file)) {
+                if (compressed != null) {
+                    tar.putEntry(name, compressed.size(), attrs.lastModifiedTime().toMillis(), false);
+                    compressed.newInputStream(0, compressed.size()).transferTo(tar);
+                    tar.closeEntry();
+                    return;
+                }
+            }
+
+            long size = attrs.size();
+            tar.putEntry(name, size, attrs.lastModifiedTime().toMillis(), false);
+
+            ByteBuffer buffer = BufferPool.shared().acquire();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long remaining = size;
+                while (remaining > 0) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                    int read = channel.read(buffer);
+                    if (read == -1)
+                        throw new IOException("The file changed while it was being archived");
+                    tar.write(buffer.array(), 0, read);
+                    remaining -= read;
+                }
+                tar.closeEntry();
+            } finally {
+                BufferPool.shared().release(buffer);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            tar.finish();
+            if (gzip != null)
+                gzip.finish();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.estebandev.minicloud.service;
+
+import java.util.List;
+
+import com.estebandev.minicloud.service.utils.BatchOperation;
+import com.estebandev.minicloud.service.utils.BatchResult;
+
+public interface BatchOperationService {
+    /**
+     * Runs the operations grouped by the directory they change, each group
+     * under a single lock and authorization of its directory. A failed
+     * operation doesn't stop the others.
+     *
+     * @return one result per operation, in the order of the request
+     */
+    List<BatchResult> execute(List<BatchOperation> operations);
+}
@@ -0,0 +1,215 @@
+package com.estebandev.minicloud.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+
+import com.estebandev.minicloud.config.FileActionSecurityManager;
+import com.estebandev.minicloud.service.utils.BatchOperation;
+import com.estebandev.minicloud.service.utils.BatchResult;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Groups the operations of a batch by directory. Each group takes the write
+ * lock of its directory once and remembers the authorization decisions, so
+ * the operations inside only pay for the file system calls.
+ *
+ * Groups that stay inside their directory run in parallel when their
+ * directories are in disjoint subtrees. A group locking a directory also
+ * read locks its ancestors, so groups of a directory and of one of its
+ * descendants run one after the other in the same task instead of timing out
+ * on each other's locks. Moves and copies also lock their destination, which
+ * can be anywhere, so their groups run one after the other once the parallel
+ * ones are done.
+ */
+@Service
+@RequiredArgsConstructor
+@Setter
+public class BatchOperationServiceImpl implements BatchOperationService {
+    public static final int MAX_OPERATIONS = 1000;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final FileManagerService fileManagerService;
+    private final DeleteJobService deleteJobService;
+    private final FileActionSecurityManager fileActionSecurityManager;
+    private ExecutorService executor;
+
+    @Value("${var.batch.parallelism:4}")
+    private int parallelism = 4;
+
+    @Override
+    public List<BatchResult> execute(List<BatchOperation> operations) {
+        if (operations == null || operations.isEmpty())
+            throw new IllegalArgumentException("The batch is empty");
+        if (operations.size() > MAX_OPERATIONS)
+            throw new IllegalArgumentException("A batch can't have more than " + MAX_OPERATIONS + " operations");
+
+        BatchResult[] results = new BatchResult[operations.size()];
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            try {
+                validate(operation);
+                groups.computeIfAbsent(operation.directory(), key -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchResult.failure(i, operation, e);
+            }
+        }
+
+        List<Map.Entry<String, List<Integer>>> sequential = new ArrayList<>();
+        List<List<Map.Entry<String, List<Integer>>>> subtrees = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            if (group.getValue().stream().anyMatch(i -> operations.get(i).isCrossDirectory()))
+                sequential.add(group);
+            else
+                addToSubtree(subtrees, group);
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Map.Entry<String, List<Integer>>> subtree : subtrees) {
+            futures.add(getExecutor().submit(() -> {
+                for (Map.Entry<String, List<Integer>> group : subtree) {
+                    runGroup(group.getKey(), group.getValue(), operations, results);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Batch group failed", e.getCause());
+            }
+        }
+
+        if (!Thread.currentThread().isInterrupted()) {
+            for (Map.Entry<String, List<Integer>> group : sequential) {
+                runGroup(group.getKey(), group.getValue(), operations, results);
+            }
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null)
+                results[i] = BatchResult.failure(i, operations.get(i), new IOException("The operation was not run"));
+        }
+        return Arrays.asList(results);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * Puts the group in the subtree of the groups of its ancestors and
+     * descendants, merging those subtrees when it links several of them.
+     */
+    private static void addToSubtree(List<List<Map.Entry<String, List<Integer>>>> subtrees,
+            Map.Entry<String, List<Integer>> group) {
+        Path directory = Path.of(group.getKey());
+        List<Map.Entry<String, List<Integer>>> merged = new ArrayList<>();
+        Iterator<List<Map.Entry<String, List<Integer>>>> iterator = subtrees.iterator();
+        while (iterator.hasNext()) {
+            List<Map.Entry<String, List<Integer>>> subtree = iterator.next();
+            if (subtree.stream().map(entry -> Path.of(entry.getKey()))
+                    .anyMatch(other -> other.startsWith(directory) || directory.startsWith(other))) {
+                merged.addAll(subtree);
+                iterator.remove();
+            }
+        }
+        merged.add(group);
+        subtrees.add(merged);
+    }
+
+    private void runGroup(String directory, List<Integer> indexes, List<BatchOperation> operations,
+            BatchResult[] results) {
+        try {
+            fileActionSecurityManager.rememberingDecisions(() -> fileManagerService.inDirectory(directory, () -> {
+                for (int i : indexes) {
+                    results[i] = apply(i, operations.get(i));
+                }
+                return null;
+            }));
+        } catch (Exception e) {
+            for (int i : indexes) {
+                if (results[i] == null)
+                    results[i] = BatchResult.failure(i, operations.get(i), e);
+            }
+        }
+    }
+
+    private BatchResult apply(int index, BatchOperation operation) {
+        try {
+            String path = switch (operation.getOp()) {
+                case MKDIR -> {
+                    fileManagerService.makeDirectory(operation.getPath(), operation.getName());
+                    yield Path.of(operation.getPath()).normalize()
+                            .resolve(FileManagerUtils.formatName(operation.getName())).toString();
+                }
+                case RENAME -> fileManagerService.rename(operation.getPath(), operation.getName()).toString();
+                case DELETE -> {
+                    if (operation.isRecursive())
+                        deleteJobService.start(operation.getPath());
+                    else
+                        fileManagerService.delete(operation.getPath());
+                    yield operation.getPath();
+                }
+                case MOVE -> fileManagerService.move(operation.getPath(), operation.getTarget()).toString();
+                case COPY -> fileManagerService.copy(operation.getPath(), operation.getTarget()).toString();
+            };
+            return BatchResult.success(index, operation, path);
+        } catch (IOException | RuntimeException e) {
+            return BatchResult.failure(index, operation, e);
+        }
+    }
+
+    private static void validate(BatchOperation operation) {
+        if (operation.getOp() == null)
+            throw new IllegalArgumentException("The operation is missing");
+        if (operation.getPath() == null || operation.getPath().isBlank())
+            throw new IllegalArgumentException("The path is missing");
+        if (operation.directory().isEmpty())
+            throw new IllegalArgumentException("The entries of the root directory can't be changed in a batch");
+
+        switch (operation.getOp()) {
+            case MKDIR, RENAME -> {
+                if (operation.getName() == null || !operation.getName().matches("^[a-zA-Z0-9_!#$%^&()@+.-]+$"))
+                    throw new IllegalArgumentException("Illegal symbols");
+            }
+            case MOVE, COPY -> {
+                if (operation.getTarget() == null || operation.getTarget().isBlank())
+                    throw new IllegalArgumentException("The target is missing");
+            }
+            case DELETE -> {
+            }
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null)
+            executor = new DelegatingSecurityContextExecutorService(
+                    Executors.newFixedThreadPool(Math.max(1, parallelism)));
+        return executor;
+    }
+}
@@ -0,0 +1,34 @@
+package com.estebandev.minicloud.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import com.estebandev.minicloud.service.utils.DedupStats;
+
+public interface BlobStoreService {
+    boolean isEnabled();
+
+    MessageDigest newDigest();
+
+    String hash(Path filePath) throws IOException;
+
+    /**
+     * Stores the content of {@code tmpPath} under its hash, unless an equal blob
+     * already exists, and hard links {@code filePath} to it. The temporary file
+     * is left in place for the caller to delete.
+     *
+     * @throws java.nio.file.FileAlreadyExistsException if {@code filePath}
+     *                                                  exists
+     */
+    void link(Path tmpPath, String hash, Path filePath) throws IOException;
+
+    /**
+     * Deletes the blobs no user path links to anymore.
+     *
+     * @return the number of deleted blobs
+     */
+    long collectGarbage() throws IOException;
+
+    DedupStats stats() throws IOException;
+}
@@ -0,0 +1,195 @@
+package com.estebandev.minicloud.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.estebandev.minicloud.service.utils.BufferPool;
+import com.estebandev.minicloud.service.utils.DedupStats;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+import lombok.Setter;
+
+/**
+ * Content addressable store for uploads, kept in
+ * {@code <root>/.minicloud/blobs/ab/cd/<sha-256>}.
+ *
+ * User paths are hard links to the blobs, so the link count of a blob is its
+ * reference count: renames and deletes of user files keep it right without any
+ * bookkeeping, and a blob whose only link is the store itself is garbage. A
+ * blob removed by the collector while a user path still links to it loses
+ * nothing, the content lives on in the user's inode.
+ *
+ * Files are never written in place once committed, so sharing an inode between
+ * users is safe.
+ */
+@Service
+@Setter
+public class BlobStoreServiceImpl implements BlobStoreService {
+    private static final String BLOBS_DIR = "blobs";
+    private static final String NLINK_ATTRIBUTE = "unix:nlink";
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final boolean hardLinksSupported = FileSystems.getDefault().supportedFileAttributeViews()
+            .contains("unix");
+    private final ReentrantReadWriteLock gcLock = new ReentrantReadWriteLock();
+
+    @Value("${var.filepath}")
+    private String pathString;
+
+    @Value("${var.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled && hardLinksSupported;
+    }
+
+    @Override
+    public MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String hash(Path filePath) throws IOException {
+        MessageDigest digest = newDigest();
+        BufferPool pool = BufferPool.shared();
+        ByteBuffer buffer = pool.acquire();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            pool.release(buffer);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Override
+    public void link(Path tmpPath, String hash, Path filePath) throws IOException {
+        Path blobPath = getBlobPath(hash);
+
+        gcLock.readLock().lock();
+        try {
+            Files.createDirectories(blobPath.getParent());
+            try {
+                Files.createLink(blobPath, tmpPath);
+            } catch (FileAlreadyExistsException e) {
+                if (Files.size(blobPath) != Files.size(tmpPath)) {
+                    logger.warn("Blob {} does not match the size of {}, storing it apart", hash, filePath);
+                    Files.createLink(filePath, tmpPath);
+                    return;
+                }
+            }
+
+            Files.createLink(filePath, blobPath);
+        } finally {
+            gcLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${var.dedup.gc-interval:PT1H}", initialDelayString = "${var.dedup.gc-interval:PT1H}")
+    public void collectGarbageScheduled() {
+        try {
+            collectGarbage();
+        } catch (IOException e) {
+            logger.warn("Blob garbage collection failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public long collectGarbage() throws IOException {
+        long deleted = 0;
+        for (Path blobPath : listBlobs()) {
+            gcLock.writeLock().lock();
+            try {
+                if (getLinkCount(blobPath) == 1) {
+                    Files.delete(blobPath);
+                    deleted++;
+                }
+            } catch (NoSuchFileException e) {
+                // Already collected
+            } finally {
+                gcLock.writeLock().unlock();
+            }
+        }
+
+        if (deleted > 0)
+            logger.info("Removed {} unreferenced blobs", deleted);
+        return deleted;
+    }
+
+    @Override
+    public DedupStats stats() throws IOException {
+        long blobs = 0;
+        long references = 0;
+        long physicalBytes = 0;
+        long logicalBytes = 0;
+
+        for (Path blobPath : listBlobs()) {
+            try {
+                long size = Files.size(blobPath);
+                int links = getLinkCount(blobPath) - 1;
+                blobs++;
+                references += links;
+                physicalBytes += size;
+                logicalBytes += size * links;
+            } catch (NoSuchFileException e) {
+                // Collected while walking
+            }
+        }
+
+        return DedupStats.builder()
+                .blobs(blobs)
+                .references(references)
+                .physicalBytes(physicalBytes)
+                .logicalBytes(logicalBytes)
+                .ratio(physicalBytes == 0 ? 1 : (double) logicalBytes / physicalBytes)
+                .build();
+    }
+
+    Path getBlobPath(String hash) {
+        return getBlobsDir().resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Path getBlobsDir() {
+        return Path.of(pathString).normalize().resolve(FileManagerUtils.INTERNAL_DIR).resolve(BLOBS_DIR);
+    }
+
+    private List<Path> listBlobs() throws IOException {
+        if (!hardLinksSupported || !Files.isDirectory(getBlobsDir()))
+            return List.of();
+
+        try (Stream<Path> paths = Files.find(getBlobsDir(), 3, (path, attributes) -> attributes.isRegularFile())) {
+            return paths.toList();
+        }
+    }
+
+    private int getLinkCount(Path path) throws IOException {
+        return (Integer) Files.getAttribute(path, NLINK_ATTRIBUTE);
+    }
+}
@@ -0,0 +1,17 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.DeleteJob;
+
+public interface DeleteJobService {
+    /**
+     * Moves the path out of the user tree right away and deletes it, with
+     * everything inside, in the background.
+     */
+    DeleteJob start(String pathString) throws FileNotFoundException, IOException;
+
+    DeleteJob find(String id) throws ServiceException;
+}
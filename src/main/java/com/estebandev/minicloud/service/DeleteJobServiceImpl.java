@@ -0,0 +1,241 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.DeleteJob;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Recursive deletes run as background jobs.
+ *
+ * The tree is first renamed into the trash under the path write lock, which is
+ * instant, so the user sees it gone and no lock is held while it is deleted. A
+ * small fork/join pool then deletes each directory in its own task, and the
+ * metadata rows of the deleted directories are removed in batches. Whatever is
+ * left in the trash after a crash is deleted again on the next start.
+ */
+@Service
+@RequiredArgsConstructor
+@Setter
+public class DeleteJobServiceImpl implements DeleteJobService {
+    private static final int METADATA_BATCH_SIZE = 500;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final FileManagerService fileManagerService;
+    private final FileMetadataService fileMetadataService;
+    private final UserService userService;
+    private final Map<String, DeleteJob> jobs = new ConcurrentHashMap<>();
+    private ForkJoinPool pool;
+
+    @Value("${var.delete.parallelism:4}")
+    private int parallelism = 4;
+
+    @Value("${var.delete.job-ttl:1h}")
+    private Duration jobTtl = Duration.ofHours(1);
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, true,#root)")
+    public DeleteJob start(String pathString) throws FileNotFoundException, IOException {
+        removeFinished();
+
+        Path trashPath = fileManagerService.moveToTrash(pathString);
+        DeleteJob job = new DeleteJob(trashPath.getFileName().toString(),
+                userService.getUserFromAuth().getEmail(), pathString);
+        jobs.put(job.getId(), job);
+
+        getPool().execute(() -> run(job, trashPath));
+        return job;
+    }
+
+    @Override
+    public DeleteJob find(String id) throws ServiceException {
+        removeFinished();
+
+        DeleteJob job = jobs.get(id);
+        if (job == null || !job.getOwner().equalsIgnoreCase(userService.getUserFromAuth().getEmail()))
+            throw new ServiceException("The delete job does not exist");
+        return job;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeTrash() {
+        getPool().execute(this::purgeTrash);
+    }
+
+    private void purgeTrash() {
+        Path trashDir = fileManagerService.getTrashDir();
+        if (!Files.isDirectory(trashDir))
+            return;
+
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(trashDir)) {
+            for (Path trashPath : leftovers) {
+                DeleteJob job = new DeleteJob(trashPath.getFileName().toString(), "", trashPath.toString());
+                run(job, trashPath);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read the trash: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    void run(DeleteJob job, Path trashPath) {
+        MetadataBatch batch = new MetadataBatch();
+        try {
+            job.setTotal(count(trashPath));
+            new DeleteTask(job, batch, trashPath).invoke();
+            batch.flush();
+            job.finish(null);
+        } catch (IOException | RuntimeException e) {
+            batch.flush();
+            logger.warn("Delete job {} failed: {}", job.getId(), e.getMessage());
+            job.finish(e.getMessage());
+        }
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null)
+            pool = new ForkJoinPool(Math.max(1, parallelism));
+        return pool;
+    }
+
+    private void removeFinished() {
+        Instant limit = Instant.now().minus(jobTtl);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(limit));
+    }
+
+    private static long count(Path path) throws IOException {
+        AtomicLong count = new AtomicLong();
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                count.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                count.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return count.get();
+    }
+
+    private class DeleteTask extends RecursiveAction {
+        private final DeleteJob job;
+        private final MetadataBatch batch;
+        private final Path dir;
+
+        DeleteTask(DeleteJob job, MetadataBatch batch, Path dir) {
+            this.job = job;
+            this.batch = batch;
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.deleteIfExists(dir);
+                    job.addDeleted(1);
+                    return;
+                }
+
+                try {
+                    batch.add(fileMetadataService.getUuidFromDir(dir).toString());
+                } catch (IOException | IllegalArgumentException e) {
+                    // Directory without metadata
+                }
+
+                List<DeleteTask> subtasks = new ArrayList<>();
+                long deleted = 0;
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    for (Path entry : entries) {
+                        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                            subtasks.add(new DeleteTask(job, batch, entry));
+                        } else {
+                            Files.delete(entry);
+                            deleted++;
+                        }
+                    }
+                }
+                job.addDeleted(deleted);
+
+                invokeAll(subtasks);
+
+                Files.delete(dir);
+                job.addDeleted(1);
+            } catch (NoSuchFileException e) {
+                // Deleted by someone else
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Collects directory uuids from every task and deletes their metadata rows
+     * with one statement per batch.
+     */
+    private class MetadataBatch {
+        private final List<String> uuids = new ArrayList<>();
+
+        void add(String uuid) {
+            List<String> full = null;
+            synchronized (this) {
+                uuids.add(uuid);
+                if (uuids.size() >= METADATA_BATCH_SIZE) {
+                    full = new ArrayList<>(uuids);
+                    uuids.clear();
+                }
+            }
+            if (full != null)
+                fileMetadataService.deleteAll(full);
+        }
+
+        void flush() {
+            List<String> rest;
+            synchronized (this) {
+                rest = new ArrayList<>(uuids);
+                uuids.clear();
+            }
+            if (!rest.isEmpty())
+                fileMetadataService.deleteAll(rest);
+        }
+    }
+}
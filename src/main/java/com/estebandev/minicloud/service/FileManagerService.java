@@ -2,6 +2,7 @@ package com.estebandev.minicloud.service;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Path;
 import java.util.List;
@@ -11,11 +12,33 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
 import com.estebandev.minicloud.service.utils.FileData;
+import com.estebandev.minicloud.service.utils.FileDataConsumer;
+import com.estebandev.minicloud.service.utils.IOSupplier;
+import com.estebandev.minicloud.service.utils.ListingPage;
+import com.estebandev.minicloud.service.utils.ListingSort;
+import com.estebandev.minicloud.service.utils.UploadResult;
 
 public interface FileManagerService {
     List<FileData> listFiles(String path)
             throws FileNotFoundException, FileIsNotDirectoryException, IOException;
 
+    /**
+     * Reads one page of the directory, holding at most {@code size} entries in
+     * memory whatever the directory size.
+     *
+     * @param cursor the {@link ListingPage#getNextCursor()} of the previous
+     *               page, or {@code null} for the first one
+     */
+    ListingPage listPage(String path, ListingSort sort, boolean descending, String cursor, int size)
+            throws FileNotFoundException, FileIsNotDirectoryException, IOException;
+
+    /**
+     * Hands every entry of the directory to {@code consumer}, in directory
+     * order, while the directory is being read.
+     */
+    void streamFiles(String path, FileDataConsumer consumer)
+            throws FileNotFoundException, FileIsNotDirectoryException, IOException;
+
     void makeDirectory(String dirPathString)
             throws FileAlreadyExistsException, IOException;
 
@@ -25,14 +48,65 @@ public interface FileManagerService {
     void uploadFile(String dirPathString, MultipartFile multipartFile)
             throws IOException, FileIsNotDirectoryException, FileNotFoundException;
 
+    Path uploadFile(String dirPathString, String fileName, InputStream inputStream)
+            throws IOException, FileIsNotDirectoryException, FileNotFoundException;
+
+    /**
+     * Stores every part concurrently, one result per part in the same order.
+     * A failed part doesn't fail the others.
+     */
+    List<UploadResult> uploadFiles(String dirPathString, List<MultipartFile> multipartFiles)
+            throws IOException, FileIsNotDirectoryException, FileNotFoundException;
+
+    /**
+     * Moves a fully written temporary file into place, picking a unique name
+     * if the target already exists.
+     */
+    Path commitUpload(Path tmpPath, Path filePath) throws IOException;
+
     Path rename(String pathString, String newName) throws IOException;
 
+    /**
+     * Moves a file or a whole tree into another directory with a single
+     * rename, then rewrites the path rows of the moved directories at once.
+     *
+     * @return the new relative path
+     */
+    Path move(String pathString, String targetDirString) throws FileNotFoundException, IOException;
+
+    /**
+     * Copies a file or a whole tree into another directory. The copied
+     * directories get new identities owned by the current user, and the
+     * subdirectories the user can't open are left out.
+     *
+     * @return the relative path of the copy
+     */
+    Path copy(String pathString, String targetDirString) throws FileNotFoundException, IOException;
+
+    /**
+     * Runs {@code work} holding the write lock of the directory, so several
+     * operations on its entries lock it once and their own locks are
+     * reentrant. The directory is authorized before it is locked, and the root
+     * can't be locked this way.
+     */
+    <T> T inDirectory(String pathString, IOSupplier<T> work) throws FileNotFoundException, IOException;
+
     Resource findFile(String pathString) throws FileNotFoundException, IOException;
 
     FileData findFileData(String pathString) throws FileNotFoundException, IOException;
 
     public void delete(String pathString) throws FileNotFoundException, IOException;
 
+    /**
+     * Moves a file or a whole tree into the trash, where it is no longer
+     * visible, so it can be deleted in the background.
+     *
+     * @return the path in the trash
+     */
+    Path moveToTrash(String pathString) throws FileNotFoundException, IOException;
+
+    Path getTrashDir();
+
     Path getRoot();
 
     long getLastModifiedDateInMinutes(String pathString) throws IOException;
@@ -43,9 +117,5 @@ public interface FileManagerService {
 
     String getMimeType(String filePathString) throws IOException;
 
-    void savePathMetadata(Path dirPath) throws IOException;
-
-    void uploadPathChild(Path parentPath) throws IOException;
-
     void setPathString(String path);
 }
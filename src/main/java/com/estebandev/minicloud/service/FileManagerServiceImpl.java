@@ -2,14 +2,44 @@ package com.estebandev.minicloud.service;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,15 +47,30 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.estebandev.minicloud.entity.FileMetadata;
+import com.estebandev.minicloud.component.DirectoryListingCache;
+import com.estebandev.minicloud.entity.Directory;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.repository.DirectoryShareRepository;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
 import com.estebandev.minicloud.service.utils.FileData;
+import com.estebandev.minicloud.service.utils.FileDataConsumer;
 import com.estebandev.minicloud.service.utils.FileManagerUtils;
-
+import com.estebandev.minicloud.service.utils.IOSupplier;
+import com.estebandev.minicloud.service.utils.ListingCursor;
+import com.estebandev.minicloud.service.utils.ListingPage;
+import com.estebandev.minicloud.service.utils.ListingSort;
+import com.estebandev.minicloud.service.utils.PathLockManager;
+import com.estebandev.minicloud.service.utils.PathLockManager.PathLock;
+import com.estebandev.minicloud.service.utils.UploadResult;
+
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
@@ -35,12 +80,32 @@ import lombok.Setter;
 public class FileManagerServiceImpl implements FileManagerService {
     Logger logger = LoggerFactory.getLogger(this.getClass());
     private final UserService userService;
-    private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+    private static final long LOCK_TIMEOUT_SECONDS = 5;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_UPLOAD_FILES = 1000;
+    private static final String TRASH_DIR = "trash";
+    private final PathLockManager pathLockManager = new PathLockManager();
     private final FileMetadataService fileMetadataService;
+    private final BlobStoreService blobStoreService;
+    private final StorageCompressionService storageCompressionService;
+    private final ThumbnailService thumbnailService;
+    private final DirectoryListingCache directoryListingCache;
+    private final DirectoryShareRepository directoryShareRepository;
+    private ForkJoinPool copyPool;
+    private ExecutorService uploadPool;
 
     @Value("${var.filepath}")
     private String pathString;
 
+    @Value("${var.copy.parallelism:4}")
+    private int copyParallelism = 4;
+
+    @Value("${var.upload.parallelism:4}")
+    private int uploadParallelism = 4;
+
+    @Value("${spring.servlet.multipart.max-file-size:10GB}")
+    private DataSize maxUploadSize = DataSize.ofGigabytes(10);
+
     public void verifyRootDirectory() {
         Path root = getRoot();
         if (Files.exists(root) && Files.isDirectory(root) && Files.isWritable(root)) {
@@ -63,13 +128,89 @@ public class FileManagerServiceImpl implements FileManagerService {
     @PreAuthorize("@authF.decide(#pathString, false,#root)")
     public List<FileData> listFiles(String pathString)
             throws FileNotFoundException, FileIsNotDirectoryException, IOException {
-        fileLock.readLock().lock();
-        try {
+        Path root = getRoot();
+        Path dir = root.resolve(pathString);
+
+        try (PathLock lock = readLock(dir)) {
+            List<FileData> listing = directoryListingCache.get(dir);
+            if (listing != null)
+                return listing;
 
             verifyRootDirectory();
 
-            Path root = getRoot();
-            Path dir = root.resolve(pathString);
+            if (!Files.exists(dir))
+                throw new FileNotFoundException();
+
+            if (!Files.isDirectory(dir))
+                throw new FileIsNotDirectoryException("The file is not directory");
+
+            return readListing(dir);
+        }
+    }
+
+    /**
+     * Keeps the {@code size + 1} first entries after the cursor in a bounded
+     * heap while the directory is streamed, the extra one tells whether there
+     * is a next page. Directories small enough to fit in a page go through the
+     * listing cache.
+     */
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public ListingPage listPage(String pathString, ListingSort sort, boolean descending, String cursor, int size)
+            throws FileNotFoundException, FileIsNotDirectoryException, IOException {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("The page size must be between 1 and " + MAX_PAGE_SIZE);
+
+        Comparator<FileData> order = sort.comparator(descending);
+        FileData after = cursor == null || cursor.isBlank() ? null
+                : ListingCursor.decode(cursor, sort, descending).toFileData();
+        PriorityQueue<FileData> heap = new PriorityQueue<>(size + 1, order.reversed());
+        FileDataConsumer collector = fileData -> {
+            if (after != null && order.compare(fileData, after) <= 0)
+                return;
+
+            heap.offer(fileData);
+            if (heap.size() > size + 1)
+                heap.poll();
+        };
+
+        Path dir = getRoot().resolve(pathString);
+        List<FileData> cached = directoryListingCache.get(dir);
+        long stamp = directoryListingCache.stamp();
+        if (cached != null) {
+            for (FileData fileData : cached) {
+                collector.accept(fileData);
+            }
+        } else {
+            streamFiles(pathString, collector);
+        }
+
+        List<FileData> entries = new ArrayList<>(heap);
+        entries.sort(order);
+
+        String nextCursor = null;
+        if (entries.size() > size) {
+            entries = entries.subList(0, size);
+            nextCursor = ListingCursor.after(entries.get(size - 1), sort, descending).encode();
+        } else if (cached == null && after == null) {
+            // The whole directory fits in one page, keep it for the next requests
+            directoryListingCache.put(dir, entries, stamp);
+        }
+
+        return ListingPage.builder()
+                .entries(List.copyOf(entries))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public void streamFiles(String pathString, FileDataConsumer consumer)
+            throws FileNotFoundException, FileIsNotDirectoryException, IOException {
+        Path dir = getRoot().resolve(pathString);
+
+        try (PathLock lock = readLock(dir)) {
+            verifyRootDirectory();
 
             if (!Files.exists(dir))
                 throw new FileNotFoundException();
@@ -77,18 +218,7 @@ public class FileManagerServiceImpl implements FileManagerService {
             if (!Files.isDirectory(dir))
                 throw new FileIsNotDirectoryException("The file is not directory");
 
-            return Files.list(dir)
-                    .filter(filePath -> !filePath.getFileName().toString().startsWith(".dir"))
-                    .map(filePath -> {
-                        return FileData.builder()
-                                .fileName(filePath.getFileName().toString())
-                                .path(getRoot().relativize(filePath))
-                                .directory(Files.isDirectory(filePath))
-                                .build();
-                    })
-                    .toList();
-        } finally {
-            fileLock.readLock().unlock();
+            forEachEntry(dir, consumer);
         }
     }
 
@@ -96,19 +226,17 @@ public class FileManagerServiceImpl implements FileManagerService {
     @PreAuthorize("@authF.decide(#pathString, false,#root)")
     private void makeDirectory(Path pathString)
             throws FileAlreadyExistsException, IOException {
-        fileLock.writeLock().lock();
-        try {
+        try (PathLock lock = writeLock("Make directory", pathString)) {
             verifyRootDirectory();
 
             if (Files.exists(pathString))
                 throw new FileAlreadyExistsException("The already exist");
 
             Files.createDirectory(pathString);
+            directoryListingCache.invalidate(pathString);
 
-            fileMetadataService.make(pathString, userService.getUserFromAuth());
-            savePathMetadata(pathString);
-        } finally {
-            fileLock.writeLock().unlock();
+            fileMetadataService.make(pathString, getRoot().relativize(pathString).toString(),
+                    userService.getUserFromAuth());
         }
     }
 
@@ -130,35 +258,176 @@ public class FileManagerServiceImpl implements FileManagerService {
     @PreAuthorize("@authF.decide(#pathString, false,#root)")
     public void uploadFile(String pathString, MultipartFile multipartFile)
             throws IOException, FileIsNotDirectoryException, FileNotFoundException {
+        if (blobStoreService.isEnabled() || storageCompressionService.isEnabled()) {
+            try (InputStream inputStream = multipartFile.getInputStream()) {
+                uploadFile(pathString, multipartFile.getOriginalFilename(), inputStream);
+            }
+            return;
+        }
+
+        verifyRootDirectory();
+
+        Path dirPath = getRoot().resolve(pathString).normalize();
+
+        if (!Files.exists(dirPath))
+            throw new FileNotFoundException("File does not exist");
+
+        if (!Files.isDirectory(dirPath))
+            throw new FileIsNotDirectoryException(dirPath + " is not directory");
+
+        Path filePath = FileManagerUtils.resolveUploadName(dirPath, multipartFile.getOriginalFilename());
+        String fileName = filePath.getFileName().toString();
+
+        try (PathLock lock = writeLock("Upload", filePath)) {
+            if (Files.exists(filePath)) {
+                filePath = dirPath.resolve(FileManagerUtils.uniqueName(fileName));
+            }
+
+            multipartFile.transferTo(filePath);
+            directoryListingCache.invalidate(filePath);
+        }
+    }
+
+    /**
+     * Streams the body straight into a temporary file inside the destination
+     * directory and then moves it into place, so the content is written to disk
+     * only once. With deduplication enabled the content is hashed on the way
+     * and stored once in the blob store.
+     */
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public Path uploadFile(String pathString, String fileName, InputStream inputStream)
+            throws IOException, FileIsNotDirectoryException, FileNotFoundException {
+        verifyRootDirectory();
+
+        Path dirPath = getRoot().resolve(pathString).normalize();
+
+        if (!Files.exists(dirPath))
+            throw new FileNotFoundException("File does not exist");
+
+        if (!Files.isDirectory(dirPath))
+            throw new FileIsNotDirectoryException(dirPath + " is not directory");
+
+        Path filePath = FileManagerUtils.resolveUploadName(dirPath, fileName);
+        Path tmpPath = dirPath.resolve(FileManagerUtils.UPLOAD_TMP_PREFIX + UUID.randomUUID() + ".part");
+
+        MessageDigest digest = blobStoreService.isEnabled() ? blobStoreService.newDigest() : null;
+        if (digest != null)
+            inputStream = new DigestInputStream(inputStream, digest);
+
         try {
-            if (!fileLock.writeLock().tryLock(5, TimeUnit.SECONDS)) {
-                throw new IOException("Upload is unable now");
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                FileManagerUtils.transfer(inputStream, channel, 0, maxUploadSize.toBytes());
             }
 
+            String hash = digest == null ? null : HexFormat.of().formatHex(digest.digest());
+            return getRoot().relativize(commitUpload(tmpPath, filePath, hash));
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    /**
+     * Each part is written to its own temporary file by the upload pool and
+     * committed under the lock of its final name only, so the parts don't wait
+     * on each other. The servlet container already spooled the parts to disk,
+     * so the transfer is a rename when both are on the same file system.
+     */
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public List<UploadResult> uploadFiles(String pathString, List<MultipartFile> multipartFiles)
+            throws IOException, FileIsNotDirectoryException, FileNotFoundException {
+        if (multipartFiles == null || multipartFiles.isEmpty())
+            throw new IllegalArgumentException("No files were sent");
+        if (multipartFiles.size() > MAX_UPLOAD_FILES)
+            throw new IllegalArgumentException("Can't upload more than " + MAX_UPLOAD_FILES + " files at once");
+
+        verifyRootDirectory();
+
+        Path dirPath = getRoot().resolve(pathString).normalize();
+
+        if (!Files.exists(dirPath))
+            throw new FileNotFoundException("File does not exist");
+
+        if (!Files.isDirectory(dirPath))
+            throw new FileIsNotDirectoryException(dirPath + " is not directory");
+
+        List<Future<Path>> futures = new ArrayList<>(multipartFiles.size());
+        for (MultipartFile multipartFile : multipartFiles) {
+            futures.add(getUploadPool().submit(() -> uploadPart(dirPath, multipartFile)));
+        }
+
+        List<UploadResult> results = new ArrayList<>(multipartFiles.size());
+        for (int i = 0; i < futures.size(); i++) {
+            MultipartFile multipartFile = multipartFiles.get(i);
             try {
-                verifyRootDirectory();
+                Path filePath = futures.get(i).get();
+                results.add(UploadResult.success(multipartFile.getOriginalFilename(),
+                        getRoot().relativize(filePath).toString(), multipartFile.getSize()));
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while uploading");
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception exception ? exception : e;
+                logger.debug("Upload of {} failed: {}", multipartFile.getOriginalFilename(), cause.getMessage());
+                results.add(UploadResult.failure(multipartFile.getOriginalFilename(), cause));
+            }
+        }
+        return results;
+    }
+
+    private Path uploadPart(Path dirPath, MultipartFile multipartFile) throws IOException {
+        Path filePath = FileManagerUtils.resolveUploadName(dirPath, multipartFile.getOriginalFilename());
+        Path tmpPath = dirPath.resolve(FileManagerUtils.UPLOAD_TMP_PREFIX + UUID.randomUUID() + ".part");
+        try {
+            multipartFile.transferTo(tmpPath);
+            return commitUpload(tmpPath, filePath);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
 
-                Path dirPath = getRoot().resolve(pathString);
+    @Override
+    public Path commitUpload(Path tmpPath, Path filePath) throws IOException {
+        return commitUpload(tmpPath, filePath, blobStoreService.isEnabled() ? blobStoreService.hash(tmpPath) : null);
+    }
 
-                if (!Files.exists(dirPath))
-                    throw new FileNotFoundException("File does not exist");
+    /**
+     * The hash is the one of the original content, so with compression enabled
+     * equal uploads still share the same compressed blob.
+     */
+    private Path commitUpload(Path tmpPath, Path filePath, String hash) throws IOException {
+        Path compressedPath = storageCompressionService.compress(tmpPath, filePath);
+        if (compressedPath == null)
+            return commitFile(tmpPath, filePath, hash);
 
-                if (!Files.isDirectory(dirPath))
-                    throw new FileIsNotDirectoryException(dirPath + " is not directory");
+        try {
+            return commitFile(compressedPath, filePath, hash);
+        } finally {
+            Files.deleteIfExists(compressedPath);
+        }
+    }
 
-                String fileName = FileManagerUtils.formatName(multipartFile.getOriginalFilename());
-                Path filePath = dirPath.resolve(fileName);
-                if (Files.exists(filePath)) {
-                    filePath = dirPath.resolve(FileManagerUtils.uniqueName(fileName));
-                }
+    private Path commitFile(Path tmpPath, Path filePath, String hash) throws IOException {
+        try (PathLock lock = writeLock("Upload", filePath)) {
+            String fileName = filePath.getFileName().toString();
+            for (int attempt = 0; Files.exists(filePath); attempt++) {
+                if (attempt == 100)
+                    throw new FileAlreadyExistsException(fileName);
+                filePath = filePath.resolveSibling(FileManagerUtils.uniqueName(fileName));
+            }
 
-                multipartFile.transferTo(filePath);
-            } finally {
-                fileLock.writeLock().unlock();
+            if (hash == null) {
+                Files.move(tmpPath, filePath, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                blobStoreService.link(tmpPath, hash, filePath);
+                Files.delete(tmpPath);
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupt to try get lock", e);
+            directoryListingCache.invalidate(filePath);
+            thumbnailService.schedule(filePath);
+            return filePath;
         }
     }
 
@@ -166,51 +435,149 @@ public class FileManagerServiceImpl implements FileManagerService {
     @Transactional
     @PreAuthorize("@authF.decide(#pathString, true,#root)")
     public Path rename(String pathString, String newName) throws IOException {
-        try {
-            if (!fileLock.writeLock().tryLock(5, TimeUnit.SECONDS)) {
-                throw new IOException("Rename is unable now");
+        Path filePath = getRoot().resolve(pathString);
+        Path newFilePath = filePath.getParent().resolve(FileManagerUtils.formatName(newName));
+
+        try (PathLock lock = writeLock("Rename", filePath, newFilePath)) {
+            boolean directory = Files.isDirectory(filePath);
+            Files.move(filePath, newFilePath);
+            directoryListingCache.invalidate(filePath);
+            directoryListingCache.invalidate(newFilePath);
+            fileMetadataService.invalidate(filePath);
+
+            if (directory)
+                fileMetadataService.movePaths(getRoot().relativize(filePath).toString(),
+                        getRoot().relativize(newFilePath).toString());
+            return getRoot().relativize(newFilePath);
+        }
+    }
+
+    @Override
+    @Transactional
+    @PreAuthorize("@authF.decide(#pathString, true,#root) and @authF.decide(#targetDirString, false,#root)")
+    public Path move(String pathString, String targetDirString) throws FileNotFoundException, IOException {
+        Path filePath = getRoot().resolve(pathString).normalize();
+        Path targetDir = getRoot().resolve(targetDirString).normalize();
+        verifyTransfer(filePath, targetDir);
+        if (getRoot().relativize(filePath).getNameCount() < 2)
+            throw new IOException("This directory can't be moved");
+
+        Path newFilePath = targetDir.resolve(filePath.getFileName());
+        try (PathLock lock = writeLock("Move", filePath, newFilePath)) {
+            if (!Files.exists(filePath))
+                throw new FileNotFoundException("File not exists");
+            if (Files.exists(newFilePath))
+                throw new FileAlreadyExistsException(newFilePath.getFileName().toString());
+
+            boolean directory = Files.isDirectory(filePath);
+            Files.move(filePath, newFilePath, StandardCopyOption.ATOMIC_MOVE);
+            directoryListingCache.invalidate(filePath);
+            directoryListingCache.invalidate(newFilePath);
+            fileMetadataService.invalidate(filePath);
+
+            if (directory) {
+                fileMetadataService.movePaths(getRoot().relativize(filePath).toString(),
+                        getRoot().relativize(newFilePath).toString());
+                fileMetadataService.updateParent(newFilePath);
             }
+            return getRoot().relativize(newFilePath);
+        }
+    }
 
-            try {
-                Path filePath = getRoot().resolve(pathString);
-                Path newFilePath = filePath.getParent().resolve(FileManagerUtils.formatName(newName));
+    /**
+     * The tree is copied by a fork/join pool, one task per directory and per
+     * file, into a hidden temporary directory that is renamed into place when
+     * it is complete. The rows of the new directories are then saved in
+     * batches.
+     */
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root) and @authF.decide(#targetDirString, false,#root)")
+    public Path copy(String pathString, String targetDirString) throws FileNotFoundException, IOException {
+        Path filePath = getRoot().resolve(pathString).normalize();
+        Path targetDir = getRoot().resolve(targetDirString).normalize();
+        verifyTransfer(filePath, targetDir);
 
-                Files.move(filePath, newFilePath);
+        User user = userService.getUserAllDataFromAuth();
+        Predicate<Path> readable = readableDirectories(user);
+        Path tmpPath = targetDir.resolve(FileManagerUtils.UPLOAD_TMP_PREFIX + UUID.randomUUID() + ".part");
+        Queue<CopiedDirectory> copied = new ConcurrentLinkedQueue<>();
 
-                savePathMetadata(newFilePath);
-                return getRoot().relativize(newFilePath);
-            } finally {
-                fileLock.writeLock().unlock();
+        try {
+            if (Files.isDirectory(filePath))
+                getCopyPool().invoke(new CopyTask(filePath, tmpPath, Path.of(""), copied, readable));
+            else
+                Files.copy(filePath, tmpPath, StandardCopyOption.COPY_ATTRIBUTES);
+
+            Path copyPath = commitUpload(tmpPath, targetDir.resolve(filePath.getFileName()), null);
+
+            Map<Path, String> uuids = new HashMap<>();
+            for (CopiedDirectory directory : copied) {
+                uuids.put(directory.relative(), directory.uuid());
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupt to try get lock", e);
+            String targetUuid = getUuidOrNull(targetDir);
+
+            List<Directory> rows = new ArrayList<>(copied.size());
+            for (CopiedDirectory directory : copied) {
+                Path parent = directory.relative().getParent();
+                rows.add(Directory.builder()
+                        .uuid(directory.uuid())
+                        .owner(user)
+                        .parentUuid(directory.relative().toString().isEmpty() ? targetUuid
+                                : uuids.get(parent == null ? Path.of("") : parent))
+                        .path(getRoot().relativize(copyPath.resolve(directory.relative())).toString())
+                        .build());
+            }
+            fileMetadataService.saveAll(rows);
+            return getRoot().relativize(copyPath);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (Files.exists(tmpPath, LinkOption.NOFOLLOW_LINKS))
+                deleteTree(tmpPath);
         }
     }
 
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public <T> T inDirectory(String pathString, IOSupplier<T> work) throws FileNotFoundException, IOException {
+        Path dirPath = getRoot().resolve(pathString).normalize();
+        if (!dirPath.startsWith(getRoot()) || dirPath.equals(getRoot()))
+            throw new IllegalArgumentException("The root directory can't be locked");
+
+        try (PathLock lock = writeLock("Batch", dirPath)) {
+            if (!Files.isDirectory(dirPath))
+                throw new FileNotFoundException("Directory not exists");
+            return work.get();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (copyPool != null)
+            copyPool.shutdown();
+        if (uploadPool != null)
+            uploadPool.shutdown();
+    }
+
     @Override
     @PreAuthorize("@authF.decide(#pathString, false,#root)")
     public Resource findFile(String pathString) throws FileNotFoundException, IOException {
-        fileLock.readLock().lock();
-        try {
-            verifyRootDirectory();
+        Path filePath = getRoot().resolve(pathString);
 
-            Path filePath = getRoot().resolve(pathString);
+        try (PathLock lock = readLock(filePath)) {
+            verifyRootDirectory();
 
             if (!Files.exists(filePath))
                 throw new FileNotFoundException("File not exists");
 
             if (Files.isDirectory(filePath))
                 throw new IOException("The file is a directory");
-            if (filePath.getFileName().toString().contains(".dirdata"))
+            if (FileManagerUtils.isInternalFile(filePath))
                 throw new IOException("The file isn't accesible");
 
             FileManagerUtils.validateFile(filePath);
 
             return new FileSystemResource(filePath);
-
-        } finally {
-            fileLock.readLock().unlock();
         }
     }
 
@@ -225,45 +592,60 @@ public class FileManagerServiceImpl implements FileManagerService {
                 || path.equals(getRoot().normalize()))
             editable = false;
 
-        return FileData.builder()
-                .fileName(fileName)
-                .path(path)
-                .mediaType(FileManagerUtils.getMimeType(path))
-                .size(FileManagerUtils.convertBytesToMegabytes(Files.size(path)))
-                .directory(Files.isDirectory(path))
-                .editable(editable)
-                .build();
+        FileData fileData = toFileData(path, Files.readAttributes(path, BasicFileAttributes.class));
+        fileData.setPath(path);
+        fileData.setEditable(editable);
+        return fileData;
     }
 
     @Override
     @PreAuthorize("@authF.decide(#pathString, true,#root)")
     public void delete(String pathString) throws FileNotFoundException, IOException {
-        try {
-            if (!fileLock.writeLock().tryLock(5, TimeUnit.SECONDS)) {
-                throw new IOException("Renable is unable now");
-            }
-            try {
-                Path filePath = getRoot().resolve(pathString);
-
-                if (!Files.exists(filePath))
-                    throw new FileNotFoundException();
-                if (!Files.isWritable(filePath))
-                    throw new IOException("You do not have perms");
-                if (Files.isDirectory(filePath) && !listFiles(pathString).isEmpty())
-                    throw new IOException("The directory is not empty");
-                if (Files.isDirectory(filePath))
-                    fileMetadataService.deleteAll(filePath);
+        Path filePath = getRoot().resolve(pathString);
 
+        try (PathLock lock = writeLock("Delete", filePath)) {
+            if (!Files.exists(filePath))
+                throw new FileNotFoundException();
+            if (!Files.isWritable(filePath))
+                throw new IOException("You do not have perms");
+            if (Files.isDirectory(filePath))
+                deleteEmptyDirectory(filePath);
+            else
                 Files.delete(filePath);
-            } finally {
-                fileLock.writeLock().unlock();
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupt to try get lock", e);
+
+            directoryListingCache.invalidate(filePath);
+            fileMetadataService.invalidate(filePath);
+        }
+    }
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, true,#root)")
+    public Path moveToTrash(String pathString) throws FileNotFoundException, IOException {
+        Path filePath = getRoot().resolve(pathString).normalize();
+        if (!filePath.startsWith(getRoot()) || getRoot().relativize(filePath).getNameCount() < 2)
+            throw new IOException("This directory can't be deleted");
+
+        Path trashPath = getTrashDir().resolve(UUID.randomUUID().toString());
+
+        try (PathLock lock = writeLock("Delete", filePath)) {
+            if (!Files.exists(filePath))
+                throw new FileNotFoundException();
+            if (!Files.isWritable(filePath))
+                throw new IOException("You do not have perms");
+
+            Files.createDirectories(trashPath.getParent());
+            Files.move(filePath, trashPath, StandardCopyOption.ATOMIC_MOVE);
+            directoryListingCache.invalidate(filePath);
+            fileMetadataService.invalidate(filePath);
+            return trashPath;
         }
     }
 
+    @Override
+    public Path getTrashDir() {
+        return getRoot().resolve(FileManagerUtils.INTERNAL_DIR).resolve(TRASH_DIR);
+    }
+
     @Override
     public Path getRoot() {
         return Path.of(pathString).normalize();
@@ -291,39 +673,249 @@ public class FileManagerServiceImpl implements FileManagerService {
         return FileManagerUtils.getMimeType(getRoot().resolve(filePathString));
     }
 
-    @Override
-    public void savePathMetadata(Path dirPath) throws IOException {
-        if (!Files.isDirectory(dirPath))
-            return;
+    private void verifyTransfer(Path filePath, Path targetDir) throws FileNotFoundException, IOException {
+        verifyRootDirectory();
+
+        if (!filePath.startsWith(getRoot()) || !targetDir.startsWith(getRoot()))
+            throw new IllegalArgumentException("The path is outside of the storage");
+        if (!Files.exists(filePath) || FileManagerUtils.isInternalFile(filePath))
+            throw new FileNotFoundException("File not exists");
+        if (!Files.isDirectory(targetDir) || FileManagerUtils.isInternalFile(targetDir))
+            throw new FileIsNotDirectoryException(targetDir + " is not directory");
+        if (targetDir.startsWith(filePath))
+            throw new IllegalArgumentException("A directory can't be put inside itself");
+    }
+
+    /**
+     * Subdirectories may belong to someone else and be shared on their own, so
+     * each one is checked like a direct request to it would be. The check runs
+     * on the pool threads, which have no security context.
+     */
+    private Predicate<Path> readableDirectories(User user) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ADMIN_DASHBOARD")))
+            return dir -> true;
+
+        return dir -> {
+            if (getRoot().relativize(dir).toString().toLowerCase().startsWith(user.getEmail().toLowerCase()))
+                return true;
+
+            try {
+                if (fileMetadataService.findOwnerEmail(dir).equals(user.getEmail()))
+                    return true;
+
+                UUID uuid = fileMetadataService.getUuidFromDir(dir);
+                return directoryShareRepository.existsByDirectoryUuidAndUserEmail(uuid.toString(),
+                        user.getEmail());
+            } catch (IOException | NoSuchElementException | IllegalArgumentException e) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Only the identity files may be left; an upload part means a session is
+     * still writing here. The directory is moved out of the tree before its
+     * rows are deleted and put back if that fails, so a directory is never
+     * left without its metadata.
+     */
+    private void deleteEmptyDirectory(Path dirPath) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+            for (Path child : stream) {
+                String name = child.getFileName().toString();
+                if (name.startsWith(FileManagerUtils.UPLOAD_TMP_PREFIX))
+                    throw new IOException("The directory has uploads in progress");
+                if (!name.startsWith(FileManagerUtils.METADATA_PREFIX) || Files.isDirectory(child))
+                    throw new IOException("The directory is not empty");
+            }
+        }
+
+        String uuid = getUuidOrNull(dirPath);
+        Path trashPath = getTrashDir().resolve(UUID.randomUUID().toString());
+        Files.createDirectories(trashPath.getParent());
+        Files.move(dirPath, trashPath, StandardCopyOption.ATOMIC_MOVE);
 
-        FileMetadata metadata;
         try {
-            metadata = fileMetadataService.findMetadataFromKey(dirPath, "path");
-            metadata.setValue(getRoot().relativize(dirPath).toString());
-            uploadPathChild(dirPath);
-        } catch (NoSuchElementException e) {
-            metadata = FileMetadata.builder()
-                    .key("path")
-                    .value(getRoot().relativize(dirPath).toString())
-                    .build();
+            if (uuid != null)
+                fileMetadataService.deleteAll(List.of(uuid));
+        } catch (RuntimeException e) {
+            Files.move(trashPath, dirPath, StandardCopyOption.ATOMIC_MOVE);
+            throw e;
         }
+        deleteTree(trashPath);
+    }
 
-        fileMetadataService.save(dirPath, metadata);
+    private String getUuidOrNull(Path dirPath) {
+        try {
+            return fileMetadataService.getUuidFromDir(dirPath).toString();
+        } catch (IOException e) {
+            return null;
+        }
     }
 
-    @Override
-    public void uploadPathChild(Path parentPath) throws IOException {
-        if (!Files.isDirectory(parentPath))
-            return;
+    private synchronized ExecutorService getUploadPool() {
+        if (uploadPool == null)
+            uploadPool = Executors.newFixedThreadPool(Math.max(1, uploadParallelism));
+        return uploadPool;
+    }
+
+    private synchronized ForkJoinPool getCopyPool() {
+        if (copyPool == null)
+            copyPool = new ForkJoinPool(Math.max(1, copyParallelism));
+        return copyPool;
+    }
 
-        Files.list(parentPath)
-                .filter(p -> Files.isDirectory(p))
-                .forEach(t -> {
-                    try {
-                        savePathMetadata(t);
-                    } catch (IOException e) {
-                        // Do nothing
+    private static void deleteTree(Path path) throws IOException {
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null)
+                    throw e;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private record CopiedDirectory(Path relative, String uuid) {
+    }
+
+    private class CopyTask extends RecursiveAction {
+        private final Path source;
+        private final Path target;
+        private final Path relative;
+        private final Queue<CopiedDirectory> copied;
+        private final Predicate<Path> readable;
+
+        CopyTask(Path source, Path target, Path relative, Queue<CopiedDirectory> copied,
+                Predicate<Path> readable) {
+            this.source = source;
+            this.target = target;
+            this.relative = relative;
+            this.copied = copied;
+            this.readable = readable;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            try {
+                Files.createDirectory(target);
+                String uuid = UUID.randomUUID().toString();
+                fileMetadataService.generateMetadataFile(target, uuid);
+                copied.add(new CopiedDirectory(relative, uuid));
+
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(source,
+                        entry -> !FileManagerUtils.isInternalFile(entry))) {
+                    for (Path entry : entries) {
+                        BasicFileAttributes attributes;
+                        try {
+                            attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                                    LinkOption.NOFOLLOW_LINKS);
+                        } catch (NoSuchFileException e) {
+                            continue;
+                        }
+
+                        Path entryTarget = target.resolve(entry.getFileName().toString());
+                        if (attributes.isDirectory() && readable.test(entry))
+                            tasks.add(new CopyTask(entry, entryTarget, relative.resolve(entry.getFileName().toString()),
+                                    copied, readable));
+                        else if (attributes.isRegularFile())
+                            tasks.add(ForkJoinTask.adapt(() -> copyFile(entry, entryTarget)));
                     }
-                });
+                } catch (NoSuchFileException e) {
+                    // Deleted while the tree was being copied
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(tasks);
+        }
+
+        private static void copyFile(Path source, Path target) {
+            try {
+                Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+            } catch (NoSuchFileException e) {
+                // Deleted while the tree was being copied
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private List<FileData> list(Path dir) throws IOException {
+        List<FileData> listing = directoryListingCache.get(dir);
+        return listing != null ? listing : readListing(dir);
+    }
+
+    private List<FileData> readListing(Path dir) throws IOException {
+        List<FileData> listing = new ArrayList<>();
+        long stamp = directoryListingCache.stamp();
+        forEachEntry(dir, listing::add);
+
+        directoryListingCache.put(dir, listing, stamp);
+        return listing;
+    }
+
+    private void forEachEntry(Path dir, FileDataConsumer consumer) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir,
+                filePath -> !FileManagerUtils.isInternalFile(filePath))) {
+            for (Path filePath : files) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                consumer.accept(toFileData(filePath, attributes));
+            }
+        }
+    }
+
+    /**
+     * Everything the views need from a single {@code readAttributes} call, so a
+     * listing costs one stat per entry.
+     */
+    private FileData toFileData(Path filePath, BasicFileAttributes attributes) throws IOException {
+        return FileData.builder()
+                .fileName(filePath.getFileName().toString())
+                .path(getRoot().relativize(filePath))
+                .mediaType(attributes.isDirectory() ? "directory" : FileManagerUtils.getMimeType(filePath))
+                .size(FileManagerUtils.convertBytesToMegabytes(attributes.size()))
+                .sizeBytes(attributes.size())
+                .lastModified(attributes.lastModifiedTime().toInstant())
+                .created(attributes.creationTime().toInstant())
+                .fileKey(attributes.fileKey() == null ? null : attributes.fileKey().toString())
+                .directory(attributes.isDirectory())
+                .thumbnail(attributes.isRegularFile() && FileManagerUtils.isThumbnailable(filePath))
+                .build();
+    }
+
+    private PathLock readLock(Path path) throws IOException {
+        try {
+            return pathLockManager.readLock(path);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupt to try get lock", e);
+        }
+    }
+
+    private PathLock writeLock(String action, Path... paths) throws IOException {
+        try {
+            PathLock lock = pathLockManager.tryWriteLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS, paths);
+            if (lock == null)
+                throw new IOException(action + " is unable now");
+            return lock;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupt to try get lock", e);
+        }
     }
 }
@@ -4,30 +4,85 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.UUID;
 
-import com.estebandev.minicloud.entity.FileMetadata;
+import com.estebandev.minicloud.entity.Directory;
 import com.estebandev.minicloud.entity.User;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
 
 public interface FileMetadataService {
-    List<FileMetadata> findMetadata(String uuid);
+    Optional<Directory> findDirectory(String uuid);
 
-    List<FileMetadata> findMetadata(Path path) throws IOException;
+    List<Directory> findDirectories(List<String> uuids);
 
-    FileMetadata findMetadataFromKey(String uuid, String key) throws NoSuchElementException;
+    List<Directory> findOwnedBy(User owner);
 
-    List<FileMetadata> findMetadataFromKeyBatch(List<String> uuids, String key);
+    /**
+     * @throws NoSuchElementException if the directory has no row
+     */
+    String findOwnerEmail(Path path) throws IOException, NoSuchElementException;
 
-    FileMetadata findMetadataFromKey(Path path, String key) throws IOException, NoSuchElementException;
-    
-    List<FileMetadata> findMetadataFromKeyAndValueContains(String key, String valueContains);
+    /**
+     * Gives a new directory its identity and saves its row with a single
+     * insert.
+     *
+     * @param path relative to the root
+     */
+    Directory make(Path dirPath, String path, User owner) throws IOException, FileIsNotDirectoryException;
 
-    void make(Path dirPath, User owner) throws IOException, FileIsNotDirectoryException;
-    
     UUID getUuidFromDir(Path path) throws IOException, FileIsNotDirectoryException;
 
+    /**
+     * Forgets the cached identity of a directory and of everything below it,
+     * once it is renamed, moved or deleted.
+     */
+    void invalidate(Path path);
+
     void deleteAll(Path path) throws IOException, FileIsNotDirectoryException;
 
-    void save(Path path, FileMetadata fileMetadata) throws IOException;
+    /**
+     * Deletes the rows of several directories with a single statement.
+     */
+    void deleteAll(List<String> uuids);
+
+    /**
+     * Points the row of a directory to the directory it is in now.
+     */
+    void updateParent(Path dirPath) throws IOException;
+
+    /**
+     * Saves the rows in batches inside one transaction, for trees created at
+     * once like a copy.
+     */
+    void saveAll(List<Directory> directories);
+
+    /**
+     * Writes the identity of a directory without saving any row.
+     */
+    void generateMetadataFile(Path path, String uuid) throws IOException;
+
+    /**
+     * Moves the identity of a directory from its legacy {@code .dirdata.xml}
+     * to the identity store.
+     *
+     * @return whether the directory had a legacy identity file
+     */
+    boolean migrateIdentity(Path dir) throws IOException;
+
+    /**
+     * Rewrites the path of a directory and of everything below it with a
+     * single statement.
+     *
+     * @return the number of rows updated
+     */
+    int movePaths(String oldPath, String newPath);
+
+    /**
+     * Turns the legacy owner and path rows of the directories following
+     * {@code afterId} into directory rows, in one transaction.
+     *
+     * @return the id of the last owner row read, or -1 if there were none
+     */
+    long migrateRows(Path root, long afterId, int batchSize);
 }
@@ -2,25 +2,41 @@ package com.estebandev.minicloud.service;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.InvalidPropertiesFormatException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.estebandev.minicloud.component.DirectoryUuidCache;
+import com.estebandev.minicloud.entity.Directory;
 import com.estebandev.minicloud.entity.FileMetadata;
 import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.repository.DirectoryRepository;
+import com.estebandev.minicloud.repository.DirectoryShareRepository;
 import com.estebandev.minicloud.repository.FileMetadataRepository;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.utils.DirectoryIdentityStore;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -29,42 +45,61 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 @Getter
 public class FileMetadataServiceImpl implements FileMetadataService {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private static final int SAVE_BATCH_SIZE = 500;
 
+    private final DirectoryRepository directoryRepository;
+    private final DirectoryShareRepository directoryShareRepository;
     private final FileMetadataRepository fileMetadataRepository;
     private final UserService userService;
+    private final DirectoryUuidCache directoryUuidCache;
+    private final DirectoryIdentityStore directoryIdentityStore;
+    /** Identity file of the directories created before the identity store. */
     private String dirMetadataName = ".dirdata.xml";
 
     @Override
-    public List<FileMetadata> findMetadata(String uuid) {
-        return fileMetadataRepository.findByUuid(uuid);
+    public Optional<Directory> findDirectory(String uuid) {
+        return directoryRepository.findById(uuid);
     }
 
     @Override
-    public List<FileMetadata> findMetadata(Path path) throws IOException {
-        return findMetadata(getUuidFromDir(path).toString());
+    public List<Directory> findDirectories(List<String> uuids) {
+        return directoryRepository.findByUuidIn(uuids);
+    }
+
+    @Override
+    public List<Directory> findOwnedBy(User owner) {
+        return directoryRepository.findByOwnerId(owner.getId());
+    }
+
+    @Override
+    public String findOwnerEmail(Path path) throws IOException, NoSuchElementException {
+        return directoryRepository.findOwnerEmail(getUuidFromDir(path).toString()).orElseThrow();
     }
 
     /**
-     * This method may be executed after to create directory
+     * This method may be executed after to create directory. The owner is
+     * looked up only when it comes from the authentication, without an id.
      * 
      * @throws IOException
      */
     @Override
-    public void make(Path dirPath, User owner) throws IOException, FileIsNotDirectoryException {
+    public Directory make(Path dirPath, String path, User owner) throws IOException, FileIsNotDirectoryException {
         if (!Files.exists(dirPath))
             throw new FileNotFoundException("File does not exist");
         if (!Files.isDirectory(dirPath))
             throw new FileIsNotDirectoryException("File is not directory");
 
         UUID uuid = generateUuid();
-        FileMetadata fileMetadata = FileMetadata.builder()
+        Directory directory = Directory.builder()
                 .uuid(uuid.toString())
-                .key("owner")
-                .value(owner.getEmail())
+                .owner(owner.getId() != null ? owner : userService.findByEmail(owner.getEmail()))
+                .parentUuid(findParentUuid(dirPath))
+                .path(path)
                 .build();
 
         generateMetadataFile(dirPath, uuid.toString());
-        save(fileMetadata);
+        return directoryRepository.save(directory);
     }
 
     @Override
@@ -75,55 +110,75 @@ public class FileMetadataServiceImpl implements FileMetadataService {
         if (!Files.isDirectory(path))
             throw new FileIsNotDirectoryException("File is not directory");
 
-        Path filePath = getMetadataPathFromDir(path);
         String uuid = getUuidFromDir(path).toString();
         deleteAll(uuid);
-        Files.delete(filePath);
+        directoryIdentityStore.delete(path);
+        Files.deleteIfExists(getMetadataPathFromDir(path));
+        directoryUuidCache.invalidate(path);
     }
 
+    /**
+     * Read from the {@link DirectoryIdentityStore}. Directories not migrated
+     * yet still have a {@code .dirdata.xml}, served from the
+     * {@link DirectoryUuidCache} while it is unchanged.
+     */
     @Override
     public UUID getUuidFromDir(Path path)
             throws InvalidPropertiesFormatException, IOException, FileIsNotDirectoryException {
-        if (!Files.isDirectory(path))
+        BasicFileAttributes dirAttributes;
+        try {
+            dirAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            dirAttributes = null;
+        }
+        if (dirAttributes == null || !dirAttributes.isDirectory())
             throw new FileIsNotDirectoryException("File is not directory. Path: " + path.toString());
 
-        String uuid;
-        uuid = getPropertiesFromDir(path).getProperty("uuid");
-        return UUID.fromString(uuid);
-    }
+        UUID uuid = directoryIdentityStore.read(path);
+        if (uuid != null)
+            return uuid;
 
-    @Override
-    public void save(Path path, FileMetadata fileMetadata) throws IOException {
-        if (!Files.exists(path))
-            throw new FileNotFoundException("File does not exist");
-        if (!Files.isDirectory(path))
-            throw new FileIsNotDirectoryException("File is not directory");
+        BasicFileAttributes metadataAttributes;
+        try {
+            metadataAttributes = Files.readAttributes(getMetadataPathFromDir(path), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(e.getMessage());
+        }
 
-        String uuid = getUuidFromDir(path).toString();
-        fileMetadata.setUuid(uuid);
-        save(fileMetadata);
+        uuid = directoryUuidCache.get(path, dirAttributes, metadataAttributes);
+        if (uuid == null) {
+            uuid = UUID.fromString(getPropertiesFromDir(path).getProperty("uuid"));
+            directoryUuidCache.put(path, dirAttributes, metadataAttributes, uuid);
+        }
+        return uuid;
     }
 
+    /**
+     * The identity is written to the store before the XML file is deleted, so
+     * concurrent readers always find one of them. If the store already has a
+     * different identity it wins, it was written later.
+     */
     @Override
-    public FileMetadata findMetadataFromKey(String uuid, String key) throws NoSuchElementException {
-        FileMetadata fileMetadata = fileMetadataRepository.findByUuidAndKey(uuid, key)
-                .orElseThrow();
-        return fileMetadata;
-    }
+    public boolean migrateIdentity(Path dir) throws IOException {
+        Path metadataPath = getMetadataPathFromDir(dir);
+        if (!Files.exists(metadataPath))
+            return false;
 
-    @Override
-    public List<FileMetadata> findMetadataFromKeyBatch(List<String> uuids, String key) {
-        return fileMetadataRepository.findByUuidsAndKey(uuids, key);
-    }
+        UUID legacy = UUID.fromString(getPropertiesFromDir(dir).getProperty("uuid"));
+        UUID current = directoryIdentityStore.read(dir);
+        if (current == null)
+            directoryIdentityStore.write(dir, legacy);
+        else if (!current.equals(legacy))
+            logger.warn("{} has two identities, keeping {} over {}", dir, current, legacy);
 
-    @Override
-    public FileMetadata findMetadataFromKey(Path path, String key) throws IOException, NoSuchElementException {
-        return findMetadataFromKey(getUuidFromDir(path).toString(), key);
+        Files.delete(metadataPath);
+        directoryUuidCache.invalidate(dir);
+        return true;
     }
 
     @Override
-    public List<FileMetadata> findMetadataFromKeyAndValueContains(String key, String valueContains) {
-        return fileMetadataRepository.findByKeyAndValueContaining(key, valueContains);
+    public void invalidate(Path path) {
+        directoryUuidCache.invalidate(path);
     }
 
     public Properties getPropertiesFromDir(Path path) throws InvalidPropertiesFormatException, IOException {
@@ -140,28 +195,123 @@ public class FileMetadataServiceImpl implements FileMetadataService {
         return path.resolve(getDirMetadataName());
     }
 
-    public void save(FileMetadata fileMetadata) {
-        fileMetadataRepository.save(fileMetadata);
+    @Transactional
+    public void deleteAll(String uuid) {
+        deleteAll(List.of(uuid));
+    }
+
+    @Override
+    public void deleteAll(List<String> uuids) {
+        directoryRepository.deleteByUuidIn(uuids);
+        directoryShareRepository.deleteByDirectoryUuidIn(uuids);
     }
 
+    @Override
+    public void updateParent(Path dirPath) throws IOException {
+        directoryRepository.updateParent(getUuidFromDir(dirPath).toString(), findParentUuid(dirPath));
+    }
+
+    @Override
     @Transactional
-    public void deleteAll(String uuid) {
-        fileMetadataRepository.deleteByUuid(uuid);
+    public void saveAll(List<Directory> directories) {
+        for (int from = 0; from < directories.size(); from += SAVE_BATCH_SIZE) {
+            directoryRepository.saveAll(
+                    directories.subList(from, Math.min(from + SAVE_BATCH_SIZE, directories.size())));
+            directoryRepository.flush();
+        }
     }
 
-    private UUID generateUuid() {
-        return UUID.randomUUID();
+    @Override
+    public int movePaths(String oldPath, String newPath) {
+        String prefix = oldPath.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "/%";
+        return directoryRepository.updatePathPrefix(oldPath, prefix, oldPath.length(), newPath);
     }
 
-    public void generateMetadataFile(Path path, String uuid) throws IOException {
-        Properties properties = new Properties();
-        properties.setProperty("uuid", uuid);
+    /**
+     * The parent of each directory is read from the file system, the legacy
+     * rows never had it. Directories whose owner no longer exists or that
+     * never got a path row keep their legacy rows and are reported.
+     */
+    @Override
+    @Transactional
+    public long migrateRows(Path root, long afterId, int batchSize) {
+        List<FileMetadata> ownerRows = fileMetadataRepository.findByKeyAndIdGreaterThanOrderById("owner", afterId,
+                PageRequest.of(0, batchSize));
+        if (ownerRows.isEmpty())
+            return -1;
+
+        List<String> uuids = ownerRows.stream().map(FileMetadata::getUuid).distinct().toList();
+        Map<String, String> paths = new HashMap<>();
+        for (FileMetadata row : fileMetadataRepository.findByUuidsAndKey(uuids, "path")) {
+            paths.put(row.getUuid(), row.getValue());
+        }
+        Set<String> existing = new HashSet<>();
+        for (Directory directory : directoryRepository.findByUuidIn(uuids)) {
+            existing.add(directory.getUuid());
+        }
+
+        Map<String, User> owners = new HashMap<>();
+        List<Directory> directories = new ArrayList<>(uuids.size());
+        Set<String> migrated = new LinkedHashSet<>();
+        for (FileMetadata row : ownerRows) {
+            String uuid = row.getUuid();
+            if (migrated.contains(uuid))
+                continue;
+            if (existing.contains(uuid)) {
+                migrated.add(uuid);
+                continue;
+            }
 
-        Path metadataPath = path.resolve(dirMetadataName);
-        Files.createFile(metadataPath);
+            User owner = owners.computeIfAbsent(row.getValue(), email -> {
+                try {
+                    return userService.findByEmail(email);
+                } catch (UsernameNotFoundException e) {
+                    return null;
+                }
+            });
+            String path = paths.get(uuid);
+            if (owner == null || path == null) {
+                logger.warn("Directory {} can't be migrated, owner {} path {}", uuid, row.getValue(), path);
+                continue;
+            }
 
-        try (OutputStream fileOutputStream = new FileOutputStream(metadataPath.toFile())) {
-            properties.storeToXML(fileOutputStream, null);
+            directories.add(Directory.builder()
+                    .uuid(uuid)
+                    .owner(owner)
+                    .parentUuid(findParentUuid(root.resolve(path)))
+                    .path(path)
+                    .build());
+            migrated.add(uuid);
         }
+
+        directoryRepository.saveAll(directories);
+        if (!migrated.isEmpty())
+            fileMetadataRepository.deleteByUuidIn(new ArrayList<>(migrated));
+        return ownerRows.get(ownerRows.size() - 1).getId();
+    }
+
+    /**
+     * @return {@code null} if the parent isn't a directory with an identity,
+     *         like the root
+     */
+    private String findParentUuid(Path dirPath) {
+        Path parent = dirPath.getParent();
+        if (parent == null)
+            return null;
+
+        try {
+            return getUuidFromDir(parent).toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private UUID generateUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Override
+    public void generateMetadataFile(Path path, String uuid) throws IOException {
+        directoryIdentityStore.write(path, UUID.fromString(uuid));
     }
 }
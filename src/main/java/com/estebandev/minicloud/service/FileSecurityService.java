@@ -2,6 +2,7 @@ package com.estebandev.minicloud.service;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.UUID;
 
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
@@ -17,6 +18,12 @@ public interface FileSecurityService {
 
     boolean isUserFromAuthHasAccessTo(String pathString) throws FileIsNotDirectoryException, IOException;
 
+    /**
+     * Whether the directory is shared with the user, without checking who owns
+     * it.
+     */
+    boolean isSharedWith(UUID uuid, String email);
+
     void grantAccess(String pathString, String email)
             throws UsernameNotFoundException, IOException, ServiceException;
 
@@ -24,4 +31,12 @@ public interface FileSecurityService {
             throws IOException, ServiceException;
 
     List<FileData> getFileListUserHasAccess(User user);
+
+    /**
+     * Turns a batch of the legacy {@code ACCESS_TO_<uuid>} user metadata rows
+     * into directory shares and deletes them, in one transaction.
+     *
+     * @return the number of legacy rows read, 0 once there are none
+     */
+    int migrateShares(int batchSize);
 }
@@ -2,19 +2,26 @@ package com.estebandev.minicloud.service;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Map;
 import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import com.estebandev.minicloud.entity.FileMetadata;
+import com.estebandev.minicloud.entity.Directory;
+import com.estebandev.minicloud.entity.DirectoryShare;
+import com.estebandev.minicloud.entity.SharePermission;
 import com.estebandev.minicloud.entity.User;
 import com.estebandev.minicloud.entity.UserMetadata;
+import com.estebandev.minicloud.repository.DirectoryShareRepository;
+import com.estebandev.minicloud.repository.UserMetadataRepository;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
 import com.estebandev.minicloud.service.exception.ServiceException;
 import com.estebandev.minicloud.service.utils.FileData;
@@ -24,18 +31,18 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class FileSecurityServiceImpl implements FileSecurityService {
+    private static final String LEGACY_ACCESS_PREFIX = "ACCESS_TO_";
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final FileManagerService fileManagerService;
     private final FileMetadataService fileMetadataService;
     private final UserService userService;
+    private final DirectoryShareRepository directoryShareRepository;
+    private final UserMetadataRepository userMetadataRepository;
 
     @Override
     public List<User> getUserWithAccessTo(String pathString) throws FileIsNotDirectoryException, IOException {
         UUID uuid = fileMetadataService.getUuidFromDir(fileManagerService.getRoot().resolve(pathString));
-        List<UserMetadata> metadata = userService.findMetadatasByKeySearch(uuid.toString());
-        return metadata.stream()
-                .filter(m -> m.getValue().equals("true") && m.getKey().startsWith("ACCESS_TO_"))
-                .map(m -> m.getUser())
-                .toList();
+        return directoryShareRepository.findUsersByDirectoryUuid(uuid.toString());
     }
 
     @Override
@@ -45,13 +52,17 @@ public class FileSecurityServiceImpl implements FileSecurityService {
         if (userService.getUserFromAuth().getEmail().equals(email))
             throw new ServiceException("The user can't be your user");
 
-        if (!getUserWithAccessTo(pathString).stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst().isEmpty())
+        UUID uuid = fileMetadataService.getUuidFromDir(fileManagerService.getRoot().resolve(pathString));
+        User user = userService.findByEmail(email);
+        if (directoryShareRepository.existsByDirectoryUuidAndUserId(uuid.toString(), user.getId()))
             throw new ServiceException("This user already has access to");
 
-        User user = userService.findByEmail(email);
-        grantAccessTo(fileManagerService.getRoot().resolve(pathString), user);
+        directoryShareRepository.save(DirectoryShare.builder()
+                .directoryUuid(uuid.toString())
+                .user(user)
+                .permission(SharePermission.WRITE)
+                .grantedAt(LocalDateTime.now())
+                .build());
     }
 
     @Override
@@ -61,13 +72,15 @@ public class FileSecurityServiceImpl implements FileSecurityService {
         if (userService.getUserFromAuth().getEmail().equals(email))
             throw new ServiceException("You cannot remove yourself");
 
-        if (getUserWithAccessTo(pathString).stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst().isEmpty())
+        UUID uuid = fileMetadataService.getUuidFromDir(fileManagerService.getRoot().resolve(pathString));
+        User user;
+        try {
+            user = userService.findByEmail(email);
+        } catch (UsernameNotFoundException e) {
+            throw new ServiceException("The user did not have access");
+        }
+        if (directoryShareRepository.deleteByDirectoryUuidAndUserId(uuid.toString(), user.getId()) == 0)
             throw new ServiceException("The user did not have access");
-
-        User user = userService.findByEmail(email);
-        revokeAccessTo(fileManagerService.getRoot().resolve(pathString), user);
     }
 
     @Override
@@ -77,50 +90,40 @@ public class FileSecurityServiceImpl implements FileSecurityService {
 
         Path path = fileManagerService.getRoot().resolve(pathString);
 
-        FileMetadata ownerMetadata = fileMetadataService.findMetadataFromKey(path, "owner");
-        if (ownerMetadata.getValue().equals(user.getEmail()))
+        if (fileMetadataService.findOwnerEmail(path).equals(user.getEmail()))
             return true;
 
-        UUID uuid = fileMetadataService.getUuidFromDir(path);
-        Optional<UserMetadata> metadata = userService.findMetadatasByKeySearch(user, "ACCESS_TO_" + uuid.toString());
-        if (metadata.isEmpty())
-            return false;
-
-        return metadata.get().getValue().equals("true");
+        return isSharedWith(fileMetadataService.getUuidFromDir(path), user.getEmail());
     }
 
     @Override
     public boolean isUserFromAuthHasAccessTo(String pathString) throws FileIsNotDirectoryException, IOException {
-        return isUserHasAccessTo(pathString, userService.getUserAllDataFromAuth());
+        return isUserHasAccessTo(pathString, userService.getUserFromAuth());
     }
 
     @Override
-    public List<FileData> getFileListUserHasAccess(User user) {
+    public boolean isSharedWith(UUID uuid, String email) {
+        return directoryShareRepository.existsByDirectoryUuidAndUserEmail(uuid.toString(), email);
+    }
 
-        List<String> ownsUuids = fileMetadataService.findMetadataFromKeyAndValueContains("owner",
-                user.getEmail()).stream()
-                .map(fm -> fm.getUuid())
-                .toList();
+    @Override
+    public List<FileData> getFileListUserHasAccess(User user) {
+        List<String> withAccessUuids = directoryShareRepository.findDirectoryUuidsByUserId(user.getId());
 
-        List<UserMetadata> userMetadataAccess = userService.findMetadatasByKeySearchList(user, "ACCESS_TO_");
-        List<String> withAccessUuids = userMetadataAccess.stream()
-                .filter(userMetadata -> userMetadata.getValue().equals("true"))
-                .map(userMetadata -> userMetadata.getKey().substring(10))
-                .toList();
+        Map<String, Directory> unique = new LinkedHashMap<>();
+        for (Directory directory : fileMetadataService.findOwnedBy(user)) {
+            unique.put(directory.getUuid(), directory);
+        }
+        if (!withAccessUuids.isEmpty()) {
+            for (Directory directory : fileMetadataService.findDirectories(withAccessUuids)) {
+                unique.putIfAbsent(directory.getUuid(), directory);
+            }
+        }
 
-        Set<String> u1 = new HashSet<>(ownsUuids);
-        Set<String> u2 = new HashSet<>(withAccessUuids);
-        Set<String> unique = new HashSet<>();
-        unique.addAll(u1);
-        unique.addAll(u2);
-        u1 = null;
-        u2 = null;
-
-        List<FileData> filesWithAccess = fileMetadataService.findMetadataFromKeyBatch(new ArrayList<>(unique), "path")
-                .stream()
-                .filter(fm -> !fm.getValue().startsWith(user.getEmail()))
-                .map(fm -> {
-                    Path path = Path.of(fm.getValue());
+        List<FileData> filesWithAccess = unique.values().stream()
+                .filter(directory -> !directory.getPath().startsWith(user.getEmail()))
+                .map(directory -> {
+                    Path path = Path.of(directory.getPath());
                     return FileData.builder()
                             .path(path)
                             .fileName(path.getFileName().toString())
@@ -132,39 +135,39 @@ public class FileSecurityServiceImpl implements FileSecurityService {
         return filesWithAccess;
     }
 
-    private void grantAccessTo(Path path, User user) throws IOException {
-        UUID uuid = fileMetadataService.getUuidFromDir(path);
-        String metadataKey = parseMetadataAccess(uuid);
-
-        Optional<UserMetadata> existingMetadata = user.getUserMetadata().stream()
-                .filter(m -> m.getKey().equals(metadataKey))
-                .findFirst();
-
-        if (existingMetadata.isEmpty()) {
-            UserMetadata metadata = UserMetadata.builder()
-                    .user(user)
-                    .key(metadataKey)
-                    .value("true")
-                    .build();
-            user.getUserMetadata().add(metadata);
-        } else {
-            existingMetadata.get().setValue("true");
+    /**
+     * Rows valued {@code false} were revoked shares and are only deleted.
+     * Every row read is deleted, so the next batch starts at the first page
+     * again.
+     */
+    @Override
+    @Transactional
+    public int migrateShares(int batchSize) {
+        List<UserMetadata> rows = userMetadataRepository.findByKeyStartingWithOrderById(LEGACY_ACCESS_PREFIX,
+                PageRequest.of(0, batchSize));
+
+        for (UserMetadata row : rows) {
+            if (!"true".equals(row.getValue()))
+                continue;
+
+            String uuid = row.getKey().substring(LEGACY_ACCESS_PREFIX.length());
+            try {
+                UUID.fromString(uuid);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Dropping the invalid share {} of user {}", row.getKey(), row.getUser().getId());
+                continue;
+            }
+
+            if (!directoryShareRepository.existsByDirectoryUuidAndUserId(uuid, row.getUser().getId()))
+                directoryShareRepository.save(DirectoryShare.builder()
+                        .directoryUuid(uuid)
+                        .user(row.getUser())
+                        .permission(SharePermission.WRITE)
+                        .grantedAt(LocalDateTime.now())
+                        .build());
         }
 
-        userService.saveUser(user);
-    }
-
-    private void revokeAccessTo(Path path, User user) throws IOException, ServiceException {
-        UUID uuid = fileMetadataService.getUuidFromDir(path);
-        UserMetadata metadata = userService
-                .findMetadatasByKeySearch(user, parseMetadataAccess(uuid))
-                .orElseThrow(() -> new ServiceException("The access does not exist"));
-
-        metadata.setValue("false");
-        userService.saveUser(user);
-    }
-
-    private static String parseMetadataAccess(UUID uuid) {
-        return String.format("ACCESS_TO_%s", uuid.toString());
+        userMetadataRepository.deleteAllInBatch(rows);
+        return rows.size();
     }
 }
@@ -0,0 +1,17 @@
+package com.estebandev.minicloud.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface StorageCompressionService {
+    boolean isEnabled();
+
+    /**
+     * Compresses a fully written upload when storage compression is enabled,
+     * {@code filePath} has a compressible type and the content shrinks enough.
+     *
+     * @return a temporary file next to {@code tmpPath} to commit instead of it,
+     *         deleted by the caller, or {@code null} to keep {@code tmpPath}
+     */
+    Path compress(Path tmpPath, Path filePath) throws IOException;
+}
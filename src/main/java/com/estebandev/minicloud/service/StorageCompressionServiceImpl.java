@@ -0,0 +1,84 @@
+package com.estebandev.minicloud.service;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+import lombok.Setter;
+
+/**
+ * Opt-in storage of text files as {@link BlockCompressedFile}s. Files already
+ * stored compressed keep being read transparently if it is disabled later.
+ * Containers are marked with an extended attribute, so on file systems without
+ * them files are stored as they are.
+ */
+@Service
+@Setter
+public class StorageCompressionServiceImpl implements StorageCompressionService {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Value("${var.storage.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${var.storage.compression.block-size:64KB}")
+    private DataSize blockSize = DataSize.ofBytes(BlockCompressedFile.DEFAULT_BLOCK_SIZE);
+
+    @Value("${var.storage.compression.level:6}")
+    private int level = 6;
+
+    /** Smaller files are not worth the container overhead and the extra open. */
+    @Value("${var.storage.compression.min-size:4KB}")
+    private DataSize minSize = DataSize.ofKilobytes(4);
+
+    /** The compressed file must be at most this fraction of the original. */
+    @Value("${var.storage.compression.max-ratio:0.9}")
+    private double maxRatio = 0.9;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Path compress(Path tmpPath, Path filePath) throws IOException {
+        if (!enabled || !FileManagerUtils.isCompressible(filePath) || !Files.isRegularFile(tmpPath))
+            return null;
+
+        long size = Files.size(tmpPath);
+        if (size < minSize.toBytes())
+            return null;
+
+        Path compressedPath = tmpPath.resolveSibling(tmpPath.getFileName() + ".z");
+        boolean keep = false;
+        try {
+            try {
+                BlockCompressedFile.compress(tmpPath, compressedPath, (int) blockSize.toBytes(), level);
+            } catch (FileSystemException e) {
+                if (e instanceof NoSuchFileException)
+                    throw e;
+                logger.warn("{} stored uncompressed, the container can't be marked: {}", filePath.getFileName(),
+                        e.getReason());
+                return null;
+            }
+            long compressedSize = Files.size(compressedPath);
+            keep = compressedSize <= size * maxRatio;
+            logger.debug("{} compressed from {} to {} bytes{}", filePath.getFileName(), size, compressedSize,
+                    keep ? "" : ", stored uncompressed");
+            return keep ? compressedPath : null;
+        } finally {
+            if (!keep)
+                Files.deleteIfExists(compressedPath);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import com.estebandev.minicloud.service.utils.TextWindow;
+
+public interface TextViewService {
+    /**
+     * Lines {@code from} to {@code from + count} of a text file of any size.
+     * The first call for a file version scans it once to index its lines,
+     * later ones read about as much as they return.
+     */
+    TextWindow readLines(String pathString, long from, int count) throws FileNotFoundException, IOException;
+}
@@ -0,0 +1,130 @@
+package com.estebandev.minicloud.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.component.LineIndexCache;
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+import com.estebandev.minicloud.service.utils.LineIndex;
+import com.estebandev.minicloud.service.utils.TextWindow;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Windows of lines of big text files, so a multi-gigabyte log is viewed a page
+ * at a time. Files stored compressed are read through their blocks.
+ */
+@Service
+@RequiredArgsConstructor
+@Setter
+public class TextViewServiceImpl implements TextViewService {
+    public static final int MAX_LINES = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final LineIndexCache lineIndexCache;
+
+    @Value("${var.filepath}")
+    private String pathString;
+
+    /** Longer lines are cut, a window never holds more than this per line. */
+    @Value("${var.text.max-line-length:16KB}")
+    private DataSize maxLineLength = DataSize.ofKilobytes(16);
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public TextWindow readLines(String pathString, long from, int count) throws FileNotFoundException, IOException {
+        if (from < 0)
+            throw new IllegalArgumentException("The first line can't be negative");
+        if (count < 1 || count > MAX_LINES)
+            throw new IllegalArgumentException("Between 1 and " + MAX_LINES + " lines can be read at once");
+
+        Path root = Path.of(this.pathString).toAbsolutePath().normalize();
+        Path filePath = root.resolve(pathString).normalize();
+        if (!filePath.startsWith(root))
+            throw new IllegalArgumentException("The path is outside of the storage");
+        if (FileManagerUtils.isInternalFile(filePath) || !Files.isRegularFile(filePath))
+            throw new FileNotFoundException("File not exists");
+
+        try (BlockCompressedFile compressed = BlockCompressedFile.openIfCompressed(filePath)) {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            LineIndex index = lineIndexCache.get(filePath, attributes, () -> open(filePath, compressed, 0));
+
+            List<String> lines = new ArrayList<>(Math.min(count, 128));
+            boolean truncated = false;
+            if (from < index.lineCount()) {
+                try (InputStream inputStream = open(filePath, compressed, index.floorOffset(from))) {
+                    for (long skip = from - index.floorLine(from); skip > 0; skip--) {
+                        skipLine(inputStream);
+                    }
+
+                    long end = Math.min(from + count, index.lineCount());
+                    ByteArrayOutputStream line = new ByteArrayOutputStream();
+                    for (long i = from; i < end; i++) {
+                        truncated |= readLine(inputStream, line);
+                        String text = line.toString(StandardCharsets.UTF_8);
+                        lines.add(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+                    }
+                }
+            }
+
+            return TextWindow.builder()
+                    .version(index.version())
+                    .from(from)
+                    .totalLines(index.lineCount())
+                    .lines(lines)
+                    .truncated(truncated)
+                    .build();
+        }
+    }
+
+    private static InputStream open(Path filePath, BlockCompressedFile compressed, long position) throws IOException {
+        if (compressed != null)
+            return new BufferedInputStream(compressed.newInputStream(position, compressed.size()), BUFFER_SIZE);
+
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        channel.position(position);
+        return new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+    }
+
+    private static void skipLine(InputStream inputStream) throws IOException {
+        int b;
+        while ((b = inputStream.read()) != -1 && b != '\n') {
+        }
+    }
+
+    /**
+     * Reads the next line without its {@code \n} into {@code line}, keeping
+     * at most {@link #maxLineLength} bytes of it.
+     *
+     * @return whether the line was cut
+     */
+    private boolean readLine(InputStream inputStream, ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        long limit = maxLineLength.toBytes();
+        long length = 0;
+        int b;
+        while ((b = inputStream.read()) != -1 && b != '\n') {
+            if (length++ < limit)
+                line.write(b);
+        }
+        return length > limit;
+    }
+}
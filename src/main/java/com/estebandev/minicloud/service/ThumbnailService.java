@@ -0,0 +1,36 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.estebandev.minicloud.service.utils.ContactSheet;
+
+public interface ThumbnailService {
+    /**
+     * Queues the generation of every thumbnail size of a committed file. Files
+     * that aren't images are ignored, and so are files arriving while the
+     * queue is full: their thumbnails are generated when first requested.
+     */
+    void schedule(Path filePath);
+
+    /**
+     * @param size the longest side wanted, rounded up to the closest size
+     *             generated
+     * @return the thumbnail of the file, generated now if it is missing or
+     *         older than the file
+     */
+    Path thumbnail(String pathString, int size) throws FileNotFoundException, IOException;
+
+    /**
+     * Layout of a page of a directory's images, sorted by name, drawn at the
+     * smallest thumbnail size. Nothing is decoded to compute it.
+     */
+    ContactSheet contactSheet(String pathString, int page) throws FileNotFoundException, IOException;
+
+    /**
+     * @return the page drawn as a single JPEG, built from the thumbnails the
+     *         first time and kept until the page changes
+     */
+    Path contactSheetImage(String pathString, int page) throws FileNotFoundException, IOException;
+}
@@ -0,0 +1,517 @@
+package com.estebandev.minicloud.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.utils.ContactSheet;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Setter;
+
+/**
+ * Thumbnails of images, kept in {@code <root>/.minicloud/thumbs}.
+ *
+ * They are generated in the background when an upload is committed, on a
+ * small pool with a bounded queue, and on demand when one is missing. Every
+ * file has one thumbnail per size, named after its path, whose modification
+ * time is set to the file's: a changed file overwrites its thumbnails instead
+ * of leaving stale ones behind.
+ *
+ * Big images are decoded subsampled, so a 20 MB photo never needs its full
+ * resolution in memory.
+ *
+ * Contact sheets put a page of a directory's thumbnails in one image, for
+ * galleries that would otherwise make a request per image. They are kept in
+ * {@code thumbs/sheets}, one per directory and page.
+ *
+ * Nothing ties a thumbnail to its file once the file is renamed, moved or
+ * deleted, so the directory is bounded by the total size of the thumbnails
+ * and sheets, evicting the least recently used ones like the compressed
+ * variants. Orphans are never used again and go first.
+ */
+@Service
+@Setter
+public class ThumbnailServiceImpl implements ThumbnailService {
+    private static final String THUMBS_DIR = "thumbs";
+    private static final String SHEETS_DIR = "sheets";
+    private static final int SHEET_COLUMNS = 10;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final Set<Path> scheduled = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private ThreadPoolExecutor pool;
+    private long totalSize;
+    private boolean loaded;
+
+    @Value("${var.filepath}")
+    private String pathString;
+
+    /** Longest side of each size generated, in pixels. */
+    @Value("${var.thumbnails.sizes:128,1024}")
+    private List<Integer> sizes = List.of(128, 1024);
+
+    @Value("${var.thumbnails.parallelism:2}")
+    private int parallelism = 2;
+
+    /** Images per contact sheet page. */
+    @Value("${var.thumbnails.sheet-size:100}")
+    private int sheetSize = 100;
+
+    /** Uploads waiting for their thumbnails, the ones beyond are done on demand. */
+    @Value("${var.thumbnails.queue-size:1000}")
+    private int queueSize = 1000;
+
+    /** Total size of the thumbnails and contact sheets on disk. */
+    @Value("${var.thumbnails.max-size:1GB}")
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+
+    @Override
+    public void schedule(Path filePath) {
+        try {
+            if (!FileManagerUtils.isThumbnailable(filePath) || !scheduled.add(filePath))
+                return;
+        } catch (IOException e) {
+            return;
+        }
+
+        try {
+            getPool().execute(() -> {
+                scheduled.remove(filePath);
+                try {
+                    generate(filePath, Files.readAttributes(filePath, BasicFileAttributes.class), getSizes());
+                } catch (IOException | RuntimeException e) {
+                    logger.debug("Couldn't generate the thumbnails of {}: {}", filePath, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scheduled.remove(filePath);
+            logger.debug("Thumbnail queue full, {} is left for its first view", filePath);
+        }
+    }
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public Path thumbnail(String pathString, int size) throws FileNotFoundException, IOException {
+        Path root = getRoot();
+        Path filePath = root.resolve(pathString).normalize();
+        if (!filePath.startsWith(root))
+            throw new IllegalArgumentException("The path is outside of the storage");
+        if (FileManagerUtils.isInternalFile(filePath) || !Files.isRegularFile(filePath))
+            throw new FileNotFoundException("File not exists");
+        if (!FileManagerUtils.isThumbnailable(filePath))
+            throw new IllegalArgumentException("The file isn't an image");
+
+        return thumbnail(filePath, closestSize(size));
+    }
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public ContactSheet contactSheet(String pathString, int page) throws FileNotFoundException, IOException {
+        return layout(resolveDirectory(pathString), page);
+    }
+
+    /**
+     * Missing thumbnails are generated on the way and an image that can't be
+     * decoded leaves its tile empty. Sheets of previous versions of the page
+     * are deleted once the new one is written.
+     */
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public Path contactSheetImage(String pathString, int page) throws FileNotFoundException, IOException {
+        Path dirPath = resolveDirectory(pathString);
+        ContactSheet sheet = layout(dirPath, page);
+        if (sheet.getTiles().isEmpty())
+            throw new FileNotFoundException("No images in this page");
+
+        String prefix = key(dirPath) + "-" + page + "-";
+        Path sheetsDir = Files.createDirectories(getThumbsDir().resolve(SHEETS_DIR));
+        Path sheetPath = sheetsDir.resolve(prefix + sheet.getVersion() + ".jpg");
+        if (Files.exists(sheetPath)) {
+            used(sheetPath, false);
+            return sheetPath;
+        }
+
+        Path root = getRoot();
+        int tileSize = sheet.getTileSize();
+        BufferedImage image = new BufferedImage(sheet.getWidth(), sheet.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+            for (ContactSheet.Tile tile : sheet.getTiles()) {
+                try {
+                    BufferedImage thumbnail = ImageIO.read(thumbnail(root.resolve(tile.getPath()), tileSize).toFile());
+                    if (thumbnail == null)
+                        continue;
+                    graphics.drawImage(thumbnail, tile.getX() + (tileSize - thumbnail.getWidth()) / 2,
+                            tile.getY() + (tileSize - thumbnail.getHeight()) / 2, null);
+                } catch (IOException | RuntimeException e) {
+                    logger.debug("Contact sheet skips {}: {}", tile.getPath(), e.getMessage());
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        write(image, sheetPath, false, FileTime.from(Instant.now()));
+        used(sheetPath, true);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(sheetsDir, prefix + "*.jpg")) {
+            for (Path path : stale) {
+                if (!path.equals(sheetPath) && Files.deleteIfExists(path))
+                    forget(path);
+            }
+        }
+        return sheetPath;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    private Path thumbnail(Path filePath, int size) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        Path thumbnailPath = thumbnailPath(filePath, size);
+        if (!isFresh(thumbnailPath, attributes))
+            generate(filePath, attributes, List.of(size));
+        used(thumbnailPath, false);
+        return thumbnailPath;
+    }
+
+    /**
+     * The version hashes the name, size and modification time of every image
+     * of the page, the tiles only depend on their order.
+     */
+    private ContactSheet layout(Path dirPath, int page) throws IOException {
+        if (page < 0)
+            throw new IllegalArgumentException("The page can't be negative");
+
+        List<Path> images = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dirPath)) {
+            for (Path entry : entries) {
+                if (!FileManagerUtils.isInternalFile(entry) && FileManagerUtils.isThumbnailable(entry)
+                        && Files.isRegularFile(entry))
+                    images.add(entry);
+            }
+        }
+        images.sort(Comparator.comparing(path -> path.getFileName().toString()));
+
+        int tileSize = getSizes().get(0);
+        int from = (int) Math.min((long) page * sheetSize, images.size());
+        List<Path> pageImages = images.subList(from, Math.min(from + sheetSize, images.size()));
+        int columns = Math.min(pageImages.size(), SHEET_COLUMNS);
+        int rows = columns == 0 ? 0 : (pageImages.size() + columns - 1) / columns;
+
+        Path root = getRoot();
+        MessageDigest digest = sha256();
+        digest.update((tileSize + "\n").getBytes(StandardCharsets.UTF_8));
+        List<ContactSheet.Tile> tiles = new ArrayList<>(pageImages.size());
+        for (int i = 0; i < pageImages.size(); i++) {
+            Path image = pageImages.get(i);
+            BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+            digest.update((image.getFileName() + "\n" + attributes.size() + "\n"
+                    + attributes.lastModifiedTime().toMillis() + "\n").getBytes(StandardCharsets.UTF_8));
+            tiles.add(ContactSheet.Tile.builder()
+                    .name(image.getFileName().toString())
+                    .path(root.relativize(image).toString())
+                    .x(i % columns * tileSize)
+                    .y(i / columns * tileSize)
+                    .build());
+        }
+
+        return ContactSheet.builder()
+                .version(HexFormat.of().formatHex(digest.digest(), 0, 8))
+                .page(page)
+                .hasMore(from + pageImages.size() < images.size())
+                .tileSize(tileSize)
+                .columns(columns)
+                .width(columns * tileSize)
+                .height(rows * tileSize)
+                .tiles(tiles)
+                .build();
+    }
+
+    private Path resolveDirectory(String pathString) throws FileNotFoundException, IOException {
+        Path root = getRoot();
+        Path dirPath = root.resolve(pathString).normalize();
+        if (!dirPath.startsWith(root))
+            throw new IllegalArgumentException("The path is outside of the storage");
+        if (FileManagerUtils.isInternalFile(dirPath) || !Files.exists(dirPath))
+            throw new FileNotFoundException("File not exists");
+        if (!Files.isDirectory(dirPath))
+            throw new FileIsNotDirectoryException("The file isn't a directory");
+        return dirPath;
+    }
+
+    /**
+     * Decodes the image once, subsampled down to about twice the biggest size
+     * missing, and writes every missing size from it.
+     */
+    private void generate(Path filePath, BasicFileAttributes attributes, List<Integer> wanted) throws IOException {
+        List<Integer> missing = new ArrayList<>();
+        for (int size : wanted) {
+            if (!isFresh(thumbnailPath(filePath, size), attributes))
+                missing.add(size);
+        }
+        if (missing.isEmpty())
+            return;
+
+        missing.sort(Comparator.reverseOrder());
+        BufferedImage image = decode(filePath, missing.get(0));
+        boolean alpha = hasAlpha(filePath);
+        for (int size : missing) {
+            image = scale(image, size, alpha);
+            Path thumbnailPath = thumbnailPath(filePath, size);
+            write(image, thumbnailPath, alpha, attributes.lastModifiedTime());
+            used(thumbnailPath, true);
+        }
+    }
+
+    /**
+     * Moves the file to the most recently used end, adding it when it was just
+     * written or isn't known yet, and evicts the least recently used ones over
+     * the maximum size.
+     */
+    private synchronized void used(Path path, boolean written) throws IOException {
+        load();
+        String name = getThumbsDir().relativize(path).toString();
+        if (!written && entries.get(name) != null)
+            return;
+
+        long size = Files.size(path);
+        Long previous = entries.put(name, size);
+        totalSize += size - (previous == null ? 0 : previous);
+
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalSize > maxSize.toBytes() && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(name))
+                continue;
+
+            try {
+                Files.deleteIfExists(getThumbsDir().resolve(eldest.getKey()));
+            } catch (IOException e) {
+                logger.warn("Couldn't evict the thumbnail {}: {}", eldest.getKey(), e.getMessage());
+                continue;
+            }
+            totalSize -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private synchronized void forget(Path path) throws IOException {
+        Long size = entries.remove(getThumbsDir().relativize(path).toString());
+        if (size != null)
+            totalSize -= size;
+    }
+
+    /**
+     * Picks up the thumbnails and sheets of a previous run, oldest first.
+     * Temporary files are left alone, the pool may be writing them.
+     */
+    private void load() throws IOException {
+        if (loaded)
+            return;
+        loaded = true;
+
+        Path thumbsDir = getThumbsDir();
+        try (Stream<Path> files = Files.walk(thumbsDir, 2)) {
+            List<Path> thumbnails = files
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp") && Files.isRegularFile(path))
+                    .sorted(Comparator.comparing(ThumbnailServiceImpl::lastModified))
+                    .toList();
+            for (Path thumbnail : thumbnails) {
+                long size = Files.size(thumbnail);
+                entries.put(thumbsDir.relativize(thumbnail).toString(), size);
+                totalSize += size;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Couldn't load the thumbnails: {}", e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private BufferedImage decode(Path filePath, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(filePath.toFile())) {
+            if (input == null)
+                throw new IOException("Couldn't open " + filePath.getFileName());
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+                throw new IOException("Unsupported image " + filePath.getFileName());
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, longest / (size * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Halves the image while it is more than twice the target, then scales the
+     * rest in one step. Bilinear steps of at most half keep the quality close
+     * to area averaging at a fraction of its cost. Smaller images are only
+     * converted, never enlarged.
+     */
+    static BufferedImage scale(BufferedImage image, int size, boolean alpha) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        double ratio = Math.min(1, (double) size / longest);
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage current = image;
+        boolean done;
+        do {
+            int width = current.getWidth() / 2 >= targetWidth ? current.getWidth() / 2 : targetWidth;
+            int height = current.getHeight() / 2 >= targetHeight ? current.getHeight() / 2 : targetHeight;
+            done = width == targetWidth && height == targetHeight;
+            current = draw(current, width, height, alpha);
+        } while (!done);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, Path thumbnailPath, boolean alpha, FileTime lastModified)
+            throws IOException {
+        Path tmpPath = thumbnailPath.resolveSibling(thumbnailPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            if (!ImageIO.write(image, alpha ? "png" : "jpg", tmpPath.toFile()))
+                throw new IOException("No image writer for " + thumbnailPath.getFileName());
+            Files.setLastModifiedTime(tmpPath, lastModified);
+            Files.move(tmpPath, thumbnailPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    private static boolean isFresh(Path thumbnailPath, BasicFileAttributes attributes) throws IOException {
+        return Files.exists(thumbnailPath)
+                && Files.getLastModifiedTime(thumbnailPath).equals(attributes.lastModifiedTime());
+    }
+
+    /** PNG and GIF may be transparent, their thumbnails are PNG. The rest are JPEG. */
+    private static boolean hasAlpha(Path filePath) throws IOException {
+        String mediaType = FileManagerUtils.getMimeType(filePath);
+        return mediaType.equals("image/png") || mediaType.equals("image/gif");
+    }
+
+    private int closestSize(int size) {
+        List<Integer> available = getSizes();
+        return available.stream()
+                .filter(candidate -> candidate >= size)
+                .findFirst()
+                .orElse(available.get(available.size() - 1));
+    }
+
+    private List<Integer> getSizes() {
+        return sizes.stream().filter(size -> size > 0).sorted().distinct().toList();
+    }
+
+    private Path thumbnailPath(Path filePath, int size) throws IOException {
+        String name = key(filePath) + "-" + size + (hasAlpha(filePath) ? ".png" : ".jpg");
+        return getThumbsDir().resolve(name);
+    }
+
+    private Path getRoot() {
+        return Path.of(pathString).toAbsolutePath().normalize();
+    }
+
+    private Path getThumbsDir() throws IOException {
+        return Files.createDirectories(getRoot().resolve(FileManagerUtils.INTERNAL_DIR).resolve(THUMBS_DIR));
+    }
+
+    private synchronized ThreadPoolExecutor getPool() {
+        if (pool == null)
+            pool = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize));
+        return pool;
+    }
+
+    static String key(Path filePath) {
+        return HexFormat.of().formatHex(sha256().digest(
+                filePath.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
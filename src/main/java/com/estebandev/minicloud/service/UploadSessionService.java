@@ -0,0 +1,28 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.estebandev.minicloud.entity.UploadSession;
+import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.ByteRange;
+
+public interface UploadSessionService {
+    UploadSession create(String pathString, String fileName, long size)
+            throws FileNotFoundException, FileIsNotDirectoryException, IOException, ServiceException;
+
+    UploadSession find(String pathString, String id) throws ServiceException;
+
+    List<ByteRange> receivedRanges(UploadSession session);
+
+    List<ByteRange> writeChunk(String pathString, String id, long offset, InputStream inputStream)
+            throws IOException, ServiceException;
+
+    Path complete(String pathString, String id) throws IOException, ServiceException;
+
+    void cancel(String pathString, String id) throws IOException, ServiceException;
+}
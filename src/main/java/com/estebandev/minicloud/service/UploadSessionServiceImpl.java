@@ -0,0 +1,205 @@
+package com.estebandev.minicloud.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.entity.UploadChunk;
+import com.estebandev.minicloud.entity.UploadSession;
+import com.estebandev.minicloud.repository.UploadChunkRepository;
+import com.estebandev.minicloud.repository.UploadSessionRepository;
+import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.ByteRange;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resumable uploads. The target size is allocated when the session is
+ * created and every chunk is a positional write into that part file, so
+ * chunks can arrive in any order and in parallel. Sessions and received
+ * chunks live in the database and survive a restart. Abandoned sessions are
+ * purged on a timer.
+ */
+@Service
+@RequiredArgsConstructor
+@Setter
+public class UploadSessionServiceImpl implements UploadSessionService {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final FileManagerService fileManagerService;
+    private final UserService userService;
+
+    @Value("${spring.servlet.multipart.max-file-size:10GB}")
+    private DataSize maxUploadSize = DataSize.ofGigabytes(10);
+
+    @Value("${var.upload.session-ttl:24h}")
+    private Duration sessionTtl = Duration.ofHours(24);
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public UploadSession create(String pathString, String fileName, long size)
+            throws FileNotFoundException, FileIsNotDirectoryException, IOException, ServiceException {
+        if (size < 0 || size > maxUploadSize.toBytes())
+            throw new ServiceException("The file size is not valid");
+
+        Path root = fileManagerService.getRoot();
+        Path dirPath = root.resolve(pathString).normalize();
+
+        if (!Files.exists(dirPath))
+            throw new FileNotFoundException("File does not exist");
+        if (!Files.isDirectory(dirPath))
+            throw new FileIsNotDirectoryException(dirPath + " is not directory");
+
+        Path filePath = FileManagerUtils.resolveUploadName(dirPath, fileName);
+        String id = UUID.randomUUID().toString();
+        try (RandomAccessFile partFile = new RandomAccessFile(getPartPath(dirPath, id).toFile(), "rw")) {
+            partFile.setLength(size);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = UploadSession.builder()
+                .id(id)
+                .owner(userService.getUserFromAuth().getEmail())
+                .directory(root.relativize(dirPath).toString())
+                .fileName(filePath.getFileName().toString())
+                .size(size)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        return uploadSessionRepository.save(session);
+    }
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public UploadSession find(String pathString, String id) throws ServiceException {
+        UploadSession session = uploadSessionRepository.findById(id)
+                .orElseThrow(() -> new ServiceException("The upload session does not exist"));
+
+        Path root = fileManagerService.getRoot();
+        String directory = root.relativize(root.resolve(pathString).normalize()).toString();
+
+        if (!session.getOwner().equalsIgnoreCase(userService.getUserFromAuth().getEmail())
+                || !session.getDirectory().equals(directory))
+            throw new ServiceException("The upload session does not exist");
+
+        return session;
+    }
+
+    @Override
+    public List<ByteRange> receivedRanges(UploadSession session) {
+        return ByteRange.merge(uploadChunkRepository.findBySessionIdOrderByOffset(session.getId()).stream()
+                .map(chunk -> new ByteRange(chunk.getOffset(), chunk.getOffset() + chunk.getLength()))
+                .toList());
+    }
+
+    @Override
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public List<ByteRange> writeChunk(String pathString, String id, long offset, InputStream inputStream)
+            throws IOException, ServiceException {
+        UploadSession session = find(pathString, id);
+        if (offset < 0 || offset > session.getSize())
+            throw new ServiceException("The offset is out of the file");
+
+        long written;
+        try (FileChannel channel = FileChannel.open(getPartPath(session), StandardOpenOption.WRITE)) {
+            written = FileManagerUtils.transfer(inputStream, channel, offset, session.getSize() - offset);
+            channel.force(false);
+        }
+
+        if (written > 0) {
+            uploadChunkRepository.save(UploadChunk.builder()
+                    .session(session)
+                    .offset(offset)
+                    .length(written)
+                    .build());
+        }
+        uploadSessionRepository.touch(id, LocalDateTime.now());
+
+        return receivedRanges(session);
+    }
+
+    @Override
+    @Transactional
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public Path complete(String pathString, String id) throws IOException, ServiceException {
+        UploadSession session = find(pathString, id);
+        List<ByteRange> received = receivedRanges(session);
+
+        boolean completed = session.getSize() == 0 || (received.size() == 1
+                && received.get(0).start() == 0
+                && received.get(0).end() == session.getSize());
+        if (!completed)
+            throw new ServiceException("The upload is not complete");
+
+        Path root = fileManagerService.getRoot();
+        Path filePath = root.resolve(session.getDirectory()).resolve(session.getFileName());
+        filePath = fileManagerService.commitUpload(getPartPath(session), filePath);
+
+        remove(session);
+        return root.relativize(filePath);
+    }
+
+    @Override
+    @Transactional
+    @PreAuthorize("@authF.decide(#pathString, false,#root)")
+    public void cancel(String pathString, String id) throws IOException, ServiceException {
+        UploadSession session = find(pathString, id);
+        Files.deleteIfExists(getPartPath(session));
+        remove(session);
+    }
+
+    /**
+     * Sessions not touched for {@code var.upload.session-ttl} are abandoned:
+     * their preallocated part files and chunk rows are removed.
+     */
+    @Scheduled(fixedDelayString = "${var.upload.cleanup-interval:PT1H}",
+            initialDelayString = "${var.upload.cleanup-interval:PT1H}")
+    public void removeExpired() {
+        List<UploadSession> expired = uploadSessionRepository
+                .findByUpdatedAtBefore(LocalDateTime.now().minus(sessionTtl));
+
+        for (UploadSession session : expired) {
+            try {
+                Files.deleteIfExists(getPartPath(session));
+                remove(session);
+            } catch (IOException e) {
+                logger.warn("Could not remove expired upload {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void remove(UploadSession session) {
+        uploadChunkRepository.deleteBySessionId(session.getId());
+        uploadSessionRepository.deleteById(session.getId());
+    }
+
+    private Path getPartPath(UploadSession session) {
+        return getPartPath(fileManagerService.getRoot().resolve(session.getDirectory()), session.getId());
+    }
+
+    private Path getPartPath(Path dirPath, String id) {
+        return dirPath.resolve(FileManagerUtils.UPLOAD_TMP_PREFIX + id + ".part");
+    }
+}
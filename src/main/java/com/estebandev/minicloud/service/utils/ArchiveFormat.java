@@ -0,0 +1,48 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.util.Locale;
+
+/**
+ * Archive formats of the directory download.
+ */
+public enum ArchiveFormat {
+    ZIP("application/zip", ".zip"),
+    TAR("application/x-tar", ".tar"),
+    TAR_GZ("application/gzip", ".tar.gz");
+
+    private final String contentType;
+    private final String extension;
+
+    ArchiveFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param format {@code zip}, {@code tar} or {@code tar.gz}
+     */
+    public static ArchiveFormat parse(String format) {
+        try {
+            return valueOf(format.toUpperCase(Locale.ROOT).replace('.', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown archive format " + format);
+        }
+    }
+
+    /**
+     * @param method {@code stored} or {@code deflated}
+     */
+    public static boolean isStored(String method) {
+        if (!method.equalsIgnoreCase("stored") && !method.equalsIgnoreCase("deflated"))
+            throw new IllegalArgumentException("The method must be stored or deflated");
+        return method.equalsIgnoreCase("stored");
+    }
+}
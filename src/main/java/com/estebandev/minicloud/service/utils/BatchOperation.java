@@ -0,0 +1,66 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a batch request.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperation {
+    public enum Type {
+        MKDIR, RENAME, DELETE, MOVE, COPY;
+
+        @JsonCreator
+        public static Type parse(String type) {
+            try {
+                return valueOf(type.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown operation " + type);
+            }
+        }
+
+        @JsonValue
+        public String toJson() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private Type op;
+    private String path;
+    /** New name for {@code rename}, name of the new directory for {@code mkdir}. */
+    private String name;
+    /** Destination directory for {@code move} and {@code copy}. */
+    private String target;
+    /** Deletes a directory with everything inside in the background. */
+    private boolean recursive;
+
+    /**
+     * The directory whose entries the operation changes: the path itself for
+     * {@code mkdir}, its parent otherwise.
+     */
+    public String directory() {
+        Path normalized = Path.of(path).normalize();
+        if (op == Type.MKDIR)
+            return normalized.toString();
+        return normalized.getParent() == null ? "" : normalized.getParent().toString();
+    }
+
+    /**
+     * Whether the operation also writes outside of its directory.
+     */
+    public boolean isCrossDirectory() {
+        return op == Type.MOVE || op == Type.COPY;
+    }
+}
@@ -0,0 +1,26 @@
+package com.estebandev.minicloud.service.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BatchResult {
+    private final int index;
+    private final BatchOperation operation;
+    /** The path the operation produced, like the new name of a rename. */
+    private final String path;
+    private final Exception error;
+
+    public static BatchResult success(int index, BatchOperation operation, String path) {
+        return new BatchResult(index, operation, path, null);
+    }
+
+    public static BatchResult failure(int index, BatchOperation operation, Exception error) {
+        return new BatchResult(index, operation, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,392 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * File stored as independently deflated blocks plus an index of their
+ * offsets, so a range is read by inflating only the blocks it covers.
+ *
+ * Every block starts a new raw deflate stream and every block but the last
+ * ends with a sync flush, so the blocks put together are still one valid
+ * deflate stream. With a gzip header and the checksum kept in the trailer
+ * they are sent as is to clients accepting gzip.
+ *
+ * Layout, big endian: magic and block size, the blocks, one offset per block
+ * plus the end of the last one (relative to the first block), then the
+ * uncompressed size, its CRC-32, the block count and a closing magic.
+ *
+ * Whether a file is a container is never decided from its content alone: a
+ * user can upload anything, magics included. {@link #compress} marks the file
+ * with the {@code user.minicloud.compressed} extended attribute, which moves
+ * with it through renames, hard links and attribute preserving copies, and
+ * only marked files are opened. A file losing the mark, for example through
+ * a backup without extended attributes, is served as the raw container.
+ */
+public class BlockCompressedFile implements Closeable {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    /** Bigger blocks are refused, each read allocates one. */
+    public static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+    /** The JDK adds the {@code user.} namespace on Linux. */
+    private static final String ATTRIBUTE = "minicloud.compressed";
+    private static final int HEADER_MAGIC = 0x4d435a31;
+    private static final int TRAILER_MAGIC = 0x4d435a45;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 20;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+            (byte) 0xff };
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final long[] offsets;
+    private final long size;
+    private final int crc;
+    private final Inflater inflater = new Inflater(true);
+    private byte[] compressedBlock = new byte[0];
+    private byte[] block;
+    private int blockIndex = -1;
+
+    private BlockCompressedFile(FileChannel channel, int blockSize, long[] offsets, long size, int crc) {
+        this.channel = channel;
+        this.blockSize = blockSize;
+        this.offsets = offsets;
+        this.size = size;
+        this.crc = crc;
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * @return the opened file, or {@code null} if it isn't a compressible type
+     *         or isn't stored compressed. Other types are not even opened.
+     */
+    public static BlockCompressedFile openIfCompressed(Path filePath) throws IOException {
+        return FileManagerUtils.isCompressible(filePath) ? open(filePath) : null;
+    }
+
+    /**
+     * @return the opened file, or {@code null} if it isn't marked as a
+     *         container or its layout is not valid
+     */
+    public static BlockCompressedFile open(Path filePath) throws IOException {
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        try {
+            BlockCompressedFile file = isMarked(filePath) ? read(channel) : null;
+            if (file == null)
+                channel.close();
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static boolean isCompressed(Path filePath) throws IOException {
+        try (BlockCompressedFile file = open(filePath)) {
+            return file != null;
+        }
+    }
+
+    /**
+     * Reads the header, the trailer and the index. The magics and the layout
+     * must all agree and the sizes must be within bounds, so even a marked
+     * file that was tampered with can't make a read allocate more than a
+     * block.
+     */
+    private static BlockCompressedFile read(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE + 16 + TRAILER_SIZE)
+            return null;
+
+        ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+        if (header.getInt() != HEADER_MAGIC)
+            return null;
+        int blockSize = header.getInt();
+
+        ByteBuffer trailer = readFully(channel, fileSize - TRAILER_SIZE, TRAILER_SIZE);
+        long size = trailer.getLong();
+        int crc = trailer.getInt();
+        int blockCount = trailer.getInt();
+        if (trailer.getInt() != TRAILER_MAGIC || blockSize <= 0 || blockSize > MAX_BLOCK_SIZE || blockCount <= 0
+                || size < 0 || size / blockSize + (size % blockSize == 0 ? 0 : 1) > blockCount)
+            return null;
+
+        long indexSize = (blockCount + 1L) * Long.BYTES;
+        if (fileSize - TRAILER_SIZE - indexSize < HEADER_SIZE)
+            return null;
+
+        ByteBuffer index = readFully(channel, fileSize - TRAILER_SIZE - indexSize, (int) indexSize);
+        long[] offsets = new long[blockCount + 1];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = index.getLong();
+            if (offsets[i] < 0 || (i > 0 && (offsets[i] < offsets[i - 1]
+                    || offsets[i] - offsets[i - 1] > maxCompressedLength(blockSize))))
+                return null;
+        }
+        if (offsets[0] != 0 || HEADER_SIZE + offsets[blockCount] + indexSize + TRAILER_SIZE != fileSize)
+            return null;
+
+        return new BlockCompressedFile(channel, blockSize, offsets, size, crc);
+    }
+
+    /**
+     * Writes {@code source} compressed to {@code target}, which must not exist,
+     * and marks it as a container.
+     *
+     * @throws FileSystemException if the file system doesn't support extended
+     *                             attributes, see {@link #mark}
+     */
+    public static void compress(Path source, Path target, int blockSize, int level) throws IOException {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE)
+            throw new IllegalArgumentException("Invalid block size " + blockSize);
+
+        long sourceSize = Files.size(source);
+        int blockCount = (int) Math.max(1, (sourceSize + blockSize - 1) / blockSize);
+        long[] offsets = new long[blockCount + 1];
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(level, true);
+
+        try (InputStream inputStream = Files.newInputStream(source);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)))) {
+            out.writeInt(HEADER_MAGIC);
+            out.writeInt(blockSize);
+
+            byte[] input = new byte[blockSize];
+            byte[] chunk = new byte[blockSize + 64];
+            long total = 0;
+            for (int i = 0; i < blockCount; i++) {
+                int length = inputStream.readNBytes(input, 0, blockSize);
+                crc.update(input, 0, length);
+                total += length;
+
+                deflater.reset();
+                deflater.setInput(input, 0, length);
+                long written = 0;
+                if (i == blockCount - 1) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int count = deflater.deflate(chunk);
+                        out.write(chunk, 0, count);
+                        written += count;
+                    }
+                } else {
+                    int count;
+                    do {
+                        count = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                        out.write(chunk, 0, count);
+                        written += count;
+                    } while (count == chunk.length);
+                }
+                offsets[i + 1] = offsets[i] + written;
+            }
+
+            if (total != sourceSize || inputStream.read() != -1)
+                throw new IOException("The file changed while it was being compressed");
+
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(total);
+            out.writeInt((int) crc.getValue());
+            out.writeInt(blockCount);
+            out.writeInt(TRAILER_MAGIC);
+        } finally {
+            deflater.end();
+        }
+        mark(target);
+    }
+
+    /**
+     * Marks the file as a container written by {@link #compress}.
+     *
+     * @throws FileSystemException if the file system doesn't support extended
+     *                             attributes
+     */
+    public static void mark(Path filePath) throws IOException {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(filePath, UserDefinedFileAttributeView.class);
+        if (view == null)
+            throw new FileSystemException(filePath.toString(), null, "Extended attributes are not supported");
+        view.write(ATTRIBUTE, ByteBuffer.wrap(new byte[] { 1 }));
+    }
+
+    private static boolean isMarked(Path filePath) throws IOException {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(filePath, UserDefinedFileAttributeView.class);
+        if (view == null)
+            return false;
+
+        try {
+            return view.size(ATTRIBUTE) == 1;
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (FileSystemException e) {
+            return false;
+        }
+    }
+
+    /** Raw deflate never grows a block by more than a few bytes per 16 KiB. */
+    private static long maxCompressedLength(int blockSize) {
+        return blockSize + blockSize / 8L + 1024;
+    }
+
+    /** Size of the original content. */
+    public long size() {
+        return size;
+    }
+
+    /** CRC-32 of the original content. */
+    public long crc() {
+        return crc & 0xffffffffL;
+    }
+
+    /** Size of the content served as gzip, header and trailer included. */
+    public long gzipSize() {
+        return GZIP_HEADER.length + offsets[offsets.length - 1] + 8;
+    }
+
+    /**
+     * Reads from {@code position} of the original content, at most up to the
+     * end of the block it falls in.
+     *
+     * @return the number of bytes read, or -1 at the end of the content
+     */
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        if (position >= size)
+            return -1;
+        if (len == 0)
+            return 0;
+
+        int index = (int) (position / blockSize);
+        byte[] content = block(index);
+        int start = (int) (position - (long) index * blockSize);
+        int count = Math.min(len, blockLength(index) - start);
+        System.arraycopy(content, start, b, off, count);
+        return count;
+    }
+
+    /**
+     * Stream over {@code [start, end)} of the original content. It reads
+     * through this file, which must stay open while it is used.
+     */
+    public InputStream newInputStream(long start, long end) {
+        return new InputStream() {
+            private long position = start;
+            private final long limit = Math.min(end, size);
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= limit)
+                    return -1;
+                int count = BlockCompressedFile.this.read(position, b, off, (int) Math.min(len, limit - position));
+                position += count;
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Writes the content as a gzip stream. The deflated blocks are copied
+     * straight from the file, nothing is compressed again.
+     */
+    public void transferGzipTo(WritableByteChannel target) throws IOException {
+        writeFully(target, ByteBuffer.wrap(GZIP_HEADER));
+
+        long position = HEADER_SIZE;
+        long end = HEADER_SIZE + offsets[offsets.length - 1];
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0)
+                throw new IOException("The file changed while it was being sent");
+            position += transferred;
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(8);
+        for (int i = 0; i < 4; i++) {
+            trailer.put((byte) (crc >>> (8 * i)));
+        }
+        for (int i = 0; i < 4; i++) {
+            trailer.put((byte) (size >>> (8 * i)));
+        }
+        writeFully(target, trailer.flip());
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    private int blockLength(int index) {
+        return (int) Math.min(blockSize, size - (long) index * blockSize);
+    }
+
+    private byte[] block(int index) throws IOException {
+        if (index == blockIndex)
+            return block;
+
+        int compressedLength = (int) (offsets[index + 1] - offsets[index]);
+        if (compressedBlock.length < compressedLength)
+            compressedBlock = new byte[compressedLength];
+        ByteBuffer buffer = ByteBuffer.wrap(compressedBlock, 0, compressedLength);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, HEADER_SIZE + offsets[index] + buffer.position()) == -1)
+                throw new EOFException("The compressed file is truncated");
+        }
+
+        int length = blockLength(index);
+        blockIndex = -1;
+        inflater.reset();
+        inflater.setInput(compressedBlock, 0, compressedLength);
+        try {
+            int inflated = 0;
+            while (inflated < length) {
+                int count = inflater.inflate(block, inflated, length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.finished()))
+                    throw new IOException("The compressed block " + index + " is corrupt");
+                inflated += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("The compressed block " + index + " is corrupt", e);
+        }
+
+        blockIndex = index;
+        return block;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1)
+                throw new EOFException();
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(WritableByteChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+}
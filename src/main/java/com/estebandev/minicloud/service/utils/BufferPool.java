@@ -0,0 +1,36 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Small pool of fixed size heap buffers used by the streaming file writers, so
+ * large transfers do not allocate a new buffer per request.
+ */
+public class BufferPool {
+    public static final int BUFFER_SIZE = 1024 * 1024;
+    private static final BufferPool SHARED = new BufferPool(BUFFER_SIZE, 32);
+
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    public BufferPool(int bufferSize, int capacity) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer == null ? ByteBuffer.allocate(bufferSize) : buffer.clear();
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize)
+            buffers.offer(buffer.clear());
+    }
+}
@@ -0,0 +1,34 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Half open byte interval {@code [start, end)}.
+ */
+public record ByteRange(long start, long end) {
+
+    public long length() {
+        return end - start;
+    }
+
+    /**
+     * Sorts the ranges and joins the ones that overlap or touch.
+     */
+    public static List<ByteRange> merge(List<ByteRange> ranges) {
+        List<ByteRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(ByteRange::start));
+
+        List<ByteRange> merged = new ArrayList<>();
+        for (ByteRange range : sorted) {
+            if (!merged.isEmpty() && merged.get(merged.size() - 1).end() >= range.start()) {
+                ByteRange last = merged.remove(merged.size() - 1);
+                merged.add(new ByteRange(last.start(), Math.max(last.end(), range.end())));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+}
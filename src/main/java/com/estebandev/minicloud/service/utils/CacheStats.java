@@ -0,0 +1,19 @@
+package com.estebandev.minicloud.service.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStats {
+    long size;
+    long hits;
+    long misses;
+    long evictions;
+    long invalidations;
+    double hitRate;
+}
@@ -0,0 +1,42 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Layout of a page of a directory's images drawn in a single image, one
+ * square tile per image, row by row. Each thumbnail is fitted and centered in
+ * its tile.
+ *
+ * The version changes whenever an image of the page is added, removed or
+ * modified.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContactSheet {
+    String version;
+    int page;
+    boolean hasMore;
+    int tileSize;
+    int columns;
+    int width;
+    int height;
+    List<Tile> tiles;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tile {
+        String name;
+        String path;
+        int x;
+        int y;
+    }
+}
@@ -0,0 +1,18 @@
+package com.estebandev.minicloud.service.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DedupStats {
+    long blobs;
+    long references;
+    long physicalBytes;
+    long logicalBytes;
+    double ratio;
+}
@@ -0,0 +1,61 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * Progress of a background recursive delete. Counters are updated by the
+ * worker threads and read by status requests.
+ */
+@Getter
+public class DeleteJob {
+    public enum Status {
+        RUNNING, DONE, FAILED
+    }
+
+    private final String id;
+    private final String owner;
+    private final String path;
+    private final Instant createdAt = Instant.now();
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile Instant finishedAt;
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicLong total = new AtomicLong();
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicLong deleted = new AtomicLong();
+
+    public DeleteJob(String id, String owner, String path) {
+        this.id = id;
+        this.owner = owner;
+        this.path = path;
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    public void setTotal(long total) {
+        this.total.set(total);
+    }
+
+    public void addDeleted(long count) {
+        deleted.addAndGet(count);
+    }
+
+    public void finish(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = error == null ? Status.DONE : Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+}
@@ -0,0 +1,22 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Where the UUID linking a directory to its metadata rows is kept.
+ */
+public interface DirectoryIdentityStore {
+    /**
+     * @return the UUID of the directory, or {@code null} if this store has
+     *         none for it
+     */
+    UUID read(Path dir) throws IOException;
+
+    /** Sets the UUID of the directory, replacing any previous one. */
+    void write(Path dir, UUID uuid) throws IOException;
+
+    /** @return whether the directory had a UUID in this store */
+    boolean delete(Path dir) throws IOException;
+}
@@ -1,6 +1,7 @@
 package com.estebandev.minicloud.service.utils;
 
 import java.nio.file.Path;
+import java.time.Instant;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,6 +17,11 @@ public class FileData {
     Path path;
     String mediaType;
     double size;
+    long sizeBytes;
+    Instant lastModified;
+    Instant created;
+    String fileKey;
     boolean directory; 
     boolean editable;
+    boolean thumbnail;
 }
@@ -0,0 +1,8 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface FileDataConsumer {
+    void accept(FileData fileData) throws IOException;
+}
@@ -2,17 +2,45 @@ package com.estebandev.minicloud.service.utils;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import com.estebandev.minicloud.component.MediatypeParser;
 
 public class FileManagerUtils {
+    public static final String METADATA_PREFIX = ".dir";
+    public static final String UPLOAD_TMP_PREFIX = ".upload-";
+    public static final String INTERNAL_DIR = ".minicloud";
+
     public static String formatName(String name) {
         return name.trim().replaceAll("[ /%\\\\:*?\"'<>`]", "-");
     }
 
+    /**
+     * Resolves an uploaded file name inside {@code dirPath}, rejecting names
+     * that leave the directory or collide with the files the server keeps
+     * there.
+     */
+    public static Path resolveUploadName(Path dirPath, String fileName) {
+        if (fileName == null || fileName.isBlank())
+            throw new IllegalArgumentException("The file has no name");
+
+        Path filePath = dirPath.resolve(formatName(fileName)).normalize();
+        if (!dirPath.equals(filePath.getParent()) || isInternalFile(filePath))
+            throw new IllegalArgumentException("Invalid name " + fileName);
+        return filePath;
+    }
+
     public static double convertBytesToMegabytes(long bytes) {
         double result = (double) bytes / (1024 * 1024);
         return Math.round(result * 100.0) / 100.0;
@@ -47,6 +75,14 @@ public class FileManagerUtils {
         return MediatypeParser.getMediaType(fileName.substring(lastDotIndex + 1).toLowerCase());
     }
 
+    public static boolean isCompressible(Path filePath) throws IOException {
+        return filePath.getFileName() != null && MediatypeParser.isCompressible(getMimeType(filePath));
+    }
+
+    public static boolean isThumbnailable(Path filePath) throws IOException {
+        return filePath.getFileName() != null && MediatypeParser.isThumbnailable(getMimeType(filePath));
+    }
+
     public static void validateFile(Path filePath) throws IOException, FileNotFoundException {
         if (!Files.exists(filePath)) {
             throw new FileNotFoundException();
@@ -59,6 +95,77 @@ public class FileManagerUtils {
         }
     }
 
+    /**
+     * Files managed by minicloud itself, never listed nor served to users.
+     */
+    public static boolean isInternalFile(Path filePath) {
+        Path fileName = filePath.getFileName();
+        if (fileName == null)
+            return false;
+
+        String name = fileName.toString();
+        return name.startsWith(METADATA_PREFIX) || name.startsWith(UPLOAD_TMP_PREFIX)
+                || name.equals(INTERNAL_DIR);
+    }
+
+    /**
+     * Copies the stream into the channel starting at {@code position} using a
+     * pooled buffer. Writes are positional, so several callers can fill
+     * different regions of the same file concurrently.
+     *
+     * @return the number of bytes written
+     * @throws IOException if the stream is longer than {@code maxBytes}
+     */
+    public static long transfer(InputStream inputStream, FileChannel channel, long position, long maxBytes)
+            throws IOException {
+        BufferPool pool = BufferPool.shared();
+        ByteBuffer buffer = pool.acquire();
+        long total = 0;
+        try {
+            int read;
+            while ((read = inputStream.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+                buffer.position(buffer.position() + read);
+                total += read;
+                if (total > maxBytes)
+                    throw new IOException("The file exceeds the maximum size of " + maxBytes + " bytes");
+
+                if (!buffer.hasRemaining()) {
+                    position = drain(buffer, channel, position);
+                }
+            }
+            drain(buffer, channel, position);
+            return total;
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    private static long drain(ByteBuffer buffer, FileChannel channel, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    /**
+     * SHA-256 of the path, size, modification time and file key: it changes
+     * whenever the file is replaced or written.
+     */
+    public static String contentKey(Path filePath, BasicFileAttributes attributes) {
+        String identity = filePath.toAbsolutePath().normalize()
+                + "\n" + attributes.size()
+                + "\n" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                + "\n" + attributes.fileKey();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(identity.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public static Path getParent(String pathString) {
         Path path = Path.of(pathString).getParent();
         return path == null ? Path.of(".") : path;
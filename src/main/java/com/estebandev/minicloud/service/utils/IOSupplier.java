@@ -0,0 +1,8 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface IOSupplier<T> {
+    T get() throws IOException;
+}
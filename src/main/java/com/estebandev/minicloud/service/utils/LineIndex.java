@@ -0,0 +1,112 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Sparse index of the line starts of a text, built in one sequential pass.
+ *
+ * A line start is recorded whenever at least {@code granularity} bytes went
+ * by since the previous one, so the index grows with the size of the text and
+ * not with its number of lines, and reaching any line reads at most about
+ * {@code granularity} bytes past the closest entry.
+ */
+public class LineIndex {
+    public static final int DEFAULT_GRANULARITY = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String version;
+    private final long[] lines;
+    private final long[] offsets;
+    private final int entries;
+    private final long lineCount;
+    private final long size;
+
+    private LineIndex(String version, long[] lines, long[] offsets, int entries, long lineCount, long size) {
+        this.version = version;
+        this.lines = lines;
+        this.offsets = offsets;
+        this.entries = entries;
+        this.lineCount = lineCount;
+        this.size = size;
+    }
+
+    /**
+     * Reads {@code inputStream} to the end. Lines end with {@code \n}, a last
+     * line without it still counts.
+     *
+     * @param version identifies the content indexed, see
+     *                {@link FileManagerUtils#contentKey}
+     */
+    public static LineIndex build(String version, InputStream inputStream, int granularity) throws IOException {
+        long[] lines = new long[16];
+        long[] offsets = new long[16];
+        int entries = 1;
+        long lastIndexed = 0;
+        long line = 0;
+        long position = 0;
+        byte last = '\n';
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] != '\n')
+                    continue;
+
+                line++;
+                long start = position + i + 1;
+                if (start - lastIndexed >= granularity) {
+                    if (entries == lines.length) {
+                        lines = Arrays.copyOf(lines, entries * 2);
+                        offsets = Arrays.copyOf(offsets, entries * 2);
+                    }
+                    lines[entries] = line;
+                    offsets[entries] = start;
+                    entries++;
+                    lastIndexed = start;
+                }
+            }
+            if (read > 0)
+                last = buffer[read - 1];
+            position += read;
+        }
+
+        long lineCount = line + (last == '\n' ? 0 : 1);
+        return new LineIndex(version, lines, offsets, entries, lineCount, position);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public long lineCount() {
+        return lineCount;
+    }
+
+    /** Size in bytes of the text indexed. */
+    public long size() {
+        return size;
+    }
+
+    /** Number of line starts recorded. */
+    public int entries() {
+        return entries;
+    }
+
+    /** Closest indexed line at or before {@code line}. */
+    public long floorLine(long line) {
+        return lines[floor(line)];
+    }
+
+    /** Offset of {@link #floorLine(long)}. */
+    public long floorOffset(long line) {
+        return offsets[floor(line)];
+    }
+
+    private int floor(long line) {
+        int index = Arrays.binarySearch(lines, 0, entries, line);
+        return index >= 0 ? index : -index - 2;
+    }
+}
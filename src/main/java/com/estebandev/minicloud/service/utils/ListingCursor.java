@@ -0,0 +1,62 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of a paginated listing: the sort key of the last entry sent. It is
+ * handed to clients as an opaque url safe string.
+ */
+public record ListingCursor(ListingSort sort, boolean descending, long key, String fileName) {
+    private static final String SEPARATOR = ":";
+
+    public static ListingCursor after(FileData fileData, ListingSort sort, boolean descending) {
+        long key = switch (sort) {
+            case NAME -> 0;
+            case SIZE -> fileData.getSizeBytes();
+            case MTIME -> fileData.getLastModified().getEpochSecond() * 1_000_000_000L
+                    + fileData.getLastModified().getNano();
+        };
+        return new ListingCursor(sort, descending, key, fileData.getFileName());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or was made
+     *                                  for another order
+     */
+    public static ListingCursor decode(String cursor, ListingSort sort, boolean descending) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        if (parts.length != 4 || !parts[0].equals(sort.name()) || !parts[1].equals(Boolean.toString(descending)))
+            throw new IllegalArgumentException("The cursor does not match the requested order");
+
+        try {
+            return new ListingCursor(sort, descending, Long.parseLong(parts[2]), parts[3]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String value = sort.name() + SEPARATOR + descending + SEPARATOR + key + SEPARATOR + fileName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Entry with the cursor's sort key, to compare the listing against.
+     */
+    public FileData toFileData() {
+        return FileData.builder()
+                .fileName(fileName)
+                .sizeBytes(key)
+                .lastModified(Instant.ofEpochSecond(0, key))
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingPage {
+    List<FileData> entries;
+    String nextCursor;
+}
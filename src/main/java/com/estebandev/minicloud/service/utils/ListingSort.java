@@ -0,0 +1,41 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Orders of the paginated listing. Every order ends on the file name, which is
+ * unique inside a directory, so a cursor always points to a single entry.
+ */
+public enum ListingSort {
+    NAME(Comparator.comparing(FileData::getFileName)),
+    SIZE(Comparator.comparingLong(FileData::getSizeBytes).thenComparing(FileData::getFileName)),
+    MTIME(Comparator.comparing(FileData::getLastModified).thenComparing(FileData::getFileName));
+
+    private final Comparator<FileData> comparator;
+
+    ListingSort(Comparator<FileData> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<FileData> comparator(boolean descending) {
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    public static ListingSort parse(String sort) {
+        try {
+            return valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort " + sort);
+        }
+    }
+
+    /**
+     * @param order {@code asc} or {@code desc}
+     */
+    public static boolean isDescending(String order) {
+        if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc"))
+            throw new IllegalArgumentException("The order must be asc or desc");
+        return order.equalsIgnoreCase("desc");
+    }
+}
@@ -0,0 +1,185 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip stream that deflates fixed size blocks in parallel, like pigz.
+ *
+ * Each block is compressed as a raw deflate stream primed with the last 32 KiB
+ * of the previous block, so matches across the block boundary are not lost,
+ * and ends with a sync flush that leaves it on a byte boundary. The blocks are
+ * written in order, which makes the concatenation a single valid deflate
+ * stream. The checksum is computed on the caller thread while the blocks are
+ * being compressed.
+ *
+ * At most {@code 2 * parallelism} blocks are in flight, so memory is bounded
+ * whatever the size of the input.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    public static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    /** One raw deflater per worker thread and level, indexed by {@code level + 1}. */
+    private static final ThreadLocal<Deflater[]> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater[11]);
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private long inputSize;
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] previous;
+    private boolean finished;
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int parallelism)
+            throws IOException {
+        this(out, executor, parallelism, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int parallelism, int level)
+            throws IOException {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        this.out = out;
+        this.executor = executor;
+        this.level = level;
+        this.maxInFlight = Math.max(1, parallelism) * 2;
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished)
+            throw new IOException("The stream is finished");
+
+        crc.update(b, off, len);
+        inputSize += len;
+        while (len > 0) {
+            int count = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+
+            if (blockLength == BLOCK_SIZE) {
+                submit(false);
+                previous = block;
+                block = new byte[BLOCK_SIZE];
+                blockLength = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes the blocks that are already compressed. The current block is
+     * not cut short, that would hurt the ratio for no gain.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeFirst();
+        }
+        out.flush();
+    }
+
+    /**
+     * Compresses what is left, waits for every block and writes the trailer
+     * without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+
+        submit(true);
+        while (!pending.isEmpty()) {
+            writeFirst();
+        }
+
+        long value = crc.getValue();
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (value >>> (8 * i));
+            trailer[i + 4] = (byte) (inputSize >>> (8 * i));
+        }
+        out.write(trailer);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+            out.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        if (pending.size() >= maxInFlight)
+            writeFirst();
+
+        byte[] input = block;
+        int length = blockLength;
+        byte[] dictionary = previous;
+        pending.addLast(executor.submit(() -> deflate(input, length, dictionary, level, last)));
+    }
+
+    private void writeFirst() throws IOException {
+        try {
+            out.write(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    static byte[] deflate(byte[] input, int length, byte[] dictionary, int level, boolean last) {
+        Deflater[] deflaters = DEFLATERS.get();
+        Deflater deflater = deflaters[level + 1];
+        if (deflater == null)
+            deflater = deflaters[level + 1] = new Deflater(level, true);
+        deflater.reset();
+        if (dictionary != null)
+            deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+        deflater.setInput(input, 0, length);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        byte[] chunk = new byte[64 * 1024];
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                compressed.write(chunk, 0, count);
+            }
+        } else {
+            int count;
+            do {
+                count = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                compressed.write(chunk, 0, count);
+            } while (count == chunk.length);
+        }
+        return compressed.toByteArray();
+    }
+}
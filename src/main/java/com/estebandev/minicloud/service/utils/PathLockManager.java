@@ -0,0 +1,139 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical lock table keyed on normalized paths.
+ *
+ * Locking a path takes a read lock on each of its ancestors and the requested
+ * mode on the path itself, so writers on unrelated trees never contend and a
+ * writer on a directory excludes every reader or writer below it. Locks are
+ * always acquired in path order (ancestors first) to avoid deadlocks when an
+ * operation touches two paths, like a rename.
+ */
+public class PathLockManager {
+    private final Map<Path, Entry> table = new ConcurrentHashMap<>();
+
+    public PathLock readLock(Path path) throws InterruptedException {
+        return acquire(plan(false, path), Long.MAX_VALUE);
+    }
+
+    /**
+     * @return the held lock, or {@code null} if it could not be acquired in time
+     */
+    public PathLock tryWriteLock(long timeout, TimeUnit unit, Path... paths) throws InterruptedException {
+        return acquire(plan(true, paths), unit.toNanos(timeout));
+    }
+
+    int size() {
+        return table.size();
+    }
+
+    private TreeMap<Path, Boolean> plan(boolean write, Path... paths) {
+        TreeMap<Path, Boolean> plan = new TreeMap<>(PathLockManager::compare);
+        for (Path path : paths) {
+            Path normalized = path.toAbsolutePath().normalize();
+            for (Path parent = normalized.getParent(); parent != null; parent = parent.getParent()) {
+                plan.putIfAbsent(parent, false);
+            }
+            plan.merge(normalized, write, Boolean::logicalOr);
+        }
+        return plan;
+    }
+
+    private PathLock acquire(TreeMap<Path, Boolean> plan, long timeoutNanos) throws InterruptedException {
+        long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+        Deque<Held> held = new ArrayDeque<>(plan.size());
+
+        try {
+            for (Map.Entry<Path, Boolean> step : plan.entrySet()) {
+                Path path = step.getKey();
+                Entry entry = retain(path);
+                Lock lock = step.getValue() ? entry.lock.writeLock() : entry.lock.readLock();
+
+                boolean locked;
+                if (deadline == Long.MAX_VALUE) {
+                    lock.lockInterruptibly();
+                    locked = true;
+                } else {
+                    locked = lock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+
+                if (!locked) {
+                    release(path);
+                    unlockAll(held);
+                    return null;
+                }
+                held.push(new Held(path, lock));
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            unlockAll(held);
+            throw e;
+        }
+
+        return new PathLock(held);
+    }
+
+    private Entry retain(Path path) {
+        return table.compute(path, (key, entry) -> {
+            Entry result = entry == null ? new Entry() : entry;
+            result.references++;
+            return result;
+        });
+    }
+
+    private void release(Path path) {
+        table.computeIfPresent(path, (key, entry) -> --entry.references == 0 ? null : entry);
+    }
+
+    private void unlockAll(Deque<Held> held) {
+        while (!held.isEmpty()) {
+            Held h = held.pop();
+            h.lock.unlock();
+            release(h.path);
+        }
+    }
+
+    private static int compare(Path a, Path b) {
+        int common = Math.min(a.getNameCount(), b.getNameCount());
+        for (int i = 0; i < common; i++) {
+            int result = a.getName(i).compareTo(b.getName(i));
+            if (result != 0)
+                return result;
+        }
+        return Integer.compare(a.getNameCount(), b.getNameCount());
+    }
+
+    private static class Entry {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private int references;
+    }
+
+    private record Held(Path path, Lock lock) {
+    }
+
+    public class PathLock implements AutoCloseable {
+        private final Deque<Held> held;
+
+        private PathLock(Deque<Held> held) {
+            this.held = held;
+        }
+
+        public void unlock() {
+            unlockAll(held);
+        }
+
+        @Override
+        public void close() {
+            unlock();
+        }
+    }
+}
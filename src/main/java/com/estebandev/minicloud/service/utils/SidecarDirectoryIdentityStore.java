@@ -0,0 +1,68 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Keeps the UUID in a {@code .dirid} file inside the directory: a magic and
+ * the 16 bytes of the UUID, big endian. Works on any file system and is read
+ * without a parser. The name starts with {@link FileManagerUtils#METADATA_PREFIX}
+ * so it is never listed.
+ */
+public class SidecarDirectoryIdentityStore implements DirectoryIdentityStore {
+    public static final String FILE_NAME = ".dirid";
+    private static final int MAGIC = 0x4d434944;
+    private static final int SIZE = 20;
+
+    @Override
+    public UUID read(Path dir) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE + 1);
+        try (SeekableByteChannel channel = Files.newByteChannel(dir.resolve(FILE_NAME), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        buffer.flip();
+        if (buffer.remaining() != SIZE || buffer.getInt() != MAGIC)
+            throw new IOException("Invalid identity file in " + dir);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Written next to its final name and moved over it, so it is never seen
+     * half written.
+     */
+    @Override
+    public void write(Path dir, UUID uuid) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(MAGIC).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).flip();
+
+        Path tmpPath = dir.resolve(FILE_NAME + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (SeekableByteChannel channel = Files.newByteChannel(tmpPath, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tmpPath, dir.resolve(FILE_NAME), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    @Override
+    public boolean delete(Path dir) throws IOException {
+        return Files.deleteIfExists(dir.resolve(FILE_NAME));
+    }
+}
@@ -0,0 +1,175 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal ustar writer. Names longer than the header allows, non ASCII names
+ * and files over 8 GiB get a pax extended header before their entry, so the
+ * archive has no size limit and keeps the full path.
+ *
+ * Entries are written in the same way as with {@link java.util.zip.ZipOutputStream}:
+ * {@link #putEntry}, the content with {@link #write}, then {@link #closeEntry()}.
+ */
+public class TarOutputStream extends FilterOutputStream {
+    static final int BLOCK_SIZE = 512;
+    private static final int NAME_LENGTH = 100;
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final byte[] PADDING = new byte[BLOCK_SIZE];
+
+    private long remaining;
+    private long written;
+    private boolean entryOpen;
+    private boolean finished;
+
+    public TarOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Starts a new entry. Directory names get a trailing {@code /} and no
+     * content.
+     *
+     * @param mtime modification time in milliseconds
+     */
+    public void putEntry(String name, long size, long mtime, boolean directory) throws IOException {
+        if (entryOpen)
+            closeEntry();
+        if (directory && !name.endsWith("/"))
+            name = name + "/";
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        boolean longName = nameBytes.length > NAME_LENGTH || nameBytes.length != name.length();
+        boolean largeFile = size > MAX_OCTAL_SIZE;
+        if (longName || largeFile)
+            writePaxHeader(name, size, longName, largeFile);
+
+        byte[] header = header(nameBytes, directory ? 0 : Math.min(size, MAX_OCTAL_SIZE), mtime,
+                directory ? (byte) '5' : (byte) '0', directory ? 0755 : 0644);
+        out.write(header);
+
+        remaining = directory ? 0 : size;
+        written = 0;
+        entryOpen = true;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (!entryOpen || len > remaining)
+            throw new IOException("Entry content exceeds the declared size");
+
+        out.write(b, off, len);
+        remaining -= len;
+        written += len;
+    }
+
+    public void closeEntry() throws IOException {
+        if (!entryOpen)
+            return;
+        if (remaining != 0)
+            throw new IOException("Entry is " + remaining + " bytes shorter than the declared size");
+
+        pad(written);
+        entryOpen = false;
+    }
+
+    /**
+     * Writes the two empty blocks that end the archive without closing the
+     * underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+
+        closeEntry();
+        out.write(PADDING);
+        out.write(PADDING);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        super.close();
+    }
+
+    private void writePaxHeader(String name, long size, boolean longName, boolean largeFile)
+            throws IOException {
+        StringBuilder records = new StringBuilder();
+        if (longName)
+            records.append(paxRecord("path", name));
+        if (largeFile)
+            records.append(paxRecord("size", Long.toString(size)));
+
+        byte[] content = records.toString().getBytes(StandardCharsets.UTF_8);
+        String headerName = "PaxHeader/" + asciiTail(name, NAME_LENGTH - 10);
+        out.write(header(headerName.getBytes(StandardCharsets.US_ASCII), content.length, 0, (byte) 'x', 0644));
+        out.write(content);
+        pad(content.length);
+    }
+
+    /**
+     * A pax record is {@code "<length> <key>=<value>\n"} where the length
+     * counts its own digits.
+     */
+    static String paxRecord(String key, String value) {
+        int base = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = base + Integer.toString(base).length();
+        if (Integer.toString(length).length() != Integer.toString(base).length())
+            length = base + Integer.toString(length).length();
+        return length + " " + key + "=" + value + "\n";
+    }
+
+    private static byte[] header(byte[] name, long size, long mtime, byte type, int mode) {
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(name, 0, header, 0, Math.min(name.length, NAME_LENGTH));
+        octal(header, 100, 8, mode);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, Math.max(0, mtime / 1000));
+        header[156] = type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int padding = length - 1 - digits.length();
+        for (int i = 0; i < padding; i++) {
+            header[offset + i] = '0';
+        }
+        byte[] bytes = digits.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset + padding, bytes.length);
+        header[offset + length - 1] = 0;
+    }
+
+    private static String asciiTail(String name, int length) {
+        String ascii = name.replaceAll("[^\\x20-\\x7e]", "_");
+        return ascii.length() <= length ? ascii : ascii.substring(ascii.length() - length);
+    }
+
+    private void pad(long length) throws IOException {
+        int rest = (int) (length % BLOCK_SIZE);
+        if (rest != 0)
+            out.write(PADDING, 0, BLOCK_SIZE - rest);
+    }
+}
@@ -0,0 +1,21 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextWindow {
+    String version;
+    long from;
+    long totalLines;
+    List<String> lines;
+    /** Some line was longer than the limit and was cut. */
+    boolean truncated;
+}
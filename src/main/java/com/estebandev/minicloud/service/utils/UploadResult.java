@@ -0,0 +1,27 @@
+package com.estebandev.minicloud.service.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class UploadResult {
+    /** The name the client sent. */
+    private final String name;
+    /** Where the file was stored, renamed if the name was taken. */
+    private final String path;
+    private final long size;
+    private final Exception error;
+
+    public static UploadResult success(String name, String path, long size) {
+        return new UploadResult(name, path, size, null);
+    }
+
+    public static UploadResult failure(String name, Exception error) {
+        return new UploadResult(name, null, 0, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.estebandev.minicloud.service.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.UUID;
+
+/**
+ * Keeps the UUID in the {@code user.minicloud.uuid} extended attribute of the
+ * directory, 16 bytes big endian. Reading it is a single getxattr, and it
+ * follows the directory through renames and moves with nothing to hide from
+ * listings.
+ *
+ * Tools copying trees without extended attributes (rsync without
+ * {@code -X}, some backups) lose it, {@link SidecarDirectoryIdentityStore}
+ * doesn't have that problem.
+ */
+public class XattrDirectoryIdentityStore implements DirectoryIdentityStore {
+    /** The JDK adds the {@code user.} namespace on Linux. */
+    public static final String ATTRIBUTE = "minicloud.uuid";
+    private static final String NOT_SUPPORTED = "Extended attributes are not supported";
+    /** strerror of ENOTSUP, which is EOPNOTSUPP on Linux. */
+    private static final String OPERATION_NOT_SUPPORTED = "Operation not supported";
+
+    /**
+     * A missing attribute is not told apart from a file system without
+     * extended attributes: both mean there is no UUID here.
+     */
+    @Override
+    public UUID read(Path dir) throws IOException {
+        UserDefinedFileAttributeView view = view(dir);
+        if (view == null)
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        try {
+            view.read(ATTRIBUTE, buffer);
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (FileSystemException e) {
+            return null;
+        }
+        if (buffer.position() != 16)
+            return null;
+        buffer.flip();
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @throws FileSystemException if the file system doesn't support extended
+     *                             attributes, see {@link #isNotSupported}, or
+     *                             refused this write
+     */
+    @Override
+    public void write(Path dir, UUID uuid) throws IOException {
+        UserDefinedFileAttributeView view = view(dir);
+        if (view == null)
+            throw new FileSystemException(dir.toString(), null, NOT_SUPPORTED);
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).flip();
+        view.write(ATTRIBUTE, buffer);
+    }
+
+    @Override
+    public boolean delete(Path dir) throws IOException {
+        UserDefinedFileAttributeView view = view(dir);
+        if (view == null)
+            return false;
+
+        try {
+            view.delete(ATTRIBUTE);
+            return true;
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (FileSystemException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether a failed {@link #write} means the file system has no extended
+     * attributes at all, rather than a refusal of this one write like a
+     * denied access or a full disk.
+     */
+    public static boolean isNotSupported(FileSystemException e) {
+        String reason = e.getReason();
+        return NOT_SUPPORTED.equals(reason) || OPERATION_NOT_SUPPORTED.equals(reason);
+    }
+
+    private static UserDefinedFileAttributeView view(Path dir) {
+        return Files.getFileAttributeView(dir, UserDefinedFileAttributeView.class);
+    }
+}
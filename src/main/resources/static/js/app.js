@@ -2,8 +2,73 @@ document.addEventListener("DOMContentLoaded", () => {
   dotButton();
   passwordInputButton();
   submitButtonsAnimation();
+  streamUploadForms();
 })
 
+function streamUploadForms() {
+  const formList = document.querySelectorAll("form[data-stream-upload]");
+
+  formList.forEach(form => {
+    form.addEventListener("submit", async (e) => {
+      const input = form.querySelector('input[type="file"]');
+      if (!window.fetch || input.files.length === 0) {
+        return;
+      }
+      e.preventDefault();
+
+      const path = form.querySelector('input[name="path"]').value;
+      const csrf = form.querySelector('input[name="_csrf"]');
+      if (input.files.length > 1) {
+        await multipartUpload(path, csrf, input.files);
+        return;
+      }
+
+      const file = input.files[0];
+      const headers = { "Content-Type": "application/octet-stream" };
+      if (csrf) {
+        headers["X-CSRF-TOKEN"] = csrf.value;
+      }
+
+      const url = `/files/action/upload/stream?path=${encodeURIComponent(path)}&name=${encodeURIComponent(file.name)}`;
+      const response = await fetch(url, { method: "PUT", headers: headers, body: file });
+      if (response.ok) {
+        location.href = `/files/action/go/dir?path=${encodeURIComponent(path)}`;
+        return;
+      }
+
+      const body = await response.json().catch(() => ({}));
+      location.href = `/files/error?msg=${encodeURIComponent(body.error || response.statusText)}`;
+    });
+  });
+}
+
+async function multipartUpload(path, csrf, files) {
+  const body = new FormData();
+  for (const file of files) {
+    body.append("file", file, file.name);
+  }
+  const headers = {};
+  if (csrf) {
+    headers["X-CSRF-TOKEN"] = csrf.value;
+  }
+
+  const url = `/files/action/upload/multipart?path=${encodeURIComponent(path)}`;
+  const response = await fetch(url, { method: "POST", headers: headers, body: body });
+  const results = await response.json().catch(() => ({}));
+  if (!response.ok) {
+    location.href = `/files/error?msg=${encodeURIComponent(results.error || response.statusText)}`;
+    return;
+  }
+
+  const failed = results.filter(result => result.error);
+  if (failed.length > 0) {
+    const names = failed.map(result => `${result.name}: ${result.error}`).join(", ");
+    location.href = `/files/error?msg=${encodeURIComponent("Couldn't upload " + names)}`;
+    return;
+  }
+  location.href = `/files/action/go/dir?path=${encodeURIComponent(path)}`;
+}
+
 function submitButtonsAnimation() {
   const formList = document.querySelectorAll("form");
 
@@ -1,5 +1,8 @@
 import hljs from 'https://cdnjs.cloudflare.com/ajax/libs/highlight.js/11.9.0/es/highlight.min.js';
 
+// Lines shown at once. Only the current window is kept, whatever the file size.
+const WINDOW_LINES = 500;
+
 document.addEventListener("DOMContentLoaded", () => {
   loadFile();
 });
@@ -20,21 +23,81 @@ function getFileExtension(filePath) {
 }
 
 async function renderCode(path) {
-  const code = await sendRequestAsync(path, "GET");
   const textContainer = document.querySelector("#text-container");
 
   if (textContainer == null)
     return;
 
+  const viewer = createTextViewer(textContainer);
+  setupCopyButton(() => viewer.text);
+  viewer.show = (from) => showWindow(viewer, path, from);
+  await viewer.show(0);
+}
+
+function createTextViewer(textContainer) {
+  const pager = document.createElement("div");
+  pager.className = "rfile_text_pager";
+  pager.style.display = "none";
+
+  const previous = createPagerButton("Previous");
+  const next = createPagerButton("Next");
+  const status = document.createElement("span");
+  const lineInput = document.createElement("input");
+  lineInput.type = "number";
+  lineInput.min = "1";
+  lineInput.placeholder = "Go to line";
+  pager.append(previous, status, next, lineInput);
+
+  const preElement = document.createElement("pre");
+  const codeElement = document.createElement("code");
+  preElement.appendChild(codeElement);
+  textContainer.append(pager, preElement);
+
+  const viewer = { pager, status, codeElement, from: 0, totalLines: 0, text: "" };
+  previous.addEventListener("click", () => viewer.show(Math.max(0, viewer.from - WINDOW_LINES)));
+  next.addEventListener("click", () => viewer.show(viewer.from + WINDOW_LINES));
+  lineInput.addEventListener("change", () => {
+    const line = parseInt(lineInput.value, 10);
+    if (line > 0)
+      viewer.show(Math.floor((line - 1) / WINDOW_LINES) * WINDOW_LINES);
+  });
+  viewer.previous = previous;
+  viewer.next = next;
+  return viewer;
+}
+
+function createPagerButton(text) {
+  const button = document.createElement("button");
+  button.className = "button-abstract";
+  button.textContent = text;
+  return button;
+}
+
+async function showWindow(viewer, path, from) {
   try {
-    const preElement = document.createElement("pre");
-    const codeElement = document.createElement("code");
-    preElement.appendChild(codeElement);
-    codeElement.innerHTML = escapeHTML(code);
-
-    hljs.highlightElement(codeElement);
-    setupCopyButton(code);
-    textContainer.appendChild(preElement);
+    const response = await fetch(
+      `/files/action/text?path=${encodeURIComponent(path)}&from=${from}&count=${WINDOW_LINES}`);
+    if (!response.ok) {
+      throw new Error(`HTTP error! Status: ${response.status}`);
+    }
+    const textWindow = await response.json();
+
+    viewer.from = textWindow.from;
+    viewer.totalLines = textWindow.totalLines;
+    viewer.text = textWindow.lines.join("\n");
+
+    viewer.codeElement.removeAttribute("data-highlighted");
+    viewer.codeElement.className = "";
+    viewer.codeElement.innerHTML = escapeHTML(viewer.text);
+    hljs.highlightElement(viewer.codeElement);
+
+    const paged = textWindow.from > 0 || textWindow.hasMore;
+    viewer.pager.style.display = paged ? "flex" : "none";
+    viewer.previous.disabled = textWindow.from === 0;
+    viewer.next.disabled = !textWindow.hasMore;
+    const last = textWindow.from + textWindow.lines.length;
+    viewer.status.textContent = `Lines ${Math.min(textWindow.from + 1, last)}-${last} of ${textWindow.totalLines}`
+      + (textWindow.truncated ? " (long lines cut)" : "");
   } catch (error) {
     handleError(error);
   }
@@ -81,11 +144,11 @@ async function sendRequestAsync(paramPath, method = "GET", isBinary = false) {
   }
 }
 
-function setupCopyButton(data) {
+function setupCopyButton(getText) {
   const copyButton = document.querySelector("#copyButton");
   copyButton.style.display = 'inline-block'; // Show the button
   copyButton.addEventListener("click", () => {
-    navigator.clipboard.writeText(data).then(() => {
+    navigator.clipboard.writeText(getText()).then(() => {
       copyButton.textContent = "Copied";
       setTimeout(() => {
         copyButton.textContent = "Copy";
@@ -0,0 +1,90 @@
+package com.estebandev.minicloud.benchmark;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Lists directories of 10k and 100k entries the way {@code listFiles} used to
+ * ({@code Files.list} plus one {@code Files.isDirectory} per entry), the way it
+ * would have to in order to show sizes and dates with the same helpers
+ * ({@code isDirectory}, {@code size} and {@code getLastModifiedTime}), and with a
+ * single {@code readAttributes} call per entry.
+ *
+ * Run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class DirectoryListingBenchmark {
+    private static final int ROUNDS = 5;
+
+    interface Lister {
+        long list(Path dir) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int entries : new int[] { 10_000, 100_000 }) {
+            Path dir = Files.createTempDirectory("listing-benchmark");
+            try {
+                for (int i = 0; i < entries; i++) {
+                    Files.write(dir.resolve("IMG_" + i + ".jpg"), new byte[i % 64]);
+                }
+
+                System.out.printf("%,d entries%n", entries);
+                run("isDirectory", dir, DirectoryListingBenchmark::listWithIsDirectory);
+                run("three stats", dir, DirectoryListingBenchmark::listWithThreeStats);
+                run("readAttributes", dir, DirectoryListingBenchmark::listWithReadAttributes);
+            } finally {
+                try (Stream<Path> files = Files.walk(dir)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    private static void run(String name, Path dir, Lister lister) throws IOException {
+        lister.list(dir);
+
+        long best = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            checksum += lister.list(dir);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %-15s %8.1f ms (checksum %d)%n", name, best / 1e6, checksum);
+    }
+
+    private static long listWithIsDirectory(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isDirectory).count();
+        }
+    }
+
+    private static long listWithThreeStats(Path dir) throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                boolean directory = Files.isDirectory(file);
+                total += Files.size(file) + (directory ? 1 : 0);
+                total += Files.getLastModifiedTime(file).toMillis() & 1;
+            }
+        }
+        return total;
+    }
+
+    private static long listWithReadAttributes(Path dir) throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                total += attributes.size() + (attributes.isDirectory() ? 1 : 0);
+                total += attributes.lastModifiedTime().toMillis() & 1;
+            }
+        }
+        return total;
+    }
+}
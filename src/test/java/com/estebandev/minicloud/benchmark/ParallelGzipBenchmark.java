@@ -0,0 +1,96 @@
+package com.estebandev.minicloud.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+import com.estebandev.minicloud.service.utils.ParallelGzipOutputStream;
+
+/**
+ * Compares {@link GZIPOutputStream} with {@link ParallelGzipOutputStream} on
+ * log-like text and reports the throughput per core.
+ *
+ * Run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class ParallelGzipBenchmark {
+    private static final int INPUT_MB = 256;
+    private static final int ROUNDS = 3;
+
+    interface Compressor {
+        OutputStream open(OutputStream out) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        byte[] input = input(INPUT_MB * 1024 * 1024);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        double serial = run("gzip", 1, input, GZIPOutputStream::new);
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            int parallelism = threads;
+            try {
+                double parallel = run("parallel x" + threads, threads, input,
+                        out -> new ParallelGzipOutputStream(out, pool, parallelism));
+                System.out.printf("%-14s speedup: %.2fx%n", "", parallel / serial);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static double run(String name, int threads, byte[] input, Compressor compressor) throws Exception {
+        double best = 0;
+        long compressedSize = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            CountingOutputStream counter = new CountingOutputStream();
+            long start = System.nanoTime();
+            try (OutputStream out = compressor.open(counter)) {
+                for (int offset = 0; offset < input.length; offset += 64 * 1024) {
+                    out.write(input, offset, Math.min(64 * 1024, input.length - offset));
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            best = Math.max(best, input.length / 1e6 / seconds);
+            compressedSize = counter.count;
+        }
+
+        System.out.printf("%-14s %8.1f MB/s %8.1f MB/s per core  ratio %.3f%n", name, best, best / threads,
+                (double) compressedSize / input.length);
+        return best;
+    }
+
+    /** Log lines with some repetition, close to what users archive. */
+    private static byte[] input(int size) {
+        String[] levels = { "INFO", "DEBUG", "WARN", "ERROR" };
+        String[] words = { "request", "upload", "directory", "session", "user", "file", "chunk", "lock" };
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder(size + 256);
+        while (text.length() < size) {
+            text.append("2024-01-").append(10 + random.nextInt(20)).append(' ')
+                    .append(levels[random.nextInt(levels.length)]).append(' ');
+            for (int i = 0; i < 8; i++) {
+                text.append(words[random.nextInt(words.length)]).append(random.nextInt(1000)).append(' ');
+            }
+            text.append('\n');
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
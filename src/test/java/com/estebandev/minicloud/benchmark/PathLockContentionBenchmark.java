@@ -0,0 +1,87 @@
+package com.estebandev.minicloud.benchmark;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.estebandev.minicloud.service.utils.PathLockManager;
+import com.estebandev.minicloud.service.utils.PathLockManager.PathLock;
+
+/**
+ * Compares the old global {@link ReentrantReadWriteLock} with
+ * {@link PathLockManager} when every thread writes inside its own user tree.
+ *
+ * Run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class PathLockContentionBenchmark {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 200;
+    private static final long WORK_MICROS = 500;
+
+    interface Writer {
+        void write(int user, int operation) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path root = Path.of("/files");
+
+        ReentrantReadWriteLock globalLock = new ReentrantReadWriteLock();
+        double global = run("global lock", (user, operation) -> {
+            globalLock.writeLock().lock();
+            try {
+                work();
+            } finally {
+                globalLock.writeLock().unlock();
+            }
+        });
+
+        PathLockManager pathLockManager = new PathLockManager();
+        double perPath = run("path locks", (user, operation) -> {
+            Path path = root.resolve("user" + user + "@mail.com").resolve("file" + operation);
+            try (PathLock lock = pathLockManager.tryWriteLock(5, TimeUnit.SECONDS, path)) {
+                work();
+            }
+        });
+
+        System.out.printf("speedup: %.2fx%n", perPath / global);
+    }
+
+    private static double run(String name, Writer writer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int user = 0; user < THREADS; user++) {
+                int id = user;
+                futures.add(executor.submit(() -> {
+                    for (int operation = 0; operation < OPERATIONS; operation++) {
+                        writer.write(id, operation);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double throughput = THREADS * OPERATIONS / seconds;
+            System.out.printf("%-12s %8.0f ops/s (%.2f s)%n", name, throughput, seconds);
+            return throughput;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Simulates the disk wait of a write while the lock is held. */
+    private static void work() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(WORK_MICROS));
+    }
+}
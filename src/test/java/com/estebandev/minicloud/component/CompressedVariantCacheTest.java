@@ -0,0 +1,128 @@
+package com.estebandev.minicloud.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+public class CompressedVariantCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private final CompressionPool compressionPool = new CompressionPool();
+    private CompressedVariantCache cache;
+
+    @AfterEach
+    void tearDown() {
+        compressionPool.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        cache = new CompressedVariantCache(compressionPool);
+        cache.setPathString(tempDir.toString());
+    }
+
+    @Test
+    void openGzip_compressesOnceUntilTheFileChanges() throws Exception {
+        Path filePath = Files.writeString(tempDir.resolve("data.json"), "{\"key\": \"value\"}\n".repeat(500));
+
+        assertThat(gunzip(filePath)).isEqualTo(Files.readString(filePath));
+        assertThat(gunzip(filePath)).isEqualTo(Files.readString(filePath));
+        assertThat(cache.stats().getMisses()).isEqualTo(1);
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+
+        Files.writeString(filePath, "{\"other\": 1}\n".repeat(500));
+        Files.setLastModifiedTime(filePath, FileTime.from(Instant.now().plusSeconds(5)));
+
+        assertThat(gunzip(filePath)).isEqualTo(Files.readString(filePath));
+        assertThat(cache.stats().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void openGzip_evictsLeastRecentlyUsedVariants() throws Exception {
+        cache.setMaxSize(DataSize.ofBytes(8000));
+        Random random = new Random(5);
+        Path first = Files.writeString(tempDir.resolve("first.txt"), hex(random, 6000));
+        Path second = Files.writeString(tempDir.resolve("second.txt"), hex(random, 6000));
+        Path third = Files.writeString(tempDir.resolve("third.txt"), hex(random, 6000));
+
+        gunzip(first);
+        gunzip(second);
+        gunzip(first);
+        gunzip(third);
+
+        assertThat(cache.stats().getEvictions()).isEqualTo(1);
+        assertThat(gunzip(first)).isEqualTo(Files.readString(first));
+        assertThat(cache.stats().getHits()).isEqualTo(2);
+        long total = 0;
+        try (var files = Files.list(tempDir.resolve(FileManagerUtils.INTERNAL_DIR).resolve("cache"))) {
+            for (Path variant : files.toList()) {
+                total += Files.size(variant);
+            }
+        }
+        assertThat(total).isLessThanOrEqualTo(8000);
+    }
+
+    @Test
+    void openGzip_ignoresBinaryAndSmallFiles() throws Exception {
+        Path image = Files.write(tempDir.resolve("photo.png"), new byte[4096]);
+        Path small = Files.writeString(tempDir.resolve("small.txt"), "tiny");
+
+        assertThat(cache.openGzip(image, attributes(image))).isNull();
+        assertThat(cache.openGzip(small, attributes(small))).isNull();
+    }
+
+    @Test
+    void variantsSurviveARestart() throws Exception {
+        Path filePath = Files.writeString(tempDir.resolve("notes.md"), "# notes\n".repeat(500));
+        gunzip(filePath);
+
+        cache = new CompressedVariantCache(compressionPool);
+        cache.setPathString(tempDir.toString());
+        gunzip(filePath);
+
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+        assertThat(cache.stats().getMisses()).isZero();
+    }
+
+    private String gunzip(Path filePath) throws Exception {
+        try (FileChannel channel = cache.openGzip(filePath, attributes(filePath))) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            }
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(buffer.array()))) {
+                return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path filePath) throws Exception {
+        return Files.readAttributes(filePath, BasicFileAttributes.class);
+    }
+
+    private static String hex(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(Integer.toHexString(random.nextInt()));
+        }
+        return text.substring(0, length);
+    }
+}
@@ -0,0 +1,154 @@
+package com.estebandev.minicloud.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estebandev.minicloud.service.utils.DirectoryIdentityStore;
+import com.estebandev.minicloud.service.utils.SidecarDirectoryIdentityStore;
+import com.estebandev.minicloud.service.utils.XattrDirectoryIdentityStore;
+
+public class DirectoryIdentityManagerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sidecarRoundTrips() throws Exception {
+        SidecarDirectoryIdentityStore store = new SidecarDirectoryIdentityStore();
+        UUID uuid = UUID.randomUUID();
+
+        assertThat(store.read(tempDir)).isNull();
+        store.write(tempDir, uuid);
+        store.write(tempDir, uuid);
+
+        assertThat(store.read(tempDir)).isEqualTo(uuid);
+        assertThat(Files.size(tempDir.resolve(SidecarDirectoryIdentityStore.FILE_NAME))).isEqualTo(20);
+        assertThat(store.delete(tempDir)).isTrue();
+        assertThat(store.read(tempDir)).isNull();
+    }
+
+    @Test
+    void sidecarRejectsForeignFiles() throws Exception {
+        Files.writeString(tempDir.resolve(SidecarDirectoryIdentityStore.FILE_NAME), "not an identity");
+
+        assertThrows(IOException.class, () -> new SidecarDirectoryIdentityStore().read(tempDir));
+    }
+
+    @Test
+    void writesExtendedAttributesWhenSupported() throws Exception {
+        assumeTrue(xattrSupported(), "extended attributes are not supported here");
+        DirectoryIdentityManager manager = new DirectoryIdentityManager();
+        Path dir = Files.createDirectory(tempDir.resolve("dir"));
+        UUID uuid = UUID.randomUUID();
+
+        manager.write(dir, uuid);
+
+        assertThat(new XattrDirectoryIdentityStore().read(dir)).isEqualTo(uuid);
+        assertThat(dir.resolve(SidecarDirectoryIdentityStore.FILE_NAME)).doesNotExist();
+        assertThat(manager.read(dir)).isEqualTo(uuid);
+
+        Path moved = Files.move(dir, tempDir.resolve("moved"));
+        assertThat(manager.read(moved)).isEqualTo(uuid);
+    }
+
+    @Test
+    void readsEitherStoreWhateverTheSetting() throws Exception {
+        DirectoryIdentityManager manager = new DirectoryIdentityManager();
+        manager.setStore("sidecar");
+        UUID uuid = UUID.randomUUID();
+
+        manager.write(tempDir, uuid);
+        assertThat(tempDir.resolve(SidecarDirectoryIdentityStore.FILE_NAME)).exists();
+        assertThat(new DirectoryIdentityManager().read(tempDir)).isEqualTo(uuid);
+
+        assertThat(manager.delete(tempDir)).isTrue();
+        assertThat(manager.read(tempDir)).isNull();
+    }
+
+    @Test
+    void keepsReadingExtendedAttributesAfterARefusedWrite() throws Exception {
+        MemoryStore xattr = new MemoryStore();
+        DirectoryIdentityManager manager = new DirectoryIdentityManager(xattr, new SidecarDirectoryIdentityStore());
+        Path stored = Files.createDirectory(tempDir.resolve("stored"));
+        Path denied = Files.createDirectory(tempDir.resolve("denied"));
+        Path other = Files.createDirectory(tempDir.resolve("other"));
+        UUID storedUuid = UUID.randomUUID();
+        UUID deniedUuid = UUID.randomUUID();
+        manager.write(stored, storedUuid);
+
+        xattr.failure = new AccessDeniedException(denied.toString());
+        manager.write(denied, deniedUuid);
+        xattr.failure = null;
+
+        assertThat(manager.read(stored)).isEqualTo(storedUuid);
+        assertThat(manager.read(denied)).isEqualTo(deniedUuid);
+        assertThat(denied.resolve(SidecarDirectoryIdentityStore.FILE_NAME)).exists();
+
+        manager.write(other, UUID.randomUUID());
+        assertThat(other.resolve(SidecarDirectoryIdentityStore.FILE_NAME)).doesNotExist();
+    }
+
+    @Test
+    void switchesWritesToTheSidecarWhenUnsupported() throws Exception {
+        MemoryStore xattr = new MemoryStore();
+        DirectoryIdentityManager manager = new DirectoryIdentityManager(xattr, new SidecarDirectoryIdentityStore());
+        Path stored = Files.createDirectory(tempDir.resolve("stored"));
+        Path other = Files.createDirectory(tempDir.resolve("other"));
+        UUID storedUuid = UUID.randomUUID();
+        manager.write(stored, storedUuid);
+
+        xattr.failure = new FileSystemException(other.toString(), null, "Operation not supported");
+        manager.write(other, UUID.randomUUID());
+        xattr.failure = null;
+        manager.write(other, UUID.randomUUID());
+
+        assertThat(other.resolve(SidecarDirectoryIdentityStore.FILE_NAME)).exists();
+        assertThat(manager.read(stored)).isEqualTo(storedUuid);
+    }
+
+    private static class MemoryStore implements DirectoryIdentityStore {
+        private final Map<Path, UUID> uuids = new HashMap<>();
+        private IOException failure;
+
+        @Override
+        public UUID read(Path dir) {
+            return uuids.get(dir);
+        }
+
+        @Override
+        public void write(Path dir, UUID uuid) throws IOException {
+            if (failure != null)
+                throw failure;
+            uuids.put(dir, uuid);
+        }
+
+        @Override
+        public boolean delete(Path dir) {
+            return uuids.remove(dir) != null;
+        }
+    }
+
+    private boolean xattrSupported() {
+        try {
+            XattrDirectoryIdentityStore store = new XattrDirectoryIdentityStore();
+            Path probe = Files.createDirectory(tempDir.resolve("probe"));
+            store.write(probe, UUID.randomUUID());
+            Files.delete(probe);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
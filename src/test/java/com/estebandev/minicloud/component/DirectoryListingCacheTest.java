@@ -0,0 +1,89 @@
+package com.estebandev.minicloud.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estebandev.minicloud.service.utils.CacheStats;
+import com.estebandev.minicloud.service.utils.FileData;
+
+public class DirectoryListingCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private final DirectoryListingCache cache = new DirectoryListingCache(2, true);
+    private final List<FileData> listing = List.of(FileData.builder().fileName("a.txt").build());
+
+    @AfterEach
+    void tearDown() throws Exception {
+        cache.close();
+    }
+
+    @Test
+    void get_ShouldCountHitsAndMisses() throws Exception {
+        assertThat(cache.get(tempDir)).isNull();
+        cache.put(tempDir, listing, cache.stamp());
+
+        assertThat(cache.get(tempDir)).isEqualTo(listing);
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsed() throws Exception {
+        Path a = Files.createDirectory(tempDir.resolve("a"));
+        Path b = Files.createDirectory(tempDir.resolve("b"));
+        Path c = Files.createDirectory(tempDir.resolve("c"));
+
+        cache.put(a, listing, cache.stamp());
+        cache.put(b, listing, cache.stamp());
+        cache.get(a);
+        cache.put(c, listing, cache.stamp());
+
+        assertThat(cache.get(a)).isNotNull();
+        assertThat(cache.get(b)).isNull();
+        assertThat(cache.stats().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void put_ShouldDropListingRead_BeforeInvalidation() throws Exception {
+        long stamp = cache.stamp();
+        cache.invalidate(tempDir.resolve("new.txt"));
+
+        cache.put(tempDir, listing, stamp);
+
+        assertThat(cache.get(tempDir)).isNull();
+    }
+
+    @Test
+    void invalidate_ShouldDropParentAndSubtree() throws Exception {
+        Path docs = Files.createDirectories(tempDir.resolve("docs/old"));
+        cache.put(tempDir, listing, cache.stamp());
+        cache.put(docs, listing, cache.stamp());
+
+        cache.invalidate(tempDir.resolve("docs"));
+
+        assertThat(cache.get(tempDir)).isNull();
+        assertThat(cache.get(docs)).isNull();
+    }
+
+    @Test
+    void watcher_ShouldInvalidateOutOfBandChanges() throws Exception {
+        cache.put(tempDir, listing, cache.stamp());
+
+        Files.writeString(tempDir.resolve("external.txt"), "changed");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> cache.get(tempDir) == null);
+    }
+}
@@ -0,0 +1,56 @@
+package com.estebandev.minicloud.component;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class DirectoryPathCollationTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private DirectoryPathCollation directoryPathCollation;
+
+    @Test
+    void altersACaseInsensitiveColumnOnMySql() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn("utf8mb4_0900_ai_ci");
+
+        directoryPathCollation.migrate();
+
+        verify(jdbcTemplate).execute(contains("COLLATE utf8mb4_bin"));
+    }
+
+    @Test
+    void leavesABinaryColumnAlone() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn("utf8mb4_bin");
+
+        directoryPathCollation.migrate();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void skipsOtherDatabases() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+
+        directoryPathCollation.migrate();
+
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(String.class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
@@ -0,0 +1,60 @@
+package com.estebandev.minicloud.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DirectoryUuidCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void invalidateDropsTheWholeSubtree() throws Exception {
+        DirectoryUuidCache cache = new DirectoryUuidCache(16);
+        Path docs = put(cache, tempDir.resolve("docs"));
+        Path deep = put(cache, tempDir.resolve("docs/deep"));
+        Path other = put(cache, tempDir.resolve("documents"));
+
+        cache.invalidate(docs);
+
+        assertThat(get(cache, docs)).isNull();
+        assertThat(get(cache, deep)).isNull();
+        assertThat(get(cache, other)).isNotNull();
+        assertThat(cache.stats().getInvalidations()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed() throws Exception {
+        DirectoryUuidCache cache = new DirectoryUuidCache(2);
+        Path first = put(cache, tempDir.resolve("first"));
+        Path second = put(cache, tempDir.resolve("second"));
+        get(cache, first);
+        Path third = put(cache, tempDir.resolve("third"));
+
+        assertThat(get(cache, first)).isNotNull();
+        assertThat(get(cache, second)).isNull();
+        assertThat(get(cache, third)).isNotNull();
+        assertThat(cache.stats().getEvictions()).isEqualTo(1);
+    }
+
+    private static Path put(DirectoryUuidCache cache, Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(".dirdata.xml"), "<uuid/>");
+        cache.put(dir, attributes(dir), attributes(dir.resolve(".dirdata.xml")), UUID.randomUUID());
+        return dir;
+    }
+
+    private static UUID get(DirectoryUuidCache cache, Path dir) throws Exception {
+        return cache.get(dir, attributes(dir), attributes(dir.resolve(".dirdata.xml")));
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws Exception {
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+}
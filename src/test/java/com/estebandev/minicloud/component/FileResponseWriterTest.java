@@ -0,0 +1,294 @@
+package com.estebandev.minicloud.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+
+public class FileResponseWriterTest {
+    @TempDir
+    Path tempDir;
+
+    private final CompressionPool compressionPool = new CompressionPool();
+    private CompressedVariantCache compressedVariantCache;
+    private FileResponseWriter fileResponseWriter;
+    private final Instant lastModified = Instant.parse("2024-05-01T10:15:30Z");
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private Path filePath;
+
+    @AfterEach
+    void tearDown() {
+        compressionPool.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        compressedVariantCache = new CompressedVariantCache(compressionPool);
+        compressedVariantCache.setPathString(tempDir.toString());
+        fileResponseWriter = new FileResponseWriter(compressedVariantCache);
+        filePath = tempDir.resolve("file.txt");
+        Files.writeString(filePath, "0123456789");
+        Files.setLastModifiedTime(filePath, FileTime.from(lastModified));
+        request = new MockHttpServletRequest("GET", "/files/action/read");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void write_ShouldSendWholeFile_WhenNoRange() throws Exception {
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(lastModified.toEpochMilli());
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void write_ShouldSendSingleRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void write_ShouldSendSuffixRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void write_ShouldSendMultipartByteranges() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,8-");
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        assertThat(response.getContentAsString())
+                .contains("Content-Range: bytes 0-1/10\r\n\r\n01")
+                .contains("Content-Range: bytes 8-9/10\r\n\r\n89");
+    }
+
+    @Test
+    void write_ShouldRespond416_WhenRangeIsNotSatisfiable() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void write_ShouldIgnoreRange_WhenIfRangeIsStale() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, lastModified.minusSeconds(60).toEpochMilli());
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void write_ShouldHonourRange_WhenIfRangeMatches() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, lastModified.toEpochMilli());
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+    }
+
+    @Test
+    void write_ShouldUseSendfile_WhenContainerSupportsIt() throws Exception {
+        Path bigFile = tempDir.resolve("big.bin");
+        Files.write(bigFile, new byte[128 * 1024]);
+        request.setAttribute(FileResponseWriter.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=1024-");
+
+        fileResponseWriter.write(request, response, bigFile, "application/octet-stream", null);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(request.getAttribute(FileResponseWriter.SENDFILE_START)).isEqualTo(1024L);
+        assertThat(request.getAttribute(FileResponseWriter.SENDFILE_END)).isEqualTo(128L * 1024);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void write_ShouldSendStrongEtagAndCacheControl() throws Exception {
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag()).startsWith("\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=0, private");
+    }
+
+    @Test
+    void write_ShouldRespond304_WhenIfNoneMatchMatches() throws Exception {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag());
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag());
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void write_ShouldRespond304_WhenNotModifiedSince() throws Exception {
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified.toEpochMilli());
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void write_ShouldSendFile_WhenEtagChanged() throws Exception {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag());
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified.toEpochMilli());
+        Files.setLastModifiedTime(filePath, FileTime.from(lastModified.plusMillis(1)));
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void write_ShouldHonourRange_WhenIfRangeEtagMatches() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, etag());
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+    }
+
+    private String etag() throws Exception {
+        return FileResponseWriter.etag(Files.readAttributes(filePath, BasicFileAttributes.class));
+    }
+
+    @Test
+    void write_ShouldInflateCompressedFileRanges() throws Exception {
+        Path compressedPath = compressedFile();
+        request.addHeader(HttpHeaders.RANGE, "bytes=70000-70009");
+
+        fileResponseWriter.write(request, response, compressedPath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 70000-70009/100000");
+        assertThat(response.getContentAsString()).isEqualTo(content(100000).substring(70000, 70010));
+    }
+
+    @Test
+    void write_ShouldSendStoredBlocks_WhenClientAcceptsGzip() throws Exception {
+        Path compressedPath = compressedFile();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8");
+
+        fileResponseWriter.write(request, response, compressedPath, "text/plain", null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).endsWith("-gz\"");
+        assertThat(response.getContentLengthLong()).isEqualTo(response.getContentAsByteArray().length);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(gzip.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo(content(100000));
+        }
+    }
+
+    @Test
+    void write_ShouldInflateCompressedFile_WhenGzipIsRefused() throws Exception {
+        Path compressedPath = compressedFile();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+
+        fileResponseWriter.write(request, response, compressedPath, "text/plain", null);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentLengthLong()).isEqualTo(100000);
+        assertThat(response.getContentAsString()).isEqualTo(content(100000));
+    }
+
+    private Path compressedFile() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("source"), content(100000));
+        Path compressedPath = tempDir.resolve("log.txt");
+        BlockCompressedFile.compress(source, compressedPath, BlockCompressedFile.DEFAULT_BLOCK_SIZE, 6);
+        return compressedPath;
+    }
+
+    private static String content(int size) {
+        StringBuilder text = new StringBuilder(size + 32);
+        for (int i = 0; text.length() < size; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        return text.substring(0, size);
+    }
+
+    @Test
+    void write_ShouldSendCachedGzipVariant_WhenClientAcceptsGzip() throws Exception {
+        Path logPath = Files.writeString(tempDir.resolve("app.log.txt"), content(50000));
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+        fileResponseWriter.write(request, response, logPath, "text/plain", null);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getContentLengthLong()).isLessThan(50000);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(gzip.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo(content(50000));
+        }
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        fileResponseWriter.write(request, second, logPath, "text/plain", null);
+
+        assertThat(second.getContentAsByteArray()).isEqualTo(response.getContentAsByteArray());
+        assertThat(compressedVariantCache.stats().getMisses()).isEqualTo(1);
+        assertThat(compressedVariantCache.stats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void write_ShouldSendIdentity_WhenRangeOrSmallFile() throws Exception {
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        fileResponseWriter.write(request, response, filePath, "text/plain", null);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+
+        Path logPath = Files.writeString(tempDir.resolve("app.log.txt"), content(50000));
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        MockHttpServletResponse ranged = new MockHttpServletResponse();
+        fileResponseWriter.write(request, ranged, logPath, "text/plain", null);
+
+        assertThat(ranged.getStatus()).isEqualTo(206);
+        assertThat(ranged.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(ranged.getContentAsString()).isEqualTo(content(50000).substring(0, 10));
+    }
+}
@@ -3,6 +3,8 @@ package com.estebandev.minicloud.config;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -20,7 +22,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
 import org.springframework.security.core.Authentication;
 
-import com.estebandev.minicloud.entity.FileMetadata;
 import com.estebandev.minicloud.service.FileManagerService;
 import com.estebandev.minicloud.service.FileMetadataService;
 import com.estebandev.minicloud.service.FileSecurityService;
@@ -70,11 +71,7 @@ class FileActionSecurityManagerTest {
         String pathString = "otheruser/test";
 
         when(fileManagerService.getRoot()).thenReturn(tempDir);
-        when(fileMetadataService.findMetadataFromKey(any(Path.class), anyString()))
-                .thenReturn(FileMetadata.builder()
-                        .key("owner")
-                        .value("minicloud@example.com")
-                        .build());
+        when(fileMetadataService.findOwnerEmail(any(Path.class))).thenReturn("minicloud@example.com");
 
         boolean result = fileActionSecurityManager.decide(pathString, false, operations);
 
@@ -87,11 +84,7 @@ class FileActionSecurityManagerTest {
         Files.createDirectories(tempDir.resolve(pathString));
 
         when(fileManagerService.getRoot()).thenReturn(tempDir);
-        when(fileMetadataService.findMetadataFromKey(any(Path.class), anyString()))
-                .thenReturn(FileMetadata.builder()
-                        .key("owner")
-                        .value("admin@example.com")
-                        .build());
+        when(fileMetadataService.findOwnerEmail(any(Path.class))).thenReturn("admin@example.com");
 
         boolean result = fileActionSecurityManager.decide(pathString, true,
                 operations);
@@ -105,11 +98,7 @@ class FileActionSecurityManagerTest {
 
         // when(fileSecurityService.isUserFromAuthHasAccessTo(anyString())).thenReturn(true);
         when(fileManagerService.getRoot()).thenReturn(tempDir);
-        when(fileMetadataService.findMetadataFromKey(any(Path.class), anyString()))
-                .thenReturn(FileMetadata.builder()
-                        .key("owner")
-                        .value("minicloud@example.com")
-                        .build());
+        when(fileMetadataService.findOwnerEmail(any(Path.class))).thenReturn("minicloud@example.com");
 
         boolean result = fileActionSecurityManager.decide(pathString, false,
                 operations);
@@ -122,11 +111,7 @@ class FileActionSecurityManagerTest {
         String pathString = "otheruser/test";
 
         when(fileManagerService.getRoot()).thenReturn(tempDir);
-        when(fileMetadataService.findMetadataFromKey(any(Path.class), anyString()))
-                .thenReturn(FileMetadata.builder()
-                        .key("owner")
-                        .value("minicloud@example.com")
-                        .build());
+        when(fileMetadataService.findOwnerEmail(any(Path.class))).thenReturn("minicloud@example.com");
 
         try {
             fileActionSecurityManager.decide(pathString, false, operations);
@@ -134,4 +119,18 @@ class FileActionSecurityManagerTest {
             assertThat(e).isInstanceOf(NoSuchElementException.class);
         }
     }
+
+    @Test
+    void decide_remembersDirectoryDecisionInsideBatch() throws IOException {
+        when(fileManagerService.getRoot()).thenReturn(tempDir);
+        when(fileMetadataService.findOwnerEmail(any(Path.class))).thenReturn("minicloud@example.com");
+
+        boolean result = fileActionSecurityManager.rememberingDecisions(() -> fileActionSecurityManager
+                .decide("otheruser/a.txt", true, operations)
+                && fileActionSecurityManager.decide("otheruser/b.txt", true, operations));
+        fileActionSecurityManager.decide("otheruser/c.txt", true, operations);
+
+        assertThat(result).isTrue();
+        verify(fileMetadataService, times(2)).findOwnerEmail(any(Path.class));
+    }
 }
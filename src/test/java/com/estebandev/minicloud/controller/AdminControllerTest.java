@@ -7,6 +7,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -29,7 +30,9 @@ import com.estebandev.minicloud.config.CustomErrorController;
 import com.estebandev.minicloud.controller.dto.UserDTO;
 import com.estebandev.minicloud.entity.User;
 import com.estebandev.minicloud.service.AdminService;
+import com.estebandev.minicloud.service.BlobStoreService;
 import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.DedupStats;
 
 @AutoConfigureMockMvc
 @SpringBootTest
@@ -41,6 +44,9 @@ public class AdminControllerTest {
     @MockitoBean
     private AdminService adminService;
 
+    @MockitoBean
+    private BlobStoreService blobStoreService;
+
     @MockitoBean
     private CustomErrorController customErrorController;
 
@@ -286,4 +292,28 @@ public class AdminControllerTest {
 
         verify(adminService).removeScope(testUserId, invalidScopeId);
     }
+
+    @Test
+    @WithMockUser(authorities = { "ADMIN_DASHBOARD" })
+    public void storageStats_returnsDedupStats() throws Exception {
+        when(blobStoreService.stats()).thenReturn(DedupStats.builder()
+                .blobs(1)
+                .references(3)
+                .physicalBytes(100)
+                .logicalBytes(300)
+                .ratio(3)
+                .build());
+
+        mockMvc.perform(get("/admin/storage/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.references").value(3))
+                .andExpect(jsonPath("$.ratio").value(3.0));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    public void storageStats_unauthorizedUser_returnsForbidden() throws Exception {
+        mockMvc.perform(get("/admin/storage/stats"))
+                .andExpect(status().isForbidden());
+    }
 }
@@ -0,0 +1,95 @@
+package com.estebandev.minicloud.controller;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.estebandev.minicloud.config.CustomErrorController;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.BatchOperationService;
+import com.estebandev.minicloud.service.UserService;
+import com.estebandev.minicloud.service.utils.BatchOperation;
+import com.estebandev.minicloud.service.utils.BatchResult;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FileBatchControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    protected UserService userService;
+
+    @MockitoBean
+    protected BatchOperationService batchOperationService;
+
+    @MockitoBean
+    protected CustomErrorController customErrorController;
+
+    private User user = User.builder()
+            .email("user@example.com")
+            .scopes(new ArrayList<>())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserFromAuth()).thenReturn(user);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void execute_returnsResultPerOperation() throws Exception {
+        BatchOperation mkdir = BatchOperation.builder().op(BatchOperation.Type.MKDIR)
+                .path("user@example.com").name("docs").build();
+        BatchOperation delete = BatchOperation.builder().op(BatchOperation.Type.DELETE)
+                .path("user@example.com/missing.txt").build();
+        when(batchOperationService.execute(anyList())).thenReturn(List.of(
+                BatchResult.success(0, mkdir, "user@example.com/docs"),
+                BatchResult.failure(1, delete, new FileNotFoundException("File not exists"))));
+
+        String body = """
+                {"operations": [
+                  {"op": "mkdir", "path": "user@example.com", "name": "docs"},
+                  {"op": "delete", "path": "user@example.com/missing.txt"}
+                ]}
+                """;
+
+        mockMvc.perform(post("/files/action/batch").param("path", "user@example.com")
+                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].op").value("mkdir"))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].path").value("user@example.com/docs"))
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[1].error").value("File not exists"));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void execute_rejectsEmptyBatch() throws Exception {
+        when(batchOperationService.execute(anyList()))
+                .thenThrow(new IllegalArgumentException("The batch is empty"));
+
+        mockMvc.perform(post("/files/action/batch").param("path", "user@example.com")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"operations\": []}").with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("The batch is empty"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.estebandev.minicloud.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.estebandev.minicloud.config.CustomErrorController;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.DeleteJobService;
+import com.estebandev.minicloud.service.UserService;
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.DeleteJob;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FileDeleteControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    protected UserService userService;
+
+    @MockitoBean
+    protected DeleteJobService deleteJobService;
+
+    @MockitoBean
+    protected CustomErrorController customErrorController;
+
+    private User user = User.builder()
+            .email("user@example.com")
+            .scopes(new ArrayList<>())
+            .build();
+
+    private final String pathString = "user@example.com/docs";
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserFromAuth()).thenReturn(user);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void deleteRecursive_returnsJob() throws Exception {
+        DeleteJob job = new DeleteJob("job-1", user.getEmail(), pathString);
+        job.setTotal(10);
+        when(deleteJobService.start(pathString)).thenReturn(job);
+
+        mockMvc.perform(post("/files/action/delete/recursive").param("path", pathString).with(csrf()))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.total").value(10));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void getJob_reportsProgress() throws Exception {
+        DeleteJob job = new DeleteJob("job-1", user.getEmail(), pathString);
+        job.setTotal(10);
+        job.addDeleted(10);
+        job.finish(null);
+        when(deleteJobService.find("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/files/action/delete/jobs/job-1").param("path", "user@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.deleted").value(10));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void getJob_unknown() throws Exception {
+        when(deleteJobService.find("missing")).thenThrow(new ServiceException("The delete job does not exist"));
+
+        mockMvc.perform(get("/files/action/delete/jobs/missing").param("path", "user@example.com"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("The delete job does not exist"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.estebandev.minicloud.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.estebandev.minicloud.config.CustomErrorController;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.ThumbnailService;
+import com.estebandev.minicloud.service.UserService;
+import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.utils.ContactSheet;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FileGalleryControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    protected UserService userService;
+
+    @MockitoBean
+    protected ThumbnailService thumbnailService;
+
+    @MockitoBean
+    protected CustomErrorController customErrorController;
+
+    private User user = User.builder()
+            .email("user@example.com")
+            .scopes(new ArrayList<>())
+            .build();
+
+    private ContactSheet sheet = ContactSheet.builder()
+            .version("0123456789abcdef")
+            .page(0)
+            .tileSize(128)
+            .columns(1)
+            .width(128)
+            .height(128)
+            .tiles(List.of(ContactSheet.Tile.builder().name("a.jpg").path("user@example.com/a.jpg").build()))
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserFromAuth()).thenReturn(user);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void contactSheet_linksTheVersionedImage() throws Exception {
+        when(thumbnailService.contactSheet("user@example.com", 0)).thenReturn(sheet);
+
+        mockMvc.perform(get("/files/action/gallery").param("path", "user@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0123456789abcdef\""))
+                .andExpect(jsonPath("$.image", containsString("v=0123456789abcdef")))
+                .andExpect(jsonPath("$.tiles[0].name").value("a.jpg"));
+
+        mockMvc.perform(get("/files/action/gallery").param("path", "user@example.com")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0123456789abcdef\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void contactSheet_notADirectory() throws Exception {
+        when(thumbnailService.contactSheet("user@example.com/a.jpg", 0))
+                .thenThrow(new FileIsNotDirectoryException("The file isn't a directory"));
+
+        mockMvc.perform(get("/files/action/gallery").param("path", "user@example.com/a.jpg"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,126 @@
+package com.estebandev.minicloud.controller;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.estebandev.minicloud.config.CustomErrorController;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.FileManagerService;
+import com.estebandev.minicloud.service.UserService;
+import com.estebandev.minicloud.service.utils.FileData;
+import com.estebandev.minicloud.service.utils.FileDataConsumer;
+import com.estebandev.minicloud.service.utils.ListingPage;
+import com.estebandev.minicloud.service.utils.ListingSort;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FileListingControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    protected UserService userService;
+
+    @MockitoBean
+    protected FileManagerService fileManagerService;
+
+    @MockitoBean
+    protected CustomErrorController customErrorController;
+
+    private User user = User.builder()
+            .email("user@example.com")
+            .scopes(new ArrayList<>())
+            .build();
+
+    private final String pathString = "user@example.com";
+
+    private final FileData fileData = FileData.builder()
+            .fileName("photo.jpg")
+            .path(Path.of(pathString, "photo.jpg"))
+            .mediaType("image/jpeg")
+            .sizeBytes(2048)
+            .lastModified(Instant.parse("2024-05-01T10:15:30Z"))
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserFromAuth()).thenReturn(user);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void listPage_success() throws Exception {
+        when(fileManagerService.listPage(pathString, ListingSort.MTIME, true, "abc", 50))
+                .thenReturn(ListingPage.builder().entries(List.of(fileData)).nextCursor("def").build());
+
+        mockMvc.perform(get("/files/action/list")
+                .param("path", pathString)
+                .param("sort", "mtime")
+                .param("order", "desc")
+                .param("cursor", "abc")
+                .param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries[0].path").value("user@example.com/photo.jpg"))
+                .andExpect(jsonPath("$.entries[0].size").value(2048))
+                .andExpect(jsonPath("$.nextCursor").value("def"));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void listPage_unknownSort() throws Exception {
+        mockMvc.perform(get("/files/action/list")
+                .param("path", pathString)
+                .param("sort", "color"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown sort color"));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void listPage_directoryNotFound() throws Exception {
+        when(fileManagerService.listPage(eq(pathString), any(), eq(false), any(), eq(100)))
+                .thenThrow(new FileNotFoundException("File does not exist"));
+
+        mockMvc.perform(get("/files/action/list").param("path", pathString))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void streamFiles_writesOneEntryPerLine() throws Exception {
+        doAnswer(invocation -> {
+            FileDataConsumer consumer = invocation.getArgument(1);
+            consumer.accept(fileData);
+            consumer.accept(fileData);
+            return null;
+        }).when(fileManagerService).streamFiles(eq(pathString), any());
+
+        mockMvc.perform(get("/files/action/list/stream").param("path", pathString))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(FileListingController.NDJSON))
+                .andExpect(content().string(matchesPattern(
+                        "(\\{\"fileName\":\"photo.jpg\".*\\}\n){2}")));
+    }
+}
@@ -1,5 +1,6 @@
 package com.estebandev.minicloud.controller;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -14,6 +15,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
@@ -37,16 +39,23 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.estebandev.minicloud.service.AdminService;
+import com.estebandev.minicloud.service.ArchiveService;
 import com.estebandev.minicloud.service.CodeAuthServiceTest;
 import com.estebandev.minicloud.service.FileManagerService;
 import com.estebandev.minicloud.service.FileSecurityService;
 import com.estebandev.minicloud.service.FileSecurityServiceImpl;
+import com.estebandev.minicloud.service.ThumbnailService;
 import com.estebandev.minicloud.service.UserService;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.utils.ArchiveFormat;
 import com.estebandev.minicloud.service.utils.FileData;
+import com.estebandev.minicloud.service.utils.ListingPage;
+import com.estebandev.minicloud.service.utils.ListingSort;
+import com.estebandev.minicloud.service.utils.UploadResult;
 import com.estebandev.minicloud.config.CustomErrorController;
 import com.estebandev.minicloud.entity.User;
 
@@ -71,6 +80,12 @@ public class FileManagerControllerTest {
     @MockitoBean
     protected CustomErrorController customErrorController;
 
+    @MockitoBean
+    protected ArchiveService archiveService;
+
+    @MockitoBean
+    protected ThumbnailService thumbnailService;
+
     // @MockitoBean
     // protected AdminService adminService;
     //
@@ -83,11 +98,13 @@ public class FileManagerControllerTest {
             .build();
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
         fileManagerService.setPathString(tempDir.toString());
         when(fileManagerService.getRoot()).thenReturn(tempDir);
         when(userService.getUserFromAuth()).thenReturn(user);
+        when(fileManagerService.listPage(any(), any(), anyBoolean(), any(), anyInt()))
+                .thenReturn(ListingPage.builder().entries(Collections.emptyList()).build());
     }
 
     // Existing tests
@@ -134,12 +151,25 @@ public class FileManagerControllerTest {
     @Test
     @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
     public void goToDir_onlyOwnsDirectories_fileIsNotDirectory() throws Exception {
-        when(fileManagerService.listFiles(user.getEmail())).thenThrow(FileIsNotDirectoryException.class);
+        when(fileManagerService.listPage(eq(user.getEmail()), any(), anyBoolean(), any(), anyInt()))
+                .thenThrow(FileIsNotDirectoryException.class);
         mockMvc.perform(get("/files/action/go/dir").param("path", user.getEmail()))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/files/action/go/file?path=user%40example.com"));
     }
 
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    public void goToDir_rendersNextPageLink() throws Exception {
+        when(fileManagerService.listPage(user.getEmail(), ListingSort.SIZE, true, null, 200))
+                .thenReturn(ListingPage.builder().entries(Collections.emptyList()).nextCursor("abc").build());
+
+        mockMvc.perform(get("/files/action/go/dir").param("path", user.getEmail())
+                .param("sort", "size").param("order", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("nextCursor", "abc"));
+    }
+
     @Test
     @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
     public void goToDir_otherDirWithoutPerms() throws Exception {
@@ -209,6 +239,20 @@ public class FileManagerControllerTest {
                 .andExpect(redirectedUrl("/files/error"));
     }
 
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    public void thumbnail_VersionedIsCachedForGood() throws Exception {
+        String pathString = user.getEmail() + "/photo.jpg";
+        Path thumbnailPath = Files.write(tempDir.resolve("thumb-128.jpg"), new byte[] { 1, 2, 3 });
+        when(thumbnailService.thumbnail(pathString, 128)).thenReturn(thumbnailPath);
+
+        mockMvc.perform(get("/files/action/thumb").param("path", pathString).param("v", "1700000000000"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(content().bytes(new byte[] { 1, 2, 3 }));
+    }
+
     // New test cases
     @Nested
     class UploadTests {
@@ -229,6 +273,25 @@ public class FileManagerControllerTest {
             verify(fileManagerService).uploadFile(eq(pathString), any());
         }
 
+        @Test
+        @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+        void uploadFilePost_manyFiles() throws Exception {
+            String pathString = user.getEmail() + "/docs";
+            when(fileManagerService.uploadFiles(eq(pathString), anyList())).thenReturn(List.of(
+                    UploadResult.success("a.txt", pathString + "/a.txt", 1),
+                    UploadResult.success("b.txt", pathString + "/b.txt", 1)));
+
+            mockMvc.perform(MockMvcRequestBuilders.multipart("/files/action/upload")
+                    .file(new MockMultipartFile("file", "a.txt", "text/plain", "a".getBytes()))
+                    .file(new MockMultipartFile("file", "b.txt", "text/plain", "b".getBytes()))
+                    .param("path", pathString)
+                    .with(csrf()))
+                    .andExpect(status().is3xxRedirection())
+                    .andExpect(redirectedUrl("/files/action/go/dir?path=" + encodePath(pathString)));
+
+            verify(fileManagerService, never()).uploadFile(anyString(), any(MultipartFile.class));
+        }
+
         @Test
         @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
         void uploadFilePost_directoryNotFound() throws Exception {
@@ -297,6 +360,61 @@ public class FileManagerControllerTest {
                     .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"text.txt\""));
         }
 
+        @Test
+        @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+        void download_range() throws Exception {
+            String pathString = user.getEmail() + "/text.txt";
+            Files.createDirectory(tempDir.resolve(user.getEmail()));
+            Files.writeString(tempDir.resolve(pathString), "0123456789");
+
+            Resource resource = new FileSystemResource(tempDir.resolve(pathString));
+            when(fileManagerService.findFile(pathString)).thenReturn(resource);
+
+            mockMvc.perform(get("/files/action/download")
+                    .param("path", pathString)
+                    .header(HttpHeaders.RANGE, "bytes=4-"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-9/10"))
+                    .andExpect(content().string("456789"));
+        }
+
+        @Test
+        @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+        void downloadArchive_streamsSelection() throws Exception {
+            String pathString = user.getEmail() + "/docs";
+
+            mockMvc.perform(get("/files/action/download/archive")
+                    .param("path", pathString)
+                    .param("name", "a.txt", "photos")
+                    .param("format", "tar"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-tar"))
+                    .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"docs.tar\""));
+
+            verify(archiveService).writeArchive(eq(pathString), eq(List.of("a.txt", "photos")),
+                    eq(ArchiveFormat.TAR), eq(false), any());
+        }
+
+        @Test
+        @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+        void move_copyKeepsOriginal() throws Exception {
+            String pathString = user.getEmail() + "/docs";
+            String target = user.getEmail() + "/archive";
+            Path newPath = Path.of(target, "docs");
+
+            when(fileManagerService.copy(eq(pathString), eq(target))).thenReturn(newPath);
+
+            mockMvc.perform(post("/files/action/move")
+                    .param("path", pathString)
+                    .param("target", target)
+                    .param("copy", "true")
+                    .with(csrf()))
+                    .andExpect(status().is3xxRedirection())
+                    .andExpect(redirectedUrl("/files/action/go/dir?path=" + encodePath(newPath.toString())));
+
+            verify(fileManagerService, never()).move(any(), any());
+        }
+
         @Test
         @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
         void rename_success() throws Exception {
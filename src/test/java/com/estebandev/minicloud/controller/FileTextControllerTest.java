@@ -0,0 +1,81 @@
+package com.estebandev.minicloud.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.estebandev.minicloud.config.CustomErrorController;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.TextViewService;
+import com.estebandev.minicloud.service.UserService;
+import com.estebandev.minicloud.service.utils.TextWindow;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FileTextControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    protected UserService userService;
+
+    @MockitoBean
+    protected TextViewService textViewService;
+
+    @MockitoBean
+    protected CustomErrorController customErrorController;
+
+    private User user = User.builder()
+            .email("user@example.com")
+            .scopes(new ArrayList<>())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserFromAuth()).thenReturn(user);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void readLines_returnsTheWindow() throws Exception {
+        when(textViewService.readLines("user@example.com/app.log", 10, 2)).thenReturn(TextWindow.builder()
+                .version("0123456789abcdef0123456789abcdef")
+                .from(10)
+                .totalLines(100)
+                .lines(List.of("eleventh", "twelfth"))
+                .build());
+
+        mockMvc.perform(get("/files/action/text").param("path", "user@example.com/app.log")
+                .param("from", "10").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0123456789abcdef-10-2\""))
+                .andExpect(jsonPath("$.lines[1]").value("twelfth"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void readLines_invalidCount() throws Exception {
+        when(textViewService.readLines("user@example.com/app.log", 0, 5000))
+                .thenThrow(new IllegalArgumentException("Between 1 and 1000 lines can be read at once"));
+
+        mockMvc.perform(get("/files/action/text").param("path", "user@example.com/app.log")
+                .param("count", "5000"))
+                .andExpect(status().isBadRequest());
+    }
+}
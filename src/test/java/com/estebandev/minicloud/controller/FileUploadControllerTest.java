@@ -0,0 +1,192 @@
+package com.estebandev.minicloud.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.estebandev.minicloud.config.CustomErrorController;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.entity.UploadSession;
+import com.estebandev.minicloud.service.FileManagerService;
+import com.estebandev.minicloud.service.UploadSessionService;
+import com.estebandev.minicloud.service.utils.ByteRange;
+import com.estebandev.minicloud.service.utils.UploadResult;
+import com.estebandev.minicloud.service.UserService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FileUploadControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    protected UserService userService;
+
+    @MockitoBean
+    protected FileManagerService fileManagerService;
+
+    @MockitoBean
+    protected UploadSessionService uploadSessionService;
+
+    @MockitoBean
+    protected CustomErrorController customErrorController;
+
+    private User user = User.builder()
+            .email("user@example.com")
+            .scopes(new ArrayList<>())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserFromAuth()).thenReturn(user);
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void uploadStream_success() throws Exception {
+        String pathString = user.getEmail() + "/docs";
+        when(fileManagerService.uploadFile(eq(pathString), eq("test.txt"), any(InputStream.class)))
+                .thenReturn(Path.of(pathString, "test.txt"));
+
+        mockMvc.perform(put("/files/action/upload/stream")
+                .param("path", pathString)
+                .param("name", "test.txt")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content("content".getBytes())
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.path").value(pathString + "/test.txt"));
+
+        verify(fileManagerService).uploadFile(eq(pathString), eq("test.txt"), any(InputStream.class));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void uploadStream_directoryNotFound() throws Exception {
+        String pathString = user.getEmail() + "/missing";
+        doThrow(new FileNotFoundException("File does not exist")).when(fileManagerService)
+                .uploadFile(eq(pathString), eq("test.txt"), any(InputStream.class));
+
+        mockMvc.perform(put("/files/action/upload/stream")
+                .param("path", pathString)
+                .param("name", "test.txt")
+                .content("content".getBytes())
+                .with(csrf()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("File does not exist"));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void uploadStream_withoutCsrf_isDenied() throws Exception {
+        mockMvc.perform(put("/files/action/upload/stream")
+                .param("path", user.getEmail())
+                .param("name", "test.txt")
+                .content("content".getBytes()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/files/error?msg=Acces%20denied"));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void uploadMultipart_returnsResultPerFile() throws Exception {
+        String pathString = user.getEmail() + "/docs";
+        when(fileManagerService.uploadFiles(eq(pathString), anyList())).thenReturn(List.of(
+                UploadResult.success("a.txt", pathString + "/a.txt", 1),
+                UploadResult.failure("b.txt", new FileAlreadyExistsException("b.txt"))));
+
+        mockMvc.perform(multipart("/files/action/upload/multipart")
+                .file(new MockMultipartFile("file", "a.txt", "text/plain", "a".getBytes()))
+                .file(new MockMultipartFile("file", "b.txt", "text/plain", "b".getBytes()))
+                .param("path", pathString)
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].path").value(pathString + "/a.txt"))
+                .andExpect(jsonPath("$[1].name").value("b.txt"))
+                .andExpect(jsonPath("$[1].status").value(409));
+
+        verify(fileManagerService).uploadFiles(eq(pathString), argThat(files -> files.size() == 2));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void createSession_success() throws Exception {
+        String pathString = user.getEmail();
+        when(uploadSessionService.create(pathString, "video.mp4", 2048)).thenReturn(UploadSession.builder()
+                .id("session-id")
+                .fileName("video.mp4")
+                .size(2048)
+                .build());
+
+        mockMvc.perform(post("/files/action/upload/session")
+                .param("path", pathString)
+                .param("name", "video.mp4")
+                .param("size", "2048")
+                .with(csrf()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value("session-id"))
+                .andExpect(jsonPath("$.received").isEmpty());
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void getSession_returnsReceivedRanges() throws Exception {
+        String pathString = user.getEmail();
+        UploadSession session = UploadSession.builder().id("session-id").size(2048).build();
+        when(uploadSessionService.find(pathString, "session-id")).thenReturn(session);
+        when(uploadSessionService.receivedRanges(session)).thenReturn(List.of(new ByteRange(0, 1024)));
+
+        mockMvc.perform(get("/files/action/upload/session/session-id")
+                .param("path", pathString))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received[0].start").value(0))
+                .andExpect(jsonPath("$.received[0].end").value(1024));
+    }
+
+    @Test
+    @WithMockUser(username = "user@example.com", authorities = { "FILE_DASHBOARD" })
+    void writeChunk_success() throws Exception {
+        String pathString = user.getEmail();
+        when(uploadSessionService.writeChunk(eq(pathString), eq("session-id"), eq(1024L), any(InputStream.class)))
+                .thenReturn(List.of(new ByteRange(0, 2048)));
+
+        mockMvc.perform(put("/files/action/upload/session/session-id")
+                .param("path", pathString)
+                .param("offset", "1024")
+                .content(new byte[1024])
+                .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].end").value(2048));
+    }
+}
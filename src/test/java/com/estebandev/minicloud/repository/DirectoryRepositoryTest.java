@@ -0,0 +1,87 @@
+package com.estebandev.minicloud.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.estebandev.minicloud.entity.Directory;
+import com.estebandev.minicloud.entity.User;
+
+@DataJpaTest
+class DirectoryRepositoryTest {
+
+    @Autowired
+    private DirectoryRepository directoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder()
+                .email("user@mail.com")
+                .nickname("user")
+                .password("password")
+                .build());
+    }
+
+    @Test
+    void testSaveInsertsWithoutSelectingFirst() {
+        Directory directory = directoryRepository.saveAndFlush(directory("a", null, "user@mail.com/docs"));
+
+        assertThat(directory.isNew()).isFalse();
+        assertThat(directory.getCreatedAt()).isNotNull();
+        assertThat(directoryRepository.findById("a")).get()
+                .extracting(Directory::getPath)
+                .isEqualTo("user@mail.com/docs");
+    }
+
+    @Test
+    void testFindOwnerEmail() {
+        directoryRepository.saveAndFlush(directory("a", null, "user@mail.com/docs"));
+
+        assertThat(directoryRepository.findOwnerEmail("a")).contains("user@mail.com");
+        assertThat(directoryRepository.findOwnerEmail("missing")).isEmpty();
+    }
+
+    @Test
+    void testFindByOwnerId() {
+        directoryRepository.saveAllAndFlush(List.of(
+                directory("a", null, "user@mail.com/docs"),
+                directory("b", "a", "user@mail.com/docs/2024")));
+
+        assertThat(directoryRepository.findByOwnerId(owner.getId()))
+                .extracting(Directory::getUuid)
+                .containsExactlyInAnyOrder("a", "b");
+        assertThat(directoryRepository.findByOwnerId(owner.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    void testUpdatePathPrefix() {
+        directoryRepository.saveAllAndFlush(List.of(
+                directory("a", null, "user@mail.com/my_docs"),
+                directory("b", "a", "user@mail.com/my_docs/2024"),
+                directory("c", null, "user@mail.com/myXdocs"),
+                directory("d", null, "user@mail.com/my_docs2")));
+
+        int updated = directoryRepository.updatePathPrefix("user@mail.com/my_docs",
+                "user@mail.com/my!_docs/%", "user@mail.com/my_docs".length(), "user@mail.com/archive/my_docs");
+
+        assertThat(updated).isEqualTo(2);
+        assertThat(directoryRepository.findByUuidIn(List.of("a", "b", "c", "d")))
+                .extracting(Directory::getPath)
+                .containsExactlyInAnyOrder("user@mail.com/archive/my_docs", "user@mail.com/archive/my_docs/2024",
+                        "user@mail.com/myXdocs", "user@mail.com/my_docs2");
+    }
+
+    private Directory directory(String uuid, String parentUuid, String path) {
+        return Directory.builder().uuid(uuid).owner(owner).parentUuid(parentUuid).path(path).build();
+    }
+}
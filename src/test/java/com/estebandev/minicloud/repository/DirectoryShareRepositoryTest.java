@@ -0,0 +1,76 @@
+package com.estebandev.minicloud.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.estebandev.minicloud.entity.DirectoryShare;
+import com.estebandev.minicloud.entity.SharePermission;
+import com.estebandev.minicloud.entity.User;
+
+@DataJpaTest
+class DirectoryShareRepositoryTest {
+
+    @Autowired
+    private DirectoryShareRepository directoryShareRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    private User other;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .email("user@mail.com")
+                .nickname("user")
+                .password("password")
+                .build());
+        other = userRepository.save(User.builder()
+                .email("other@mail.com")
+                .nickname("other")
+                .password("password")
+                .build());
+    }
+
+    @Test
+    void testLooksUpSharesInBothDirections() {
+        directoryShareRepository.saveAllAndFlush(List.of(share("a", user), share("b", user), share("a", other)));
+
+        assertThat(directoryShareRepository.existsByDirectoryUuidAndUserEmail("a", "user@mail.com")).isTrue();
+        assertThat(directoryShareRepository.existsByDirectoryUuidAndUserEmail("c", "user@mail.com")).isFalse();
+        assertThat(directoryShareRepository.existsByDirectoryUuidAndUserId("b", other.getId())).isFalse();
+        assertThat(directoryShareRepository.findDirectoryUuidsByUserId(user.getId()))
+                .containsExactlyInAnyOrder("a", "b");
+        assertThat(directoryShareRepository.findUsersByDirectoryUuid("a"))
+                .extracting(User::getEmail)
+                .containsExactlyInAnyOrder("user@mail.com", "other@mail.com");
+    }
+
+    @Test
+    void testDeletes() {
+        directoryShareRepository.saveAllAndFlush(List.of(share("a", user), share("b", user), share("a", other)));
+
+        assertThat(directoryShareRepository.deleteByDirectoryUuidAndUserId("b", user.getId())).isEqualTo(1);
+        assertThat(directoryShareRepository.deleteByDirectoryUuidAndUserId("b", user.getId())).isZero();
+        assertThat(directoryShareRepository.deleteByDirectoryUuidIn(List.of("a"))).isEqualTo(2);
+        assertThat(directoryShareRepository.count()).isZero();
+    }
+
+    private DirectoryShare share(String uuid, User user) {
+        return DirectoryShare.builder()
+                .directoryUuid(uuid)
+                .user(user)
+                .permission(SharePermission.WRITE)
+                .grantedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -231,4 +231,28 @@ class FileMetadataRepositoryTest {
                     assertThat(m.getValue()).containsIgnoringCase(searchTerm);
                 });
     }
+
+    @Test
+    @Transactional
+    void testUpdatePathPrefix() {
+        fileMetadataRepository.saveAllAndFlush(List.of(
+                FileMetadata.builder().uuid("a").key("path").value("user@mail.com/my_docs").build(),
+                FileMetadata.builder().uuid("b").key("path").value("user@mail.com/my_docs/2024").build(),
+                FileMetadata.builder().uuid("c").key("path").value("user@mail.com/myXdocs").build(),
+                FileMetadata.builder().uuid("d").key("path").value("user@mail.com/my_docs2").build(),
+                FileMetadata.builder().uuid("b").key("owner").value("user@mail.com/my_docs/2024").build()));
+
+        int updated = fileMetadataRepository.updatePathPrefix("user@mail.com/my_docs",
+                "user@mail.com/my!_docs/%", "user@mail.com/my_docs".length(), "user@mail.com/archive/my_docs");
+
+        assertThat(updated).isEqualTo(2);
+        assertThat(fileMetadataRepository.findByUuidAndKey("a", "path").get().getValue())
+                .isEqualTo("user@mail.com/archive/my_docs");
+        assertThat(fileMetadataRepository.findByUuidAndKey("b", "path").get().getValue())
+                .isEqualTo("user@mail.com/archive/my_docs/2024");
+        assertThat(fileMetadataRepository.findByUuidAndKey("c", "path").get().getValue())
+                .isEqualTo("user@mail.com/myXdocs");
+        assertThat(fileMetadataRepository.findByUuidAndKey("d", "path").get().getValue())
+                .isEqualTo("user@mail.com/my_docs2");
+    }
 }
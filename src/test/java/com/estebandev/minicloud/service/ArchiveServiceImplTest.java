@@ -0,0 +1,185 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.estebandev.minicloud.component.CompressionPool;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.utils.ArchiveFormat;
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ArchiveServiceImplTest {
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileManagerService fileManagerService;
+
+    @Mock
+    private FileSecurityService fileSecurityService;
+
+    @Mock
+    private UserService userService;
+
+    @Spy
+    private CompressionPool compressionPool = new CompressionPool();
+
+    @InjectMocks
+    private ArchiveServiceImpl archiveService;
+
+    private final User user = User.builder().email("user@example.com").build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path docs = tempDir.resolve("user@example.com/docs");
+        Files.createDirectories(docs.resolve("empty"));
+        Files.createDirectories(docs.resolve("shared"));
+        Files.writeString(docs.resolve("a.txt"), "first file");
+        Files.writeString(docs.resolve(".dirdata.xml"), "<metadata/>");
+        Files.writeString(docs.resolve("shared/secret.txt"), "not yours");
+
+        when(fileManagerService.getRoot()).thenReturn(tempDir);
+        when(userService.getUserAllDataFromAuth()).thenReturn(user);
+        when(fileSecurityService.isUserHasAccessTo(any(), eq(user))).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        compressionPool.shutdown();
+    }
+
+    @Test
+    void zip_deflatedSkipsInternalFiles() throws Exception {
+        Map<String, String> entries = unzip(archive(List.of(), ArchiveFormat.ZIP, false));
+
+        assertThat(entries).containsEntry("docs/a.txt", "first file")
+                .containsKeys("docs/", "docs/empty/", "docs/shared/secret.txt")
+                .doesNotContainKey("docs/.dirdata.xml");
+    }
+
+    @Test
+    void zip_storedEntriesHaveNoCompression() throws Exception {
+        byte[] archive = archive(List.of("a.txt"), ArchiveFormat.ZIP, true);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertThat(entry.getName()).isEqualTo("a.txt");
+            assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(new String(zip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("first file");
+        }
+    }
+
+    @Test
+    void zip_skipsDirectoriesWithoutAccess() throws Exception {
+        when(fileSecurityService.isUserHasAccessTo(eq("user@example.com/docs/shared"), eq(user)))
+                .thenReturn(false);
+
+        Map<String, String> entries = unzip(archive(List.of(), ArchiveFormat.ZIP, false));
+
+        assertThat(entries).containsKey("docs/a.txt")
+                .doesNotContainKeys("docs/shared/", "docs/shared/secret.txt");
+    }
+
+    @Test
+    void compressedFilesAreArchivedWithTheirOriginalContent() throws Exception {
+        Path docs = tempDir.resolve("user@example.com/docs");
+        String content = "log line\n".repeat(500);
+        Path source = Files.writeString(tempDir.resolve("source"), content);
+        BlockCompressedFile.compress(source, docs.resolve("app.txt"), 1024, 6);
+
+        try (ZipInputStream zip = new ZipInputStream(
+                new ByteArrayInputStream(archive(List.of("app.txt"), ArchiveFormat.ZIP, true)))) {
+            assertThat(zip.getNextEntry().getName()).isEqualTo("app.txt");
+            assertThat(new String(zip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(content);
+        }
+
+        byte[] tar = archive(List.of("app.txt"), ArchiveFormat.TAR, false);
+        assertThat(new String(tar, 512, content.length(), StandardCharsets.US_ASCII)).isEqualTo(content);
+    }
+
+    @Test
+    void tar_writesUstarEntriesAndLongNames() throws Exception {
+        String longName = "n".repeat(150) + ".txt";
+        Files.writeString(tempDir.resolve("user@example.com/docs").resolve(longName), "long");
+
+        byte[] archive = archive(List.of("a.txt", longName), ArchiveFormat.TAR, false);
+
+        assertThat(archive.length % 512).isZero();
+        assertThat(new String(archive, 0, 5, StandardCharsets.US_ASCII)).isEqualTo("a.txt");
+        assertThat(new String(archive, 257, 5, StandardCharsets.US_ASCII)).isEqualTo("ustar");
+        assertThat(new String(archive, 512, 10, StandardCharsets.US_ASCII)).isEqualTo("first file");
+
+        byte[] pax = Arrays.copyOfRange(archive, 1024, 1024 + 512);
+        assertThat(pax[156]).isEqualTo((byte) 'x');
+        String records = new String(archive, 1536, 512, StandardCharsets.UTF_8);
+        assertThat(records).startsWith("164 path=" + longName + "\n");
+    }
+
+    @Test
+    void tarGz_isCompressedInParallel() throws Exception {
+        compressionPool.setParallelism(2);
+        byte[] archive = archive(List.of("a.txt"), ArchiveFormat.TAR_GZ, false);
+
+        byte[] tar;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(archive))) {
+            tar = gzip.readAllBytes();
+        }
+        assertThat(tar.length).isEqualTo(512 * 4);
+        assertThat(new String(tar, 0, 5, StandardCharsets.US_ASCII)).isEqualTo("a.txt");
+        assertThat(new String(tar, 512, 10, StandardCharsets.US_ASCII)).isEqualTo("first file");
+    }
+
+    @Test
+    void rejectsNamesOutsideTheDirectory() {
+        assertThatThrownBy(() -> archive(List.of("../other"), ArchiveFormat.ZIP, false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private byte[] archive(List<String> names, ArchiveFormat format, boolean stored) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        archiveService.writeArchive("user@example.com/docs", names, format, stored, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static Map<String, String> unzip(byte[] archive) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,191 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.security.access.AccessDeniedException;
+
+import com.estebandev.minicloud.config.FileActionSecurityManager;
+import com.estebandev.minicloud.service.utils.BatchOperation;
+import com.estebandev.minicloud.service.utils.BatchResult;
+import com.estebandev.minicloud.service.utils.IOSupplier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BatchOperationServiceImplTest {
+    @Mock
+    private FileManagerService fileManagerService;
+
+    @Mock
+    private DeleteJobService deleteJobService;
+
+    @Mock
+    private FileActionSecurityManager fileActionSecurityManager;
+
+    @InjectMocks
+    private BatchOperationServiceImpl batchOperationService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(fileActionSecurityManager.rememberingDecisions(any()))
+                .thenAnswer(invocation -> invocation.<IOSupplier<?>>getArgument(0).get());
+        when(fileManagerService.inDirectory(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<IOSupplier<?>>getArgument(1).get());
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchOperationService.shutdown();
+    }
+
+    @Test
+    void execute_locksEachDirectoryOnce() throws Exception {
+        when(fileManagerService.rename(anyString(), anyString()))
+                .thenAnswer(invocation -> Path.of("user@example.com/a", invocation.getArgument(1, String.class)));
+
+        List<BatchResult> results = batchOperationService.execute(List.of(
+                rename("user@example.com/a/1.txt", "one.txt"),
+                rename("user@example.com/a/2.txt", "two.txt"),
+                delete("user@example.com/b/3.txt"),
+                rename("user@example.com/a/4.txt", "four.txt")));
+
+        assertThat(results).allMatch(BatchResult::isSuccess);
+        assertThat(results).extracting(BatchResult::getIndex).containsExactly(0, 1, 2, 3);
+        assertThat(results.get(1).getPath()).isEqualTo("user@example.com/a/two.txt");
+        verify(fileManagerService, times(1)).inDirectory(eq("user@example.com/a"), any());
+        verify(fileManagerService, times(1)).inDirectory(eq("user@example.com/b"), any());
+        verify(fileActionSecurityManager, times(2)).rememberingDecisions(any());
+    }
+
+    @Test
+    void execute_failedOperationDoesNotStopTheRest() throws Exception {
+        doThrow(new FileNotFoundException("File not exists")).when(fileManagerService)
+                .delete("user@example.com/a/missing.txt");
+
+        List<BatchResult> results = batchOperationService.execute(List.of(
+                delete("user@example.com/a/missing.txt"),
+                delete("user@example.com/a/present.txt"),
+                BatchOperation.builder().op(BatchOperation.Type.MKDIR).path("user@example.com").name("../x").build()));
+
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(0).getError()).isInstanceOf(FileNotFoundException.class);
+        assertThat(results.get(1).isSuccess()).isTrue();
+        assertThat(results.get(2).getError()).isInstanceOf(IllegalArgumentException.class);
+        verify(fileManagerService).delete("user@example.com/a/present.txt");
+        verify(fileManagerService, never()).makeDirectory(anyString(), anyString());
+    }
+
+    @Test
+    void execute_failsTheWholeGroupWhenTheDirectoryIsDenied() throws Exception {
+        when(fileManagerService.inDirectory(eq("user@example.com/private"), any()))
+                .thenThrow(new AccessDeniedException("Access Denied"));
+
+        List<BatchResult> results = batchOperationService.execute(List.of(
+                delete("user@example.com/private/1.txt"),
+                delete("user@example.com/public/2.txt"),
+                delete("user@example.com/private/3.txt")));
+
+        assertThat(results).extracting(BatchResult::isSuccess).containsExactly(false, true, false);
+        verify(fileManagerService, never()).delete("user@example.com/private/1.txt");
+    }
+
+    @Test
+    void execute_runsMovesAndRecursiveDeletes() throws Exception {
+        when(fileManagerService.move("user@example.com/a/1.txt", "user@example.com/b"))
+                .thenReturn(Path.of("user@example.com/b/1.txt"));
+
+        List<BatchResult> results = batchOperationService.execute(List.of(
+                BatchOperation.builder().op(BatchOperation.Type.MOVE).path("user@example.com/a/1.txt")
+                        .target("user@example.com/b").build(),
+                BatchOperation.builder().op(BatchOperation.Type.DELETE).path("user@example.com/a/old")
+                        .recursive(true).build()));
+
+        assertThat(results).allMatch(BatchResult::isSuccess);
+        assertThat(results.get(0).getPath()).isEqualTo("user@example.com/b/1.txt");
+        verify(deleteJobService).start("user@example.com/a/old");
+    }
+
+    @Test
+    void execute_runsNestedGroupsOneAfterTheOther() throws Exception {
+        Set<Path> locked = ConcurrentHashMap.newKeySet();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Path directory = Path.of(invocation.getArgument(0, String.class));
+            synchronized (locked) {
+                if (locked.stream().anyMatch(other -> other.startsWith(directory) || directory.startsWith(other)))
+                    overlapped.set(true);
+                locked.add(directory);
+            }
+            Thread.sleep(50);
+            try {
+                return invocation.<IOSupplier<?>>getArgument(1).get();
+            } finally {
+                locked.remove(directory);
+            }
+        }).when(fileManagerService).inDirectory(anyString(), any());
+
+        List<BatchResult> results = batchOperationService.execute(List.of(
+                delete("user@example.com/a/sub/1.txt"),
+                delete("user@example.com/a/2.txt"),
+                delete("user@example.com/b/3.txt"),
+                delete("user@example.com/a/sub/deeper/4.txt")));
+
+        assertThat(results).allMatch(BatchResult::isSuccess);
+        assertThat(overlapped).isFalse();
+        verify(fileManagerService, times(4)).inDirectory(anyString(), any());
+    }
+
+    @Test
+    void execute_rejectsEntriesOfTheRoot() throws Exception {
+        List<BatchResult> results = batchOperationService.execute(List.of(
+                rename("user@example.com", "other@example.com")));
+
+        assertThat(results.get(0).getError()).isInstanceOf(IllegalArgumentException.class);
+        verify(fileManagerService, never()).inDirectory(anyString(), any());
+    }
+
+    @Test
+    void execute_rejectsOversizedBatch() {
+        List<BatchOperation> operations = Collections.nCopies(BatchOperationServiceImpl.MAX_OPERATIONS + 1,
+                delete("user@example.com/a.txt"));
+
+        assertThatThrownBy(() -> batchOperationService.execute(operations))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> batchOperationService.execute(List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static BatchOperation rename(String path, String name) {
+        return BatchOperation.builder().op(BatchOperation.Type.RENAME).path(path).name(name).build();
+    }
+
+    private static BatchOperation delete(String path) {
+        return BatchOperation.builder().op(BatchOperation.Type.DELETE).path(path).build();
+    }
+}
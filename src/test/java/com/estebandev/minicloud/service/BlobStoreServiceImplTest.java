@@ -0,0 +1,80 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estebandev.minicloud.service.utils.DedupStats;
+
+public class BlobStoreServiceImplTest {
+    @TempDir
+    Path tempDir;
+
+    private final BlobStoreServiceImpl blobStoreService = new BlobStoreServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        blobStoreService.setPathString(tempDir.toString());
+        blobStoreService.setEnabled(true);
+        assumeTrue(blobStoreService.isEnabled(), "hard links need a unix file system");
+    }
+
+    @Test
+    void link_ShouldStoreEqualContentOnce() throws Exception {
+        Path first = store("a/report.pdf", "same content");
+        Path second = store("b/copy.pdf", "same content");
+
+        assertThat(Files.isSameFile(first, second)).isTrue();
+        assertThat(Files.readString(second)).isEqualTo("same content");
+
+        DedupStats stats = blobStoreService.stats();
+        assertThat(stats.getBlobs()).isEqualTo(1);
+        assertThat(stats.getReferences()).isEqualTo(2);
+        assertThat(stats.getLogicalBytes()).isEqualTo(2 * stats.getPhysicalBytes());
+        assertThat(stats.getRatio()).isEqualTo(2.0);
+    }
+
+    @Test
+    void link_ShouldNotOverwriteExistingFile() throws Exception {
+        Path filePath = store("a/report.pdf", "first");
+        Path tmpPath = writeTmp("second");
+
+        assertThrows(FileAlreadyExistsException.class,
+                () -> blobStoreService.link(tmpPath, blobStoreService.hash(tmpPath), filePath));
+        assertThat(Files.readString(filePath)).isEqualTo("first");
+    }
+
+    @Test
+    void collectGarbage_ShouldRemoveOnlyUnreferencedBlobs() throws Exception {
+        Path kept = store("a/kept.txt", "kept");
+        Path removed = store("a/removed.txt", "removed");
+        Path renamed = Files.move(kept, kept.resolveSibling("renamed.txt"));
+        Files.delete(removed);
+
+        assertThat(blobStoreService.collectGarbage()).isEqualTo(1);
+        assertThat(Files.exists(blobStoreService.getBlobPath(blobStoreService.hash(renamed)))).isTrue();
+        assertThat(blobStoreService.stats().getBlobs()).isEqualTo(1);
+    }
+
+    private Path store(String pathString, String content) throws Exception {
+        Path filePath = tempDir.resolve(pathString);
+        Files.createDirectories(filePath.getParent());
+        Path tmpPath = writeTmp(content);
+
+        blobStoreService.link(tmpPath, blobStoreService.hash(tmpPath), filePath);
+        Files.delete(tmpPath);
+        return filePath;
+    }
+
+    private Path writeTmp(String content) throws Exception {
+        return Files.writeString(Files.createTempFile(tempDir, ".upload-", ".part"), content);
+    }
+}
@@ -0,0 +1,106 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.DeleteJob;
+
+@ExtendWith(MockitoExtension.class)
+public class DeleteJobServiceImplTest {
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileManagerService fileManagerService;
+
+    @Mock
+    private FileMetadataService fileMetadataService;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private DeleteJobServiceImpl deleteJobService;
+
+    private final String email = "user@example.com";
+    private final UUID docsUuid = UUID.randomUUID();
+    private final UUID photosUuid = UUID.randomUUID();
+    private Path trashPath;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        trashPath = tempDir.resolve("trash").resolve(UUID.randomUUID().toString());
+        Files.createDirectories(trashPath.resolve("photos/2024"));
+        for (int i = 0; i < 10; i++) {
+            Files.writeString(trashPath.resolve("photos/2024/img" + i + ".jpg"), "image");
+        }
+        Files.writeString(trashPath.resolve("notes.txt"), "notes");
+
+        when(userService.getUserFromAuth()).thenReturn(User.builder().email(email).build());
+        when(fileManagerService.moveToTrash(email + "/docs")).thenReturn(trashPath);
+        when(fileMetadataService.getUuidFromDir(any(Path.class))).thenAnswer(invocation -> {
+            Path dir = invocation.getArgument(0);
+            if (dir.equals(trashPath))
+                return docsUuid;
+            if (dir.endsWith("photos"))
+                return photosUuid;
+            throw new IOException("No metadata");
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteJobService.shutdown();
+    }
+
+    @Test
+    void start_ShouldDeleteTreeAndMetadataInBackground() throws Exception {
+        DeleteJob job = deleteJobService.start(email + "/docs");
+
+        await().atMost(Duration.ofSeconds(10)).until(job::isFinished);
+
+        assertThat(job.getStatus()).isEqualTo(DeleteJob.Status.DONE);
+        assertThat(job.getTotal()).isEqualTo(14);
+        assertThat(job.getDeleted()).isEqualTo(14);
+        assertThat(Files.exists(trashPath)).isFalse();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> uuids = ArgumentCaptor.forClass(List.class);
+        verify(fileMetadataService).deleteAll(uuids.capture());
+        assertThat(uuids.getValue()).containsExactlyInAnyOrder(docsUuid.toString(), photosUuid.toString());
+    }
+
+    @Test
+    void find_ShouldHideJobsOfOtherUsers() throws Exception {
+        DeleteJob job = deleteJobService.start(email + "/docs");
+        await().atMost(Duration.ofSeconds(10)).until(job::isFinished);
+        assertThat(deleteJobService.find(job.getId())).isSameAs(job);
+
+        when(userService.getUserFromAuth()).thenReturn(User.builder().email("other@example.com").build());
+
+        assertThatThrownBy(() -> deleteJobService.find(job.getId())).isInstanceOf(ServiceException.class);
+    }
+}
@@ -8,35 +8,51 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.UUID;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.core.io.Resource;
-import org.springframework.data.crossstore.ChangeSetPersister.NotFoundException;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.estebandev.minicloud.entity.FileMetadata;
+import com.estebandev.minicloud.component.DirectoryListingCache;
+import com.estebandev.minicloud.entity.Directory;
 import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.repository.DirectoryShareRepository;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
 import com.estebandev.minicloud.service.utils.FileData;
+import com.estebandev.minicloud.service.utils.ListingCursor;
+import com.estebandev.minicloud.service.utils.ListingPage;
+import com.estebandev.minicloud.service.utils.ListingSort;
+import com.estebandev.minicloud.service.utils.UploadResult;
 import com.sun.jdi.connect.Connector.Argument;
 
 public class FileManagerServiceImplTest {
@@ -50,18 +66,35 @@ public class FileManagerServiceImplTest {
     @Mock
     private FileMetadataService fileMetadataService;
 
+    @Mock
+    private BlobStoreService blobStoreService;
+
+    @Mock
+    private StorageCompressionService storageCompressionService;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    @Mock
+    private DirectoryShareRepository directoryShareRepository;
+
+    @Spy
+    private DirectoryListingCache directoryListingCache = new DirectoryListingCache(16, false);
+
     @InjectMocks
     private FileManagerServiceImpl fileManagerService;
 
-    @Captor
-    ArgumentCaptor<FileMetadata> fileMdCaptor;
-
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         fileManagerService.setPathString(tempDir.toString());
     }
 
+    @AfterEach
+    void tearDown() {
+        fileManagerService.shutdown();
+    }
+
     @Test
     void testVerifyRootDirectory() {
         fileManagerService.verifyRootDirectory();
@@ -73,14 +106,12 @@ public class FileManagerServiceImplTest {
         Path newDir = tempDir.resolve("newDir");
         User user = User.builder().build();
         when(userService.getUserFromAuth()).thenReturn(user);
-        FileMetadata fileMetadata = mock(FileMetadata.class);
-        when(fileMetadataService.findMetadataFromKey(newDir, "path")).thenReturn(fileMetadata);
 
         fileManagerService.makeDirectory("newDir");
 
         assertTrue(Files.exists(newDir));
-        verify(fileMetadataService).make(newDir, user);
-        verify(fileMetadataService).save(eq(newDir), any(FileMetadata.class));
+        verify(fileMetadataService).make(newDir, "newDir", user);
+        verify(fileMetadataService, never()).movePaths(anyString(), anyString());
     }
 
     @Test
@@ -104,6 +135,127 @@ public class FileManagerServiceImplTest {
         verify(multipartFile).transferTo(any(Path.class));
     }
 
+    @Test
+    void testUploadFileStream_Success() throws IOException {
+        Path dirPath = tempDir.resolve("uploads");
+        Files.createDirectory(dirPath);
+
+        Path filePath = fileManagerService.uploadFile("uploads", "test file.txt",
+                new ByteArrayInputStream("content".getBytes()));
+
+        assertThat(filePath).isEqualTo(Path.of("uploads", "test-file.txt"));
+        assertThat(tempDir.resolve(filePath)).hasContent("content");
+        try (var files = Files.list(dirPath)) {
+            assertThat(files).hasSize(1);
+        }
+        verify(thumbnailService).schedule(tempDir.resolve(filePath));
+    }
+
+    @Test
+    void testUploadFileStream_RejectsInternalNames() throws IOException {
+        Path dirPath = tempDir.resolve("uploads");
+        Files.createDirectory(dirPath);
+
+        for (String name : new String[] { ".upload-x.part", ".dirid", ".dirdata.xml", ".minicloud", ".." })
+            assertThrows(IllegalArgumentException.class, () -> fileManagerService.uploadFile("uploads", name,
+                    new ByteArrayInputStream("content".getBytes())));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> fileManagerService.uploadFile("uploads", (String) null,
+                        new ByteArrayInputStream("content".getBytes())));
+        assertEquals("The file has no name", e.getMessage());
+
+        try (var files = Files.list(dirPath)) {
+            assertThat(files).isEmpty();
+        }
+        assertThat(tempDir.resolve("content")).doesNotExist();
+    }
+
+    @Test
+    void testUploadFile_SingleMultipartRejectsParentName() throws IOException {
+        Files.createDirectory(tempDir.resolve("uploads"));
+
+        assertThrows(IllegalArgumentException.class, () -> fileManagerService.uploadFile("uploads",
+                new MockMultipartFile("file", "..", "text/plain", "content".getBytes())));
+    }
+
+    @Test
+    void testUploadFileStream_NameCollision() throws IOException {
+        Path dirPath = tempDir.resolve("uploads");
+        Files.createDirectory(dirPath);
+        Files.writeString(dirPath.resolve("test.txt"), "old");
+
+        Path filePath = fileManagerService.uploadFile("uploads", "test.txt",
+                new ByteArrayInputStream("new".getBytes()));
+
+        assertThat(filePath.getFileName().toString()).isNotEqualTo("test.txt");
+        assertThat(dirPath.resolve("test.txt")).hasContent("old");
+        assertThat(tempDir.resolve(filePath)).hasContent("new");
+    }
+
+    @Test
+    void testUploadFiles_StoresEveryPartWithUniqueNames() throws IOException {
+        Path dirPath = tempDir.resolve("uploads");
+        Files.createDirectory(dirPath);
+        Files.writeString(dirPath.resolve("a.txt"), "old");
+
+        List<UploadResult> results = fileManagerService.uploadFiles("uploads", List.of(
+                new MockMultipartFile("file", "a.txt", "text/plain", "first".getBytes()),
+                new MockMultipartFile("file", "a.txt", "text/plain", "second".getBytes()),
+                new MockMultipartFile("file", "b c.txt", "text/plain", "third".getBytes())));
+
+        assertThat(results).allMatch(UploadResult::isSuccess);
+        assertThat(results).extracting(UploadResult::getPath).doesNotHaveDuplicates();
+        assertThat(tempDir.resolve(results.get(0).getPath())).hasContent("first");
+        assertThat(tempDir.resolve(results.get(1).getPath())).hasContent("second");
+        assertThat(results.get(2).getPath()).isEqualTo(Path.of("uploads", "b-c.txt").toString());
+        assertThat(dirPath.resolve("a.txt")).hasContent("old");
+        try (var files = Files.list(dirPath)) {
+            assertThat(files).hasSize(4);
+        }
+    }
+
+    @Test
+    void testUploadFiles_FailedPartDoesNotFailTheOthers() throws IOException {
+        Files.createDirectory(tempDir.resolve("uploads"));
+
+        List<UploadResult> results = fileManagerService.uploadFiles("uploads", List.of(
+                new MockMultipartFile("file", "..", "text/plain", "bad".getBytes()),
+                new MockMultipartFile("file", "good.txt", "text/plain", "good".getBytes())));
+
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(0).getError()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(results.get(1).isSuccess()).isTrue();
+        assertThat(tempDir.resolve("uploads/good.txt")).hasContent("good");
+    }
+
+    @Test
+    void testUploadFileStream_CommitsCompressedFile() throws IOException {
+        Files.createDirectory(tempDir.resolve("uploads"));
+        when(storageCompressionService.compress(any(Path.class), any(Path.class))).thenAnswer(invocation -> {
+            Path tmpPath = invocation.getArgument(0, Path.class);
+            Path compressedPath = tmpPath.resolveSibling(tmpPath.getFileName() + ".z");
+            BlockCompressedFile.compress(tmpPath, compressedPath, 1024, 6);
+            return compressedPath;
+        });
+
+        Path filePath = fileManagerService.uploadFile("uploads", "app.log.txt",
+                new ByteArrayInputStream("line\n".repeat(1000).getBytes()));
+
+        try (BlockCompressedFile file = BlockCompressedFile.open(tempDir.resolve(filePath))) {
+            assertThat(file).isNotNull();
+            assertThat(file.size()).isEqualTo(5000);
+        }
+        try (var files = Files.list(tempDir.resolve("uploads"))) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    @Test
+    void testUploadFileStream_DirectoryNotFound() {
+        assertThrows(FileNotFoundException.class, () -> fileManagerService.uploadFile("missing", "test.txt",
+                new ByteArrayInputStream("content".getBytes())));
+    }
+
     @Test
     void testFindFile_Success() throws IOException {
         Path filePath = tempDir.resolve("file.txt");
@@ -113,6 +265,22 @@ public class FileManagerServiceImplTest {
         assertTrue(resource.exists());
     }
 
+    @Test
+    void testFindFileData_ReadsAllAttributes() throws IOException {
+        Path filePath = Files.write(tempDir.resolve("photo.png"), new byte[2048]);
+        when(userService.getUserFromAuth()).thenReturn(User.builder().email("user@example.com").build());
+
+        FileData fileData = fileManagerService.findFileData("photo.png");
+
+        assertEquals(filePath, fileData.getPath());
+        assertEquals("image/png", fileData.getMediaType());
+        assertEquals(2048, fileData.getSizeBytes());
+        assertEquals(Files.getLastModifiedTime(filePath).toInstant(), fileData.getLastModified());
+        assertNotNull(fileData.getCreated());
+        assertTrue(fileData.isEditable());
+        assertFalse(fileData.isDirectory());
+    }
+
     @Test
     void testFindFile_NotFound() {
         assertThrows(FileNotFoundException.class, () -> fileManagerService.findFile("missing.txt"));
@@ -128,6 +296,47 @@ public class FileManagerServiceImplTest {
         assertEquals(2, files.size());
     }
 
+    @Test
+    void testListFiles_CachedUntilUpload() throws IOException, FileIsNotDirectoryException {
+        Files.createDirectory(tempDir.resolve("testDir"));
+        fileManagerService.listFiles("testDir");
+        fileManagerService.listFiles("testDir");
+        assertEquals(1, directoryListingCache.stats().getHits());
+
+        fileManagerService.uploadFile("testDir", "file.txt", new ByteArrayInputStream(new byte[1]));
+
+        assertEquals(1, fileManagerService.listFiles("testDir").size());
+    }
+
+    @Test
+    void testListPage_WalksAllPagesInOrder() throws Exception {
+        Path dir = tempDir.resolve("testDir");
+        Files.createDirectory(dir);
+        for (int i = 0; i < 5; i++) {
+            Files.write(dir.resolve("file" + i + ".txt"), new byte[(i * 7) % 5]);
+        }
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            ListingPage page = fileManagerService.listPage("testDir", ListingSort.SIZE, true, cursor, 2);
+            page.getEntries().forEach(fileData -> names.add(fileData.getFileName()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of("file2.txt", "file4.txt", "file1.txt", "file3.txt", "file0.txt"), names);
+    }
+
+    @Test
+    void testListPage_RejectsCursorOfOtherOrder() throws Exception {
+        Files.createDirectory(tempDir.resolve("testDir"));
+        String cursor = ListingCursor.after(FileData.builder().fileName("a").build(), ListingSort.NAME, false)
+                .encode();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> fileManagerService.listPage("testDir", ListingSort.NAME, true, cursor, 10));
+    }
+
     @Test
     void testDeleteFile_Success() throws IOException {
         Path filePath = tempDir.resolve("deleteMe.txt");
@@ -140,9 +349,137 @@ public class FileManagerServiceImplTest {
     void testDeleteDirectory_Success() throws IOException {
         Path filePath = tempDir.resolve("deleteMe");
         Files.createDirectory(filePath);
+        Files.createFile(filePath.resolve(".dirid"));
+        UUID uuid = UUID.randomUUID();
+        when(fileMetadataService.getUuidFromDir(filePath)).thenReturn(uuid);
+
         fileManagerService.delete("deleteMe");
+
         assertFalse(Files.exists(filePath));
-        verify(fileMetadataService).deleteAll(filePath);
+        verify(fileMetadataService).deleteAll(List.of(uuid.toString()));
+    }
+
+    @Test
+    void testDeleteDirectory_RefusesOpenUploadSession() throws IOException {
+        Path filePath = tempDir.resolve("deleteMe");
+        Files.createDirectory(filePath);
+        Files.createFile(filePath.resolve(".upload-" + UUID.randomUUID() + ".part"));
+
+        assertThrows(IOException.class, () -> fileManagerService.delete("deleteMe"));
+
+        assertTrue(Files.isDirectory(filePath));
+        verify(fileMetadataService, never()).deleteAll(anyList());
+        verify(fileMetadataService, never()).deleteAll(any(Path.class));
+    }
+
+    @Test
+    void testDeleteDirectory_RestoresDirectoryWhenMetadataFails() throws IOException {
+        Path filePath = tempDir.resolve("deleteMe");
+        Files.createDirectory(filePath);
+        UUID uuid = UUID.randomUUID();
+        when(fileMetadataService.getUuidFromDir(filePath)).thenReturn(uuid);
+        doThrow(new IllegalStateException("db down")).when(fileMetadataService)
+                .deleteAll(List.of(uuid.toString()));
+
+        assertThrows(IllegalStateException.class, () -> fileManagerService.delete("deleteMe"));
+
+        assertTrue(Files.isDirectory(filePath));
+    }
+
+    @Test
+    void testMoveToTrash_HidesTreeAtOnce() throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve("user@example.com/docs/deep"));
+        Files.createFile(dir.resolve("file.txt"));
+
+        Path trashPath = fileManagerService.moveToTrash("user@example.com/docs");
+
+        assertFalse(Files.exists(tempDir.resolve("user@example.com/docs")));
+        assertTrue(Files.exists(trashPath.resolve("deep/file.txt")));
+        assertTrue(trashPath.startsWith(fileManagerService.getTrashDir()));
+    }
+
+    @Test
+    void testMoveToTrash_RefusesUserDirectory() throws IOException {
+        Files.createDirectories(tempDir.resolve("user@example.com"));
+
+        assertThrows(IOException.class, () -> fileManagerService.moveToTrash("user@example.com"));
+        assertThrows(IOException.class, () -> fileManagerService.moveToTrash("."));
+    }
+
+    @Test
+    void testMove_RenamesTreeAndRewritesPathsOnce() throws IOException {
+        Files.createDirectories(tempDir.resolve("user@example.com/docs/deep"));
+        Files.createDirectories(tempDir.resolve("user@example.com/archive"));
+        Files.writeString(tempDir.resolve("user@example.com/docs/deep/file.txt"), "content");
+
+        Path newPath = fileManagerService.move("user@example.com/docs", "user@example.com/archive");
+
+        assertEquals(Path.of("user@example.com/archive/docs"), newPath);
+        assertTrue(Files.exists(tempDir.resolve("user@example.com/archive/docs/deep/file.txt")));
+        assertFalse(Files.exists(tempDir.resolve("user@example.com/docs")));
+        verify(fileMetadataService).movePaths("user@example.com/docs", "user@example.com/archive/docs");
+        verify(fileMetadataService).updateParent(tempDir.resolve("user@example.com/archive/docs"));
+        verify(fileMetadataService).invalidate(tempDir.resolve("user@example.com/docs"));
+    }
+
+    @Test
+    void testMove_RefusesOwnSubtree() throws IOException {
+        Files.createDirectories(tempDir.resolve("user@example.com/docs/deep"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> fileManagerService.move("user@example.com/docs", "user@example.com/docs/deep"));
+    }
+
+    @Test
+    void testInDirectory_RejectsTheRoot() {
+        assertThrows(IllegalArgumentException.class, () -> fileManagerService.inDirectory("", () -> null));
+        assertThrows(IllegalArgumentException.class, () -> fileManagerService.inDirectory("..", () -> null));
+    }
+
+    @Test
+    void testCopy_CopiesReadableTreeWithNewIdentities() throws IOException {
+        User user = User.builder().email("user@example.com").build();
+        when(userService.getUserAllDataFromAuth()).thenReturn(user);
+        Path shared = tempDir.resolve("owner@example.com/shared");
+        Files.createDirectories(shared.resolve("photos"));
+        Files.createDirectories(shared.resolve("private"));
+        Files.createDirectories(tempDir.resolve("user@example.com"));
+        Files.writeString(shared.resolve("notes.txt"), "notes");
+        Files.writeString(shared.resolve(".dirdata.xml"), "<old/>");
+        Files.writeString(shared.resolve("photos/a.jpg"), "image");
+        Files.writeString(shared.resolve("private/secret.txt"), "secret");
+        UUID targetUuid = UUID.randomUUID();
+        when(fileMetadataService.findOwnerEmail(shared.resolve("photos"))).thenReturn("user@example.com");
+        when(fileMetadataService.findOwnerEmail(shared.resolve("private"))).thenReturn("owner@example.com");
+        when(fileMetadataService.getUuidFromDir(tempDir.resolve("user@example.com"))).thenReturn(targetUuid);
+        when(fileMetadataService.getUuidFromDir(shared.resolve("private"))).thenReturn(UUID.randomUUID());
+        when(directoryShareRepository.existsByDirectoryUuidAndUserEmail(anyString(), eq("user@example.com")))
+                .thenReturn(false);
+
+        Path copyPath = fileManagerService.copy("owner@example.com/shared", "user@example.com");
+
+        Path copy = tempDir.resolve(copyPath);
+        assertEquals(Path.of("user@example.com/shared"), copyPath);
+        assertEquals("notes", Files.readString(copy.resolve("notes.txt")));
+        assertEquals("image", Files.readString(copy.resolve("photos/a.jpg")));
+        assertFalse(Files.exists(copy.resolve("private")));
+        assertFalse(Files.exists(copy.resolve(".dirdata.xml")));
+        assertTrue(Files.exists(shared.resolve("notes.txt")));
+        verify(fileMetadataService, times(2)).generateMetadataFile(any(Path.class), anyString());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Directory>> rows = ArgumentCaptor.forClass(List.class);
+        verify(fileMetadataService).saveAll(rows.capture());
+        assertThat(rows.getValue()).hasSize(2)
+                .extracting(Directory::getPath)
+                .containsExactlyInAnyOrder("user@example.com/shared", "user@example.com/shared/photos");
+        assertThat(rows.getValue()).allMatch(directory -> directory.getOwner() == user);
+        Directory root = rows.getValue().stream()
+                .filter(directory -> directory.getPath().equals("user@example.com/shared")).findFirst().get();
+        Directory photos = rows.getValue().stream()
+                .filter(directory -> directory.getPath().equals("user@example.com/shared/photos")).findFirst().get();
+        assertThat(root.getParentUuid()).isEqualTo(targetUuid.toString());
+        assertThat(photos.getParentUuid()).isEqualTo(root.getUuid());
     }
 
     @Test
@@ -155,32 +492,15 @@ public class FileManagerServiceImplTest {
     }
 
     @Test
-    void savePathMetadata_create()
-            throws IOException, NotFoundException {
-        when(fileMetadataService.findMetadataFromKey(any(Path.class), anyString()))
-                .thenThrow(new NoSuchElementException());
-        Path path = fileManagerService.getRoot().resolve("testPathMd");
-        Files.createDirectory(path);
-
-        fileManagerService.savePathMetadata(path);
-
-        verify(fileMetadataService).save(eq(path), fileMdCaptor.capture());
-        FileMetadata fm = fileMdCaptor.getValue();
-        assertThat(fm.getKey()).isEqualTo("path");
-        assertThat(fm.getValue()).isEqualTo(fileManagerService.getRoot().relativize(path).toString());
-    }
-
-    @Test
-    void savePathMetadata_update()
-            throws IOException, NotFoundException {
-        Path path = fileManagerService.getRoot().resolve("testPathMd");
-        FileMetadata fileMetadata = mock(FileMetadata.class);
-        when(fileMetadataService.findMetadataFromKey(path, "path")).thenReturn(fileMetadata);
-        Files.createDirectory(path);
+    void testRename_RewritesSubtreePathsWithOneStatement() throws IOException {
+        Files.createDirectories(tempDir.resolve("user@example.com/docs/a/b/c"));
 
-        fileManagerService.savePathMetadata(path);
+        Path newPath = fileManagerService.rename("user@example.com/docs", "papers");
 
-        verify(fileMetadata).setValue(fileManagerService.getRoot().relativize(path).toString());
-        verify(fileMetadataService).save(path, fileMetadata);
+        assertEquals(Path.of("user@example.com/papers"), newPath);
+        assertTrue(Files.exists(tempDir.resolve("user@example.com/papers/a/b/c")));
+        verify(fileMetadataService).movePaths("user@example.com/docs", "user@example.com/papers");
+        verify(fileMetadataService).invalidate(tempDir.resolve("user@example.com/docs"));
+        verifyNoMoreInteractions(fileMetadataService);
     }
 }
@@ -5,13 +5,16 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -19,8 +22,13 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.UUID;
 
+import com.estebandev.minicloud.component.DirectoryIdentityManager;
+import com.estebandev.minicloud.component.DirectoryUuidCache;
+import com.estebandev.minicloud.entity.Directory;
 import com.estebandev.minicloud.entity.FileMetadata;
 import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.repository.DirectoryRepository;
+import com.estebandev.minicloud.repository.DirectoryShareRepository;
 import com.estebandev.minicloud.repository.FileMetadataRepository;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,7 +40,9 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 @ExtendWith(MockitoExtension.class)
 public class FileMetadataServiceImplTest {
@@ -40,17 +50,29 @@ public class FileMetadataServiceImplTest {
     @TempDir
     Path tempDir;
 
+    @Mock
+    private DirectoryRepository directoryRepository;
+
+    @Mock
+    private DirectoryShareRepository directoryShareRepository;
+
     @Mock
     private FileMetadataRepository fileMetadataRepository;
 
     @Mock
     private UserService userService;
 
+    @Spy
+    private DirectoryUuidCache directoryUuidCache = new DirectoryUuidCache(16);
+
+    @Spy
+    private DirectoryIdentityManager directoryIdentityManager = new DirectoryIdentityManager();
+
     @InjectMocks
     private FileMetadataServiceImpl fileMetadataService;
 
     @Captor
-    private ArgumentCaptor<FileMetadata> metadataCaptor;
+    private ArgumentCaptor<Directory> directoryCaptor;
 
     private User testUser;
     private Path testDirectory;
@@ -58,7 +80,7 @@ public class FileMetadataServiceImplTest {
 
     @BeforeEach
     void setUp() throws IOException {
-        testUser = User.builder().email("test@example.com").build();
+        testUser = User.builder().id(1L).email("test@example.com").build();
         testDirectory = tempDir.resolve("test-dir");
         Files.createDirectory(testDirectory);
         testFile = tempDir.resolve("test-file.txt");
@@ -68,19 +90,37 @@ public class FileMetadataServiceImplTest {
     @Test
     void make_ShouldCreateMetadataFileAndSaveEntry_WhenValidDirectory() throws Exception {
         // When
-        fileMetadataService.make(testDirectory, testUser);
+        fileMetadataService.make(testDirectory, "test-dir", testUser);
 
         // Then
-        // Verify metadata file creation
-        Path metadataFile = testDirectory.resolve(".dirdata.xml");
-        assertThat(metadataFile).exists();
+        // Verify the identity is stored
+        assertThat(directoryIdentityManager.read(testDirectory)).isNotNull();
+        assertThat(testDirectory.resolve(".dirdata.xml")).doesNotExist();
+
+        // Verify a single insert
+        verify(directoryRepository).save(directoryCaptor.capture());
+        Directory saved = directoryCaptor.getValue();
+        assertThat(saved.getUuid()).isEqualTo(fileMetadataService.getUuidFromDir(testDirectory).toString());
+        assertThat(saved.getOwner()).isSameAs(testUser);
+        assertThat(saved.getPath()).isEqualTo("test-dir");
+        assertThat(saved.getParentUuid()).isNull();
+        assertThat(saved.isNew()).isTrue();
+        verify(userService, never()).findByEmail(anyString());
+    }
 
-        // Verify repository save
-        verify(fileMetadataRepository).save(metadataCaptor.capture());
-        FileMetadata savedMetadata = metadataCaptor.getValue();
-        assertThat(savedMetadata.getKey()).isEqualTo("owner");
-        assertThat(savedMetadata.getValue()).isEqualTo(testUser.getEmail());
-        assertThat(savedMetadata.getUuid()).isNotNull();
+    @Test
+    void make_ShouldLinkTheParentAndLookUpOwnersWithoutId() throws Exception {
+        User fromAuth = User.builder().email(testUser.getEmail()).build();
+        when(userService.findByEmail(testUser.getEmail())).thenReturn(testUser);
+        fileMetadataService.make(testDirectory, "test-dir", testUser);
+        Path child = Files.createDirectory(testDirectory.resolve("child"));
+
+        fileMetadataService.make(child, "test-dir/child", fromAuth);
+
+        verify(directoryRepository, times(2)).save(directoryCaptor.capture());
+        Directory saved = directoryCaptor.getAllValues().get(1);
+        assertThat(saved.getParentUuid()).isEqualTo(fileMetadataService.getUuidFromDir(testDirectory).toString());
+        assertThat(saved.getOwner()).isSameAs(testUser);
     }
 
     @Test
@@ -89,7 +129,7 @@ public class FileMetadataServiceImplTest {
         Path nonExistentPath = tempDir.resolve("non-existent");
 
         // When/Then
-        assertThatThrownBy(() -> fileMetadataService.make(nonExistentPath, testUser))
+        assertThatThrownBy(() -> fileMetadataService.make(nonExistentPath, "non-existent", testUser))
                 .isInstanceOf(IOException.class)
                 .hasMessageContaining("File does not exist");
     }
@@ -97,7 +137,7 @@ public class FileMetadataServiceImplTest {
     @Test
     void make_ShouldThrowException_WhenPathIsNotDirectory() {
         // When/Then
-        assertThatThrownBy(() -> fileMetadataService.make(testFile, testUser))
+        assertThatThrownBy(() -> fileMetadataService.make(testFile, "test-file.txt", testUser))
                 .isInstanceOf(FileIsNotDirectoryException.class)
                 .hasMessageContaining("File is not directory");
     }
@@ -105,21 +145,22 @@ public class FileMetadataServiceImplTest {
     @Test
     void deleteAll_ShouldRemoveMetadataAndFile_WhenValidDirectory() throws Exception {
         // Given
-        fileMetadataService.make(testDirectory, testUser);
+        fileMetadataService.make(testDirectory, "test-dir", testUser);
         String uuid = fileMetadataService.getUuidFromDir(testDirectory).toString();
 
         // When
         fileMetadataService.deleteAll(testDirectory);
 
         // Then
-        verify(fileMetadataRepository).deleteByUuid(uuid);
-        assertThat(testDirectory.resolve(".dirdata.xml")).doesNotExist();
+        verify(directoryRepository).deleteByUuidIn(List.of(uuid));
+        verify(directoryShareRepository).deleteByDirectoryUuidIn(List.of(uuid));
+        assertThat(directoryIdentityManager.read(testDirectory)).isNull();
     }
 
     @Test
     void getUuidFromDir_ShouldReturnValidUuid_WhenMetadataExists() throws Exception {
         // Given
-        fileMetadataService.make(testDirectory, testUser);
+        fileMetadataService.make(testDirectory, "test-dir", testUser);
 
         // When
         UUID uuid = fileMetadataService.getUuidFromDir(testDirectory);
@@ -130,27 +171,38 @@ public class FileMetadataServiceImplTest {
     }
 
     @Test
-    void save_ShouldSetUuidFromDirectory_WhenValidPath() throws Exception {
-        // Given
-        fileMetadataService.make(testDirectory, testUser);
-        Mockito.reset(fileMetadataRepository);
-        FileMetadata metadata = FileMetadata.builder()
-                .key("test-key")
-                .value("test-value")
-                .build();
+    void getUuidFromDir_ShouldParseLegacyFileOnceUntilItChanges() throws Exception {
+        writeLegacyMetadata(testDirectory, "11111111-1111-1111-1111-111111111111");
 
-        // When
-        fileMetadataService.save(testDirectory, metadata);
+        assertThat(fileMetadataService.getUuidFromDir(testDirectory).toString())
+                .isEqualTo("11111111-1111-1111-1111-111111111111");
+        assertThat(fileMetadataService.getUuidFromDir(testDirectory).toString())
+                .isEqualTo("11111111-1111-1111-1111-111111111111");
+        assertThat(directoryUuidCache.stats().getHits()).isEqualTo(1);
 
-        // Then
-        verify(fileMetadataRepository).save(metadataCaptor.capture());
-        FileMetadata savedMetadata = metadataCaptor.getValue();
-        assertThat(savedMetadata.getUuid()).isEqualTo(
-                fileMetadataService.getUuidFromDir(testDirectory).toString());
+        Path metadataFile = testDirectory.resolve(".dirdata.xml");
+        writeLegacyMetadata(testDirectory, "22222222-2222-2222-2222-222222222222");
+        Files.setLastModifiedTime(metadataFile, FileTime.from(Instant.now().plusSeconds(5)));
+
+        assertThat(fileMetadataService.getUuidFromDir(testDirectory).toString())
+                .isEqualTo("22222222-2222-2222-2222-222222222222");
     }
 
     @Test
-    void generateMetadataFile_ShouldCreateValidXmlFile() throws Exception {
+    void getUuidFromDir_ShouldNotServeRenamedDirectories() throws Exception {
+        fileMetadataService.make(testDirectory, "test-dir", testUser);
+        UUID uuid = fileMetadataService.getUuidFromDir(testDirectory);
+
+        Path renamed = Files.move(testDirectory, tempDir.resolve("renamed"));
+        fileMetadataService.invalidate(testDirectory);
+
+        assertThat(directoryUuidCache.stats().getSize()).isZero();
+        assertThat(fileMetadataService.getUuidFromDir(renamed)).isEqualTo(uuid);
+        assertThrows(FileIsNotDirectoryException.class, () -> fileMetadataService.getUuidFromDir(testDirectory));
+    }
+
+    @Test
+    void generateMetadataFile_ShouldStoreTheIdentity() throws Exception {
         // Given
         String testUuid = UUID.randomUUID().toString();
         Path targetDir = Files.createDirectory(tempDir.resolve("metadata-test"));
@@ -159,78 +211,90 @@ public class FileMetadataServiceImplTest {
         fileMetadataService.generateMetadataFile(targetDir, testUuid);
 
         // Then
-        Path metadataFile = targetDir.resolve(".dirdata.xml");
-        assertThat(metadataFile).exists();
-
-        Properties props = new Properties();
-        try (InputStream is = Files.newInputStream(metadataFile)) {
-            props.loadFromXML(is);
-        }
-        assertThat(props.getProperty("uuid")).isEqualTo(testUuid);
+        assertThat(fileMetadataService.getUuidFromDir(targetDir).toString()).isEqualTo(testUuid);
+        assertThat(targetDir.resolve(".dirdata.xml")).doesNotExist();
     }
 
     @Test
-    void findMetadataFromKeyTest_SuccessFull() {
+    void migrateIdentity_ShouldMoveTheLegacyFileToTheStore() throws Exception {
         String uuid = UUID.randomUUID().toString();
-        String key = "testKey";
-        Optional<FileMetadata> fileMetadataOptional = Optional.of(FileMetadata.builder().build());
-        when(fileMetadataRepository.findByUuidAndKey(uuid, key)).thenReturn(fileMetadataOptional);
+        writeLegacyMetadata(testDirectory, uuid);
+        assertThat(fileMetadataService.getUuidFromDir(testDirectory).toString()).isEqualTo(uuid);
 
-        fileMetadataService.findMetadataFromKey(uuid, key);
+        assertThat(fileMetadataService.migrateIdentity(testDirectory)).isTrue();
 
-        verify(fileMetadataRepository).findByUuidAndKey(uuid, key);
+        assertThat(testDirectory.resolve(".dirdata.xml")).doesNotExist();
+        assertThat(directoryIdentityManager.read(testDirectory).toString()).isEqualTo(uuid);
+        assertThat(fileMetadataService.getUuidFromDir(testDirectory).toString()).isEqualTo(uuid);
+        assertThat(fileMetadataService.migrateIdentity(testDirectory)).isFalse();
     }
 
     @Test
-    void findMetadataFromKeyTest_NoSuchElementException() {
-        String uuid = UUID.randomUUID().toString();
-        String key = "testKey";
+    void findOwnerEmail_ShouldQueryTheDirectoryOfThePath() throws Exception {
+        fileMetadataService.make(testDirectory, "test-dir", testUser);
+        String uuid = fileMetadataService.getUuidFromDir(testDirectory).toString();
+        when(directoryRepository.findOwnerEmail(uuid)).thenReturn(Optional.of(testUser.getEmail()));
 
-        assertThrows(NoSuchElementException.class, () -> {
-            fileMetadataService.findMetadataFromKey(uuid, key);
-        });
+        assertThat(fileMetadataService.findOwnerEmail(testDirectory)).isEqualTo(testUser.getEmail());
+    }
 
-        verify(fileMetadataRepository).findByUuidAndKey(uuid, key);
+    @Test
+    void findOwnerEmail_ShouldThrow_WhenTheDirectoryHasNoRow() throws Exception {
+        fileMetadataService.generateMetadataFile(testDirectory, UUID.randomUUID().toString());
+
+        assertThrows(NoSuchElementException.class, () -> fileMetadataService.findOwnerEmail(testDirectory));
     }
 
     @Test
-    void findMetadataFromKeyBatchTest_SuccessFull() {
-        String uuid1 = UUID.randomUUID().toString();
-        String uuid2 = UUID.randomUUID().toString();
-        String key = "testKey";
-        List<String> uuids = List.of(uuid1, uuid2);
+    void findOwnedBy_ShouldQueryByOwnerId() {
+        fileMetadataService.findOwnedBy(testUser);
 
-        fileMetadataService.findMetadataFromKeyBatch(uuids, key);
+        verify(directoryRepository).findByOwnerId(1L);
+    }
 
-        verify(fileMetadataRepository).findByUuidsAndKey(uuids, key);
+    @Test
+    @SuppressWarnings("unchecked")
+    void migrateRows_ShouldTurnOwnerAndPathRowsIntoDirectories() throws Exception {
+        String parentUuid = UUID.randomUUID().toString();
+        fileMetadataService.generateMetadataFile(tempDir.resolve("test-dir"), parentUuid);
+        List<FileMetadata> ownerRows = List.of(
+                FileMetadata.builder().id(1L).uuid("a").key("owner").value(testUser.getEmail()).build(),
+                FileMetadata.builder().id(2L).uuid("b").key("owner").value("gone@example.com").build());
+        when(fileMetadataRepository.findByKeyAndIdGreaterThanOrderById(eq("owner"), eq(0L), any()))
+                .thenReturn(ownerRows);
+        when(fileMetadataRepository.findByUuidsAndKey(List.of("a", "b"), "path")).thenReturn(List.of(
+                FileMetadata.builder().uuid("a").key("path").value("test-dir/docs").build(),
+                FileMetadata.builder().uuid("b").key("path").value("test-dir/other").build()));
+        when(userService.findByEmail(testUser.getEmail())).thenReturn(testUser);
+        when(userService.findByEmail("gone@example.com")).thenThrow(new UsernameNotFoundException("gone"));
+
+        long lastId = fileMetadataService.migrateRows(tempDir, 0, 500);
+
+        assertThat(lastId).isEqualTo(2L);
+        ArgumentCaptor<List<Directory>> saved = ArgumentCaptor.forClass(List.class);
+        verify(directoryRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement().satisfies(directory -> {
+            assertThat(directory.getUuid()).isEqualTo("a");
+            assertThat(directory.getOwner()).isSameAs(testUser);
+            assertThat(directory.getPath()).isEqualTo("test-dir/docs");
+            assertThat(directory.getParentUuid()).isEqualTo(parentUuid);
+        });
+        verify(fileMetadataRepository).deleteByUuidIn(List.of("a"));
     }
 
     @Test
-    void findMetadataFromKeyAndValueContainsTest() throws NoSuchElementException, IOException {
-        String key = "testKey";
-        String contains = "sdfas";
-        Path path = testDirectory;
-        fileMetadataService.make(path, testUser);
-        List<FileMetadata> fileMetadataOptional = List.of(FileMetadata.builder().build());
-        when(fileMetadataRepository.findByKeyAndValueContaining(eq(key), eq(contains)))
-                .thenReturn(fileMetadataOptional);
-
-        fileMetadataService.findMetadataFromKeyAndValueContains(key, contains);
-
-        verify(fileMetadataRepository).findByKeyAndValueContaining(eq(key), eq(contains));
-    }
-
-    //@Test
-    //void findMetadataFromKeyAndValueContainsTest_IOException() {
-    //    String key = "testKey";
-    //    String contains = "sdfas";
-    //
-    //    assertThrows(IOException.class, () -> {
-    //        fileMetadataService.findMetadataFromKeyAndValueContains(key, contains);
-    //    });
-    //
-    //    verify(fileMetadataRepository, never()).findByKeyAndValueContaining(eq(key), eq(contains));
-    //}
+    void migrateRows_ShouldStopWhenThereAreNoRows() {
+        assertThat(fileMetadataService.migrateRows(tempDir, 7, 500)).isEqualTo(-1);
+        verify(directoryRepository, never()).saveAll(any());
+    }
+
+    private static void writeLegacyMetadata(Path dir, String uuid) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("uuid", uuid);
+        try (OutputStream outputStream = Files.newOutputStream(dir.resolve(".dirdata.xml"))) {
+            properties.storeToXML(outputStream, null);
+        }
+    }
 
     String generateMetadata(Path path) throws IOException {
         String uuid = UUID.randomUUID().toString();
@@ -13,10 +13,8 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -28,13 +26,19 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
-import com.estebandev.minicloud.entity.FileMetadata;
+import com.estebandev.minicloud.entity.Directory;
+import com.estebandev.minicloud.entity.DirectoryShare;
+import com.estebandev.minicloud.entity.SharePermission;
 import com.estebandev.minicloud.entity.User;
 import com.estebandev.minicloud.entity.UserMetadata;
+import com.estebandev.minicloud.repository.DirectoryShareRepository;
+import com.estebandev.minicloud.repository.UserMetadataRepository;
 import com.estebandev.minicloud.service.exception.FileIsNotDirectoryException;
 import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.FileData;
 
 @ExtendWith(MockitoExtension.class)
 class FileSecurityServiceImplTest {
@@ -50,11 +54,17 @@ class FileSecurityServiceImplTest {
     @Mock
     private FileMetadataService fileMetadataService;
 
+    @Mock
+    private DirectoryShareRepository directoryShareRepository;
+
+    @Mock
+    private UserMetadataRepository userMetadataRepository;
+
     @InjectMocks
     private FileSecurityServiceImpl fileSecurityService;
 
     @Captor
-    private ArgumentCaptor<User> userCaptor;
+    private ArgumentCaptor<DirectoryShare> shareCaptor;
 
     private UUID randomUuid = UUID.randomUUID();
 
@@ -70,17 +80,12 @@ class FileSecurityServiceImplTest {
         Files.createDirectories(path);
         User user = User.builder().email("example@minicloud.com").build();
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
-        List<UserMetadata> metadata = List.of(
-                UserMetadata.builder().key("ACCESS_TO_" + randomUuid).value("true").user(user).build(),
-                UserMetadata.builder().key("lala" + randomUuid).value("false").user(user).build());
-        when(userService.findMetadatasByKeySearch(randomUuid.toString())).thenReturn(metadata);
+        when(directoryShareRepository.findUsersByDirectoryUuid(randomUuid.toString())).thenReturn(List.of(user));
 
         List<User> userList = fileSecurityService.getUserWithAccessTo(pathString);
 
         verify(fileMetadataService).getUuidFromDir(path);
-        verify(userService).findMetadatasByKeySearch(randomUuid.toString());
-        assertThat(userList.size()).isEqualTo(1);
-        assertThat(userList.get(0)).isEqualTo(user);
+        assertThat(userList).containsExactly(user);
     }
 
     @Test
@@ -93,7 +98,7 @@ class FileSecurityServiceImplTest {
             fileSecurityService.getUserWithAccessTo(pathString);
         });
 
-        verify(userService, never()).findMetadatasByKeySearch(randomUuid.toString());
+        verify(directoryShareRepository, never()).findUsersByDirectoryUuid(anyString());
     }
 
     @Test
@@ -103,61 +108,34 @@ class FileSecurityServiceImplTest {
         Path path = tempDir.resolve(pathString);
         Files.createDirectories(path);
         String email = "example@minicloud.com";
-        User user = User.builder().email(email).build();
+        User user = User.builder().id(2L).email(email).build();
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
-        List<UserMetadata> metadata = new ArrayList<>();
-        metadata.add(
-                UserMetadata.builder().key("lala" + randomUuid).value("false").user(user).build());
-        user.setUserMetadata(metadata);
-        when(userService.findMetadatasByKeySearch(randomUuid.toString())).thenReturn(metadata);
         when(userService.getUserFromAuth()).thenReturn(User.builder().email("otherEmail@example.com").build());
         when(userService.findByEmail(email)).thenReturn(user);
 
         fileSecurityService.grantAccess(pathString, email);
 
-        verify(userService).saveUser(userCaptor.capture());
-        User userResult = userCaptor.getValue();
-        assertThat(userResult.getEmail()).isEqualTo(email);
-        assertThat(user.getUserMetadata().size()).isEqualTo(2);
-        UserMetadata metadataUser = user.getUserMetadata().stream()
-                .filter(m -> m.getValue().equals("true") && m.getKey().startsWith("ACCESS_TO_"))
-                .findFirst().get();
-
-        assertThat(metadataUser.getKey().equals("ACCESS_TO_" + randomUuid));
-        assertThat(metadataUser.getValue().equals("true"));
+        verify(directoryShareRepository).save(shareCaptor.capture());
+        DirectoryShare share = shareCaptor.getValue();
+        assertThat(share.getDirectoryUuid()).isEqualTo(randomUuid.toString());
+        assertThat(share.getUser()).isEqualTo(user);
+        assertThat(share.getPermission()).isEqualTo(SharePermission.WRITE);
+        assertThat(share.getGrantedAt()).isNotNull();
     }
 
     @Test
-    void grantAccessTest_update()
-            throws FileIsNotDirectoryException, IOException, UsernameNotFoundException, ServiceException {
+    void grantAccessTest_withUnknownUser() throws IOException {
         String pathString = "estebandev/folder";
         Path path = tempDir.resolve(pathString);
         Files.createDirectories(path);
         String email = "example@minicloud.com";
-        User user = User.builder().email(email).build();
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
-        List<UserMetadata> metadata = new ArrayList<>();
-        metadata.add(
-                UserMetadata.builder().key("lala" + randomUuid).value("false").user(user).build());
-        metadata.add(
-                UserMetadata.builder().key("ACCESS_TO_" + randomUuid).value("false").user(user).build());
-        user.setUserMetadata(metadata);
-        when(userService.findMetadatasByKeySearch(randomUuid.toString())).thenReturn(metadata);
         when(userService.getUserFromAuth()).thenReturn(User.builder().email("otherEmail@example.com").build());
-        when(userService.findByEmail(email)).thenReturn(user);
+        when(userService.findByEmail(email)).thenThrow(UsernameNotFoundException.class);
 
-        fileSecurityService.grantAccess(pathString, email);
-
-        verify(userService).saveUser(userCaptor.capture());
-        User userResult = userCaptor.getValue();
-        assertThat(userResult.getEmail()).isEqualTo(email);
-        assertThat(user.getUserMetadata().size()).isEqualTo(2);
-        UserMetadata metadataUser = user.getUserMetadata().stream()
-                .filter(m -> m.getValue().equals("true") && m.getKey().startsWith("ACCESS_TO_"))
-                .findFirst().get();
+        assertThrows(UsernameNotFoundException.class, () -> fileSecurityService.grantAccess(pathString, email));
 
-        assertThat(metadataUser.getKey().equals("ACCESS_TO_" + randomUuid));
-        assertThat(metadataUser.getValue().equals("true"));
+        verify(directoryShareRepository, never()).save(any(DirectoryShare.class));
     }
 
     @Test
@@ -171,7 +149,7 @@ class FileSecurityServiceImplTest {
         when(userService.getUserFromAuth()).thenReturn(User.builder().email("otherEmail@example.com").build());
         assertThrows(FileIsNotDirectoryException.class, () -> fileSecurityService.grantAccess(pathString, email));
 
-        verify(userService, never()).saveUser(any(User.class));
+        verify(directoryShareRepository, never()).save(any(DirectoryShare.class));
     }
 
     @Test
@@ -184,7 +162,7 @@ class FileSecurityServiceImplTest {
         when(userService.getUserFromAuth()).thenReturn(User.builder().email(email).build());
         assertThrows(ServiceException.class, () -> fileSecurityService.grantAccess(pathString, email));
 
-        verify(userService, never()).saveUser(any(User.class));
+        verify(directoryShareRepository, never()).save(any(DirectoryShare.class));
     }
 
     @Test
@@ -194,17 +172,15 @@ class FileSecurityServiceImplTest {
         Path path = tempDir.resolve(pathString);
         Files.createDirectories(path);
         String email = "example@minicloud.com";
-        User user = User.builder().email(email).build();
-        List<UserMetadata> metadata = List.of(
-                UserMetadata.builder().key("ACCESS_TO_" + randomUuid).value("true").user(user).build(),
-                UserMetadata.builder().key("lala" + randomUuid).value("false").user(user).build());
-        when(userService.findMetadatasByKeySearch(randomUuid.toString())).thenReturn(metadata);
+        User user = User.builder().id(2L).email(email).build();
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
         when(userService.getUserFromAuth()).thenReturn(User.builder().email("asdasd@asdasda.asdasd").build());
+        when(userService.findByEmail(email)).thenReturn(user);
+        when(directoryShareRepository.existsByDirectoryUuidAndUserId(randomUuid.toString(), 2L)).thenReturn(true);
 
         assertThrows(ServiceException.class, () -> fileSecurityService.grantAccess(pathString, email));
 
-        verify(userService, never()).saveUser(any(User.class));
+        verify(directoryShareRepository, never()).save(any(DirectoryShare.class));
     }
 
     @Test
@@ -214,31 +190,15 @@ class FileSecurityServiceImplTest {
         Path path = tempDir.resolve(pathString);
         Files.createDirectories(path);
         String email = "example@minicloud.com";
-        User user = User.builder().email(email).build();
+        User user = User.builder().id(2L).email(email).build();
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
-        List<UserMetadata> metadata = new ArrayList<>();
-        UserMetadata userMetadata = UserMetadata.builder().key("ACCESS_TO_" + randomUuid).value("true").user(user)
-                .build();
-        metadata.add(userMetadata);
-        user.setUserMetadata(metadata);
-        when(userService.findMetadatasByKeySearch(randomUuid.toString())).thenReturn(metadata);
-        when(userService.findMetadatasByKeySearch(user, "ACCESS_TO_" + randomUuid))
-                .thenReturn(Optional.of(userMetadata));
         when(userService.getUserFromAuth()).thenReturn(User.builder().email("otherEmail@example.com").build());
         when(userService.findByEmail(email)).thenReturn(user);
+        when(directoryShareRepository.deleteByDirectoryUuidAndUserId(randomUuid.toString(), 2L)).thenReturn(1);
 
         fileSecurityService.revokeAccess(pathString, email);
 
-        verify(userService).saveUser(userCaptor.capture());
-        User userResult = userCaptor.getValue();
-        assertThat(userResult.getEmail()).isEqualTo(email);
-        assertThat(user.getUserMetadata().size()).isEqualTo(1);
-        UserMetadata metadataUser = user.getUserMetadata().stream()
-                .filter(m -> m.getKey().startsWith("ACCESS_TO_"))
-                .findFirst().get();
-
-        assertThat(metadataUser.getKey().equals("ACCESS_TO_" + randomUuid));
-        assertThat(metadataUser.getValue().equals("false"));
+        verify(directoryShareRepository).deleteByDirectoryUuidAndUserId(randomUuid.toString(), 2L);
     }
 
     @Test
@@ -252,7 +212,7 @@ class FileSecurityServiceImplTest {
 
         assertThrows(ServiceException.class, () -> fileSecurityService.revokeAccess(pathString, email));
 
-        verify(userService, never()).saveUser(userCaptor.capture());
+        verify(directoryShareRepository, never()).deleteByDirectoryUuidAndUserId(anyString(), any());
     }
 
     @Test
@@ -262,19 +222,13 @@ class FileSecurityServiceImplTest {
         Path path = tempDir.resolve(pathString);
         Files.createDirectories(path);
         String email = "example@minicloud.com";
-        User user = User.builder().email(email).build();
+        User user = User.builder().id(2L).email(email).build();
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
-        List<UserMetadata> metadata = new ArrayList<>();
-        UserMetadata userMetadata = UserMetadata.builder().key("ACCESS_TO_" + randomUuid).value("false").user(user)
-                .build();
-        metadata.add(userMetadata);
-        user.setUserMetadata(metadata);
-        when(userService.findMetadatasByKeySearch(randomUuid.toString())).thenReturn(metadata);
         when(userService.getUserFromAuth()).thenReturn(User.builder().email("otherEmail@example.com").build());
+        when(userService.findByEmail(email)).thenReturn(user);
+        when(directoryShareRepository.deleteByDirectoryUuidAndUserId(randomUuid.toString(), 2L)).thenReturn(0);
 
         assertThrows(ServiceException.class, () -> fileSecurityService.revokeAccess(pathString, email));
-
-        verify(userService, never()).saveUser(userCaptor.capture());
     }
 
     @Test
@@ -283,16 +237,16 @@ class FileSecurityServiceImplTest {
         Path path = tempDir.resolve(pathString);
         Files.createDirectories(path);
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
-        when(fileMetadataService.findMetadataFromKey(any(Path.class), eq("owner"))).thenReturn(
-                FileMetadata.builder().value("asdasd").key("owner").build());
+        when(fileMetadataService.findOwnerEmail(any(Path.class))).thenReturn("asdasd");
 
         String email = "example@minicloud.com";
         User user = User.builder().email(email).build();
+        when(directoryShareRepository.existsByDirectoryUuidAndUserEmail(randomUuid.toString(), email))
+                .thenReturn(true);
 
-        fileSecurityService.isUserHasAccessTo(pathString, user);
+        assertThat(fileSecurityService.isUserHasAccessTo(pathString, user)).isTrue();
 
         verify(fileMetadataService).getUuidFromDir(path);
-        verify(userService).findMetadatasByKeySearch(user, "ACCESS_TO_" + randomUuid.toString());
     }
 
     @Test
@@ -304,14 +258,50 @@ class FileSecurityServiceImplTest {
         User user = User.builder().email(email).build();
 
         when(fileMetadataService.getUuidFromDir(path)).thenReturn(randomUuid);
-        when(userService.getUserAllDataFromAuth()).thenReturn(user);
-        when(fileMetadataService.findMetadataFromKey(any(Path.class), eq("owner"))).thenReturn(
-                FileMetadata.builder().value("asdasd").key("owner").build());
+        when(userService.getUserFromAuth()).thenReturn(user);
+        when(fileMetadataService.findOwnerEmail(any(Path.class))).thenReturn("asdasd");
 
-        fileSecurityService.isUserFromAuthHasAccessTo(pathString);
+        assertThat(fileSecurityService.isUserFromAuthHasAccessTo(pathString)).isFalse();
 
         verify(fileMetadataService).getUuidFromDir(path);
-        verify(userService).getUserAllDataFromAuth();
-        verify(userService).findMetadatasByKeySearch(user, "ACCESS_TO_" + randomUuid.toString());
+        verify(directoryShareRepository).existsByDirectoryUuidAndUserEmail(randomUuid.toString(), email);
+    }
+
+    @Test
+    void getFileListUserHasAccess_listsOwnedAndSharedDirectoriesOutsideTheHome() {
+        User user = User.builder().id(1L).email("example@minicloud.com").build();
+        Directory home = Directory.builder().uuid("a").path("example@minicloud.com/docs").build();
+        Directory owned = Directory.builder().uuid("b").path("other@minicloud.com/mine").build();
+        Directory shared = Directory.builder().uuid("c").path("other@minicloud.com/shared").build();
+        when(fileMetadataService.findOwnedBy(user)).thenReturn(List.of(home, owned));
+        when(directoryShareRepository.findDirectoryUuidsByUserId(1L)).thenReturn(List.of("b", "c"));
+        when(fileMetadataService.findDirectories(List.of("b", "c"))).thenReturn(List.of(owned, shared));
+
+        List<FileData> files = fileSecurityService.getFileListUserHasAccess(user);
+
+        assertThat(files).extracting(FileData::getFileName).containsExactly("mine", "shared");
+    }
+
+    @Test
+    void migrateShares_movesGrantedRowsAndDeletesEveryRowRead() {
+        User user = User.builder().id(1L).email("example@minicloud.com").build();
+        UUID existing = UUID.randomUUID();
+        List<UserMetadata> rows = List.of(
+                UserMetadata.builder().id(1L).key("ACCESS_TO_" + randomUuid).value("true").user(user).build(),
+                UserMetadata.builder().id(2L).key("ACCESS_TO_" + existing).value("true").user(user).build(),
+                UserMetadata.builder().id(3L).key("ACCESS_TO_" + UUID.randomUUID()).value("false").user(user).build(),
+                UserMetadata.builder().id(4L).key("ACCESS_TO_broken").value("true").user(user).build());
+        when(userMetadataRepository.findByKeyStartingWithOrderById(eq("ACCESS_TO_"), any(Pageable.class)))
+                .thenReturn(rows);
+        when(directoryShareRepository.existsByDirectoryUuidAndUserId(randomUuid.toString(), 1L)).thenReturn(false);
+        when(directoryShareRepository.existsByDirectoryUuidAndUserId(existing.toString(), 1L)).thenReturn(true);
+
+        int read = fileSecurityService.migrateShares(500);
+
+        assertThat(read).isEqualTo(4);
+        verify(directoryShareRepository).save(shareCaptor.capture());
+        assertThat(shareCaptor.getValue().getDirectoryUuid()).isEqualTo(randomUuid.toString());
+        assertThat(shareCaptor.getValue().getPermission()).isEqualTo(SharePermission.WRITE);
+        verify(userMetadataRepository).deleteAllInBatch(rows);
     }
 }
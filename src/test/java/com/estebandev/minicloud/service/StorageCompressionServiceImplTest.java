@@ -0,0 +1,65 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+
+public class StorageCompressionServiceImplTest {
+    @TempDir
+    Path tempDir;
+
+    private final StorageCompressionServiceImpl storageCompressionService = new StorageCompressionServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        storageCompressionService.setEnabled(true);
+    }
+
+    @Test
+    void compress_storesTextCompressed() throws Exception {
+        Path tmpPath = Files.writeString(tempDir.resolve(".upload-1.part"), "a log line\n".repeat(2000));
+
+        Path compressedPath = storageCompressionService.compress(tmpPath, tempDir.resolve("app.log.txt"));
+
+        assertThat(compressedPath).isNotNull();
+        assertThat(compressedPath.getFileName().toString()).startsWith(".upload-");
+        try (BlockCompressedFile file = BlockCompressedFile.open(compressedPath)) {
+            assertThat(file.newInputStream(0, file.size()).readAllBytes())
+                    .isEqualTo(Files.readAllBytes(tmpPath));
+        }
+    }
+
+    @Test
+    void compress_skipsOtherTypesSmallFilesAndDisabledMode() throws Exception {
+        Path tmpPath = Files.writeString(tempDir.resolve(".upload-1.part"), "a log line\n".repeat(2000));
+        Path small = Files.writeString(tempDir.resolve(".upload-2.part"), "tiny");
+
+        assertThat(storageCompressionService.compress(tmpPath, tempDir.resolve("photo.png"))).isNull();
+        assertThat(storageCompressionService.compress(small, tempDir.resolve("notes.txt"))).isNull();
+
+        storageCompressionService.setEnabled(false);
+        assertThat(storageCompressionService.compress(tmpPath, tempDir.resolve("app.txt"))).isNull();
+    }
+
+    @Test
+    void compress_keepsIncompressibleContentAsIs() throws Exception {
+        byte[] random = new byte[64 * 1024];
+        new Random(3).nextBytes(random);
+        Path tmpPath = Files.write(tempDir.resolve(".upload-1.part"), random);
+
+        assertThat(storageCompressionService.compress(tmpPath, tempDir.resolve("data.csv"))).isNull();
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).hasSize(1);
+        }
+        assertThat(new String(Files.readAllBytes(tmpPath), StandardCharsets.ISO_8859_1)).hasSize(random.length);
+    }
+}
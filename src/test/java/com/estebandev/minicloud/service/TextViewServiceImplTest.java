@@ -0,0 +1,102 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.component.LineIndexCache;
+import com.estebandev.minicloud.service.utils.BlockCompressedFile;
+import com.estebandev.minicloud.service.utils.TextWindow;
+
+public class TextViewServiceImplTest {
+    @TempDir
+    Path tempDir;
+
+    private LineIndexCache lineIndexCache;
+    private TextViewServiceImpl textViewService;
+
+    @BeforeEach
+    void setUp() {
+        lineIndexCache = new LineIndexCache();
+        lineIndexCache.setGranularity(DataSize.ofBytes(256));
+        textViewService = new TextViewServiceImpl(lineIndexCache);
+        textViewService.setPathString(tempDir.toString());
+    }
+
+    @Test
+    void readLines_returnsTheWindowAndReusesTheIndex() throws Exception {
+        Files.writeString(tempDir.resolve("app.log"), lines(5000));
+
+        TextWindow window = textViewService.readLines("app.log", 2500, 3);
+        TextWindow last = textViewService.readLines("app.log", 4998, 10);
+
+        assertThat(window.getLines()).containsExactly("line 2500", "line 2501", "line 2502");
+        assertThat(window.getTotalLines()).isEqualTo(5000);
+        assertThat(last.getLines()).containsExactly("line 4998", "line 4999");
+        assertThat(textViewService.readLines("app.log", 5000, 10).getLines()).isEmpty();
+        assertThat(lineIndexCache.stats().getMisses()).isEqualTo(1);
+        assertThat(lineIndexCache.stats().getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void readLines_indexesAgainWhenTheFileChanges() throws Exception {
+        Path filePath = Files.writeString(tempDir.resolve("app.log"), lines(10));
+        assertThat(textViewService.readLines("app.log", 0, 100).getTotalLines()).isEqualTo(10);
+
+        Files.writeString(filePath, lines(20));
+        Files.setLastModifiedTime(filePath, FileTime.from(Instant.now().plusSeconds(5)));
+
+        assertThat(textViewService.readLines("app.log", 0, 100).getTotalLines()).isEqualTo(20);
+    }
+
+    @Test
+    void readLines_readsThroughCompressedFiles() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("source.txt"), lines(20_000));
+        BlockCompressedFile.compress(source, tempDir.resolve("app.txt"), 4096, 6);
+
+        TextWindow window = textViewService.readLines("app.txt", 12_345, 2);
+
+        assertThat(window.getLines()).containsExactly("line 12345", "line 12346");
+        assertThat(window.getTotalLines()).isEqualTo(20_000);
+    }
+
+    @Test
+    void readLines_cutsLongLinesAndCarriageReturns() throws Exception {
+        textViewService.setMaxLineLength(DataSize.ofBytes(10));
+        Files.writeString(tempDir.resolve("data.csv"), "a,b\r\n" + "x".repeat(50) + "\r\nend");
+
+        TextWindow window = textViewService.readLines("data.csv", 0, 10);
+
+        assertThat(window.getLines()).containsExactly("a,b", "x".repeat(10), "end");
+        assertThat(window.isTruncated()).isTrue();
+    }
+
+    @Test
+    void readLines_rejectsInvalidRequests() throws Exception {
+        Files.writeString(tempDir.resolve("app.log"), "text");
+
+        assertThrows(IllegalArgumentException.class, () -> textViewService.readLines("app.log", -1, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> textViewService.readLines("app.log", 0, TextViewServiceImpl.MAX_LINES + 1));
+        assertThrows(IllegalArgumentException.class, () -> textViewService.readLines("../app.log", 0, 10));
+        assertThrows(FileNotFoundException.class, () -> textViewService.readLines("missing.log", 0, 10));
+    }
+
+    private static String lines(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.estebandev.minicloud.service.utils.ContactSheet;
+import com.estebandev.minicloud.service.utils.FileManagerUtils;
+
+public class ThumbnailServiceImplTest {
+    @TempDir
+    Path tempDir;
+
+    private ThumbnailServiceImpl thumbnailService;
+
+    @BeforeEach
+    void setUp() {
+        thumbnailService = new ThumbnailServiceImpl();
+        thumbnailService.setPathString(tempDir.toString());
+        thumbnailService.setSizes(List.of(64, 256));
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void thumbnail_keepsTheAspectRatioAndRoundsUpTheSize() throws Exception {
+        writeImage(tempDir.resolve("photo.jpg"), 2000, 1000, "jpg");
+
+        Path thumbnailPath = thumbnailService.thumbnail("photo.jpg", 100);
+
+        BufferedImage thumbnail = ImageIO.read(thumbnailPath.toFile());
+        assertThat(thumbnail.getWidth()).isEqualTo(256);
+        assertThat(thumbnail.getHeight()).isEqualTo(128);
+        assertThat(thumbnailPath.getFileName().toString()).endsWith("-256.jpg");
+        assertThat(thumbnailPath).startsWith(tempDir.resolve(FileManagerUtils.INTERNAL_DIR));
+    }
+
+    @Test
+    void thumbnail_neverEnlargesSmallImages() throws Exception {
+        writeImage(tempDir.resolve("icon.png"), 40, 20, "png");
+
+        BufferedImage thumbnail = ImageIO.read(thumbnailService.thumbnail("icon.png", 256).toFile());
+
+        assertThat(thumbnail.getWidth()).isEqualTo(40);
+        assertThat(thumbnail.getHeight()).isEqualTo(20);
+        assertThat(thumbnail.getColorModel().hasAlpha()).isTrue();
+    }
+
+    @Test
+    void thumbnail_isRegeneratedWhenTheImageChanges() throws Exception {
+        Path imagePath = tempDir.resolve("photo.png");
+        writeImage(imagePath, 300, 300, "png");
+        Path thumbnailPath = thumbnailService.thumbnail("photo.png", 64);
+        FileTime generated = Files.getLastModifiedTime(thumbnailPath);
+
+        assertThat(thumbnailService.thumbnail("photo.png", 64)).isEqualTo(thumbnailPath);
+        assertThat(Files.getLastModifiedTime(thumbnailPath)).isEqualTo(generated);
+
+        writeImage(imagePath, 100, 300, "png");
+        Files.setLastModifiedTime(imagePath, FileTime.from(Instant.now().plusSeconds(5)));
+
+        BufferedImage thumbnail = ImageIO.read(thumbnailService.thumbnail("photo.png", 64).toFile());
+        assertThat(thumbnail.getWidth()).isLessThan(thumbnail.getHeight());
+        assertThat(Files.getLastModifiedTime(thumbnailPath)).isEqualTo(Files.getLastModifiedTime(imagePath));
+    }
+
+    @Test
+    void schedule_generatesEverySizeInTheBackground() throws Exception {
+        Path imagePath = tempDir.resolve("photo.jpg");
+        writeImage(imagePath, 800, 600, "jpg");
+
+        thumbnailService.schedule(imagePath);
+        thumbnailService.schedule(tempDir.resolve("notes.txt"));
+
+        Path thumbsDir = tempDir.resolve(FileManagerUtils.INTERNAL_DIR).resolve("thumbs");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (countThumbnails(thumbsDir) < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(countThumbnails(thumbsDir)).isEqualTo(2);
+    }
+
+    @Test
+    void thumbnail_rejectsWhatIsNotAnImage() throws Exception {
+        Files.writeString(tempDir.resolve("notes.txt"), "text");
+
+        assertThrows(IllegalArgumentException.class, () -> thumbnailService.thumbnail("notes.txt", 64));
+        assertThrows(FileNotFoundException.class, () -> thumbnailService.thumbnail("missing.jpg", 64));
+        assertThrows(IllegalArgumentException.class, () -> thumbnailService.thumbnail("../outside.jpg", 64));
+    }
+
+    @Test
+    void contactSheet_pagesTheImagesOfADirectory() throws Exception {
+        Path dirPath = Files.createDirectory(tempDir.resolve("photos"));
+        thumbnailService.setSheetSize(12);
+        for (int i = 0; i < 15; i++) {
+            writeImage(dirPath.resolve(String.format("img%02d.png", i)), 80, 40, "png");
+        }
+        Files.writeString(dirPath.resolve("notes.txt"), "text");
+
+        ContactSheet first = thumbnailService.contactSheet("photos", 0);
+        ContactSheet second = thumbnailService.contactSheet("photos", 1);
+
+        assertThat(first.getTiles()).hasSize(12);
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(first.getColumns()).isEqualTo(10);
+        assertThat(first.getWidth()).isEqualTo(640);
+        assertThat(first.getHeight()).isEqualTo(128);
+        assertThat(first.getTiles().get(11).getX()).isEqualTo(64);
+        assertThat(first.getTiles().get(11).getY()).isEqualTo(64);
+        assertThat(second.getTiles()).extracting(ContactSheet.Tile::getName)
+                .containsExactly("img12.png", "img13.png", "img14.png");
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getTiles().get(0).getPath()).isEqualTo(Path.of("photos", "img12.png").toString());
+    }
+
+    @Test
+    void contactSheetImage_isRebuiltWhenThePageChanges() throws Exception {
+        Path dirPath = Files.createDirectory(tempDir.resolve("photos"));
+        writeImage(dirPath.resolve("a.jpg"), 300, 200, "jpg");
+        writeImage(dirPath.resolve("b.png"), 100, 400, "png");
+
+        Path sheetPath = thumbnailService.contactSheetImage("photos", 0);
+        BufferedImage sheet = ImageIO.read(sheetPath.toFile());
+        assertThat(sheet.getWidth()).isEqualTo(128);
+        assertThat(sheet.getHeight()).isEqualTo(64);
+        assertThat(new Color(sheet.getRGB(10, 32)).getRed()).isGreaterThan(200);
+        assertThat(thumbnailService.contactSheetImage("photos", 0)).isEqualTo(sheetPath);
+
+        String version = thumbnailService.contactSheet("photos", 0).getVersion();
+        writeImage(dirPath.resolve("c.jpg"), 50, 50, "jpg");
+
+        Path rebuilt = thumbnailService.contactSheetImage("photos", 0);
+        assertThat(thumbnailService.contactSheet("photos", 0).getVersion()).isNotEqualTo(version);
+        assertThat(rebuilt).isNotEqualTo(sheetPath);
+        assertThat(sheetPath).doesNotExist();
+        assertThrows(FileNotFoundException.class, () -> thumbnailService.contactSheetImage("photos", 1));
+    }
+
+    @Test
+    void thumbnail_evictsTheLeastRecentlyUsedOverTheMaximumSize() throws Exception {
+        for (String name : List.of("a.jpg", "b.jpg", "c.jpg")) {
+            writeImage(tempDir.resolve(name), 600, 400, "jpg");
+        }
+        Path first = thumbnailService.thumbnail("a.jpg", 256);
+        long size = Files.size(first);
+        thumbnailService.setMaxSize(DataSize.ofBytes(size * 2 + size / 2));
+
+        Path second = thumbnailService.thumbnail("b.jpg", 256);
+        thumbnailService.thumbnail("a.jpg", 256);
+        Path third = thumbnailService.thumbnail("c.jpg", 256);
+
+        assertThat(first).exists();
+        assertThat(second).doesNotExist();
+        assertThat(third).exists();
+        assertThat(thumbnailService.thumbnail("b.jpg", 256)).exists();
+    }
+
+    private static long countThumbnails(Path thumbsDir) throws Exception {
+        if (!Files.isDirectory(thumbsDir))
+            return 0;
+        try (var files = Files.list(thumbsDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jpg")).count();
+        }
+    }
+
+    private static void writeImage(Path path, int width, int height, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height,
+                format.equals("png") ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.dispose();
+        ImageIO.write(image, format, path.toFile());
+    }
+}
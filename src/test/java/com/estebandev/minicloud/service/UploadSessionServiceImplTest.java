@@ -0,0 +1,173 @@
+package com.estebandev.minicloud.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.estebandev.minicloud.entity.UploadChunk;
+import com.estebandev.minicloud.entity.UploadSession;
+import com.estebandev.minicloud.entity.User;
+import com.estebandev.minicloud.repository.UploadChunkRepository;
+import com.estebandev.minicloud.repository.UploadSessionRepository;
+import com.estebandev.minicloud.service.exception.ServiceException;
+import com.estebandev.minicloud.service.utils.ByteRange;
+
+@ExtendWith(MockitoExtension.class)
+public class UploadSessionServiceImplTest {
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private UploadChunkRepository uploadChunkRepository;
+
+    @Mock
+    private FileManagerService fileManagerService;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private UploadSessionServiceImpl uploadSessionService;
+
+    private final List<UploadChunk> chunks = new ArrayList<>();
+    private final String email = "user@example.com";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectory(tempDir.resolve(email));
+        lenient().when(fileManagerService.getRoot()).thenReturn(tempDir);
+        lenient().when(userService.getUserFromAuth()).thenReturn(User.builder().email(email).build());
+        lenient().when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(i -> i.getArgument(0));
+        lenient().when(uploadChunkRepository.save(any(UploadChunk.class))).thenAnswer(i -> {
+            chunks.add(i.getArgument(0));
+            return i.getArgument(0);
+        });
+        lenient().when(uploadChunkRepository.findBySessionIdOrderByOffset(anyString())).thenAnswer(i -> chunks);
+    }
+
+    @Test
+    void create_ShouldPreallocatePartFile() throws Exception {
+        UploadSession session = uploadSessionService.create(email, "big file.bin", 1024);
+
+        assertThat(session.getDirectory()).isEqualTo(email);
+        assertThat(session.getFileName()).isEqualTo("big-file.bin");
+        assertThat(session.getOwner()).isEqualTo(email);
+        assertThat(Files.size(partPath(session))).isEqualTo(1024);
+    }
+
+    @Test
+    void removeExpired_ShouldDeleteAbandonedPartFilesAndRows() throws Exception {
+        UploadSession session = uploadSessionService.create(email, "file.bin", 1024);
+        when(uploadSessionRepository.findByUpdatedAtBefore(any(LocalDateTime.class))).thenReturn(List.of(session));
+
+        uploadSessionService.removeExpired();
+
+        assertThat(partPath(session)).doesNotExist();
+        verify(uploadChunkRepository).deleteBySessionId(session.getId());
+        verify(uploadSessionRepository).deleteById(session.getId());
+    }
+
+    @Test
+    void create_ShouldRejectInvalidSize() {
+        assertThatThrownBy(() -> uploadSessionService.create(email, "file.bin", -1))
+                .isInstanceOf(ServiceException.class);
+    }
+
+    @Test
+    void create_ShouldRejectInternalNames() throws Exception {
+        for (String name : new String[] { ".upload-x.part", ".dirid", ".dirdata.xml", ".minicloud", "..", " " })
+            assertThatThrownBy(() -> uploadSessionService.create(email, name, 10))
+                    .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> uploadSessionService.create(email, null, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The file has no name");
+
+        try (var files = Files.list(tempDir.resolve(email))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void writeChunk_ShouldWriteChunksOutOfOrderAndComplete() throws Exception {
+        UploadSession session = uploadSessionService.create(email, "file.txt", 10);
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+        when(fileManagerService.commitUpload(any(Path.class), any(Path.class)))
+                .thenAnswer(i -> Files.move(i.getArgument(0), i.getArgument(1)));
+
+        List<ByteRange> received = uploadSessionService.writeChunk(email, session.getId(), 5,
+                new ByteArrayInputStream("56789".getBytes()));
+        assertThat(received).containsExactly(new ByteRange(5, 10));
+
+        received = uploadSessionService.writeChunk(email, session.getId(), 0,
+                new ByteArrayInputStream("01234".getBytes()));
+        assertThat(received).containsExactly(new ByteRange(0, 10));
+
+        Path filePath = uploadSessionService.complete(email, session.getId());
+
+        assertThat(filePath).isEqualTo(Path.of(email, "file.txt"));
+        assertThat(tempDir.resolve(filePath)).hasContent("0123456789");
+        verify(uploadSessionRepository).deleteById(session.getId());
+    }
+
+    @Test
+    void writeChunk_ShouldRejectChunkPastTheEnd() throws Exception {
+        UploadSession session = uploadSessionService.create(email, "file.txt", 4);
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+
+        assertThatThrownBy(() -> uploadSessionService.writeChunk(email, session.getId(), 2,
+                new ByteArrayInputStream("2345".getBytes())))
+                .hasMessageContaining("maximum size");
+        assertThat(chunks).isEmpty();
+    }
+
+    @Test
+    void complete_ShouldFail_WhenChunksAreMissing() throws Exception {
+        UploadSession session = uploadSessionService.create(email, "file.txt", 10);
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+
+        uploadSessionService.writeChunk(email, session.getId(), 0, new ByteArrayInputStream("0123".getBytes()));
+
+        assertThatThrownBy(() -> uploadSessionService.complete(email, session.getId()))
+                .isInstanceOf(ServiceException.class);
+    }
+
+    @Test
+    void find_ShouldRejectSessionsOfOtherUsers() throws Exception {
+        UploadSession session = UploadSession.builder()
+                .id("id")
+                .owner("other@example.com")
+                .directory(email)
+                .build();
+        when(uploadSessionRepository.findById("id")).thenReturn(Optional.of(session));
+
+        assertThatThrownBy(() -> uploadSessionService.find(email, "id"))
+                .isInstanceOf(ServiceException.class);
+    }
+
+    private Path partPath(UploadSession session) {
+        return tempDir.resolve(session.getDirectory()).resolve(".upload-" + session.getId() + ".part");
+    }
+}
@@ -0,0 +1,129 @@
+package com.estebandev.minicloud.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BlockCompressedFileTest {
+    private static final int BLOCK_SIZE = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rangesInflateOnlyTheirBlocks() throws Exception {
+        byte[] content = text(BLOCK_SIZE * 5 + 123);
+        Path compressedPath = compress("log.txt", content);
+
+        try (BlockCompressedFile file = BlockCompressedFile.openIfCompressed(compressedPath)) {
+            assertThat(file).isNotNull();
+            assertThat(file.size()).isEqualTo(content.length);
+            assertThat(file.newInputStream(0, file.size()).readAllBytes()).isEqualTo(content);
+            assertThat(file.newInputStream(BLOCK_SIZE - 10, BLOCK_SIZE * 3 + 10).readAllBytes())
+                    .isEqualTo(Arrays.copyOfRange(content, BLOCK_SIZE - 10, BLOCK_SIZE * 3 + 10));
+            assertThat(file.newInputStream(content.length - 5, content.length + 100).readAllBytes())
+                    .isEqualTo(Arrays.copyOfRange(content, content.length - 5, content.length));
+        }
+        assertThat(Files.size(compressedPath)).isLessThan(content.length / 2);
+    }
+
+    @Test
+    void storedBlocksAreAValidGzipStream() throws Exception {
+        byte[] content = text(BLOCK_SIZE * 3 + 7);
+        Path compressedPath = compress("log.txt", content);
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (BlockCompressedFile file = BlockCompressedFile.open(compressedPath)) {
+            file.transferGzipTo(Channels.newChannel(gzip));
+            assertThat(gzip.size()).isEqualTo(file.gzipSize());
+        }
+
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(gzip.toByteArray()))) {
+            assertThat(input.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void emptyFileRoundTrips() throws Exception {
+        Path compressedPath = compress("empty.txt", new byte[0]);
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (BlockCompressedFile file = BlockCompressedFile.open(compressedPath)) {
+            assertThat(file.size()).isZero();
+            assertThat(file.newInputStream(0, 0).readAllBytes()).isEmpty();
+            file.transferGzipTo(Channels.newChannel(gzip));
+        }
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(gzip.toByteArray()))) {
+            assertThat(input.readAllBytes()).isEmpty();
+        }
+    }
+
+    @Test
+    void ordinaryFilesAreNotContainers() throws Exception {
+        Path plain = Files.write(tempDir.resolve("plain.txt"), text(5000));
+        Path sameMagic = Files.write(tempDir.resolve("magic.txt"),
+                ("MCZ1" + new String(text(200), StandardCharsets.US_ASCII)).getBytes(StandardCharsets.US_ASCII));
+        Path image = compress("image.png", text(5000));
+
+        assertThat(BlockCompressedFile.isCompressed(plain)).isFalse();
+        assertThat(BlockCompressedFile.isCompressed(sameMagic)).isFalse();
+        assertThat(BlockCompressedFile.openIfCompressed(plain)).isNull();
+        assertThat(BlockCompressedFile.openIfCompressed(image)).isNull();
+        assertThat(BlockCompressedFile.isCompressed(image)).isTrue();
+    }
+
+    @Test
+    void uploadedContainersAreNotTrusted() throws Exception {
+        Path copy = tempDir.resolve("copy.txt");
+        Files.write(copy, Files.readAllBytes(compress("log.txt", text(5000))));
+
+        assertThat(BlockCompressedFile.openIfCompressed(copy)).isNull();
+    }
+
+    @Test
+    void hostileHeadersAreRejected() throws Exception {
+        Path huge = Files.write(tempDir.resolve("huge.txt"), container(Integer.MAX_VALUE - 8, 100));
+        Path overflow = Files.write(tempDir.resolve("overflow.txt"), container(1024, Long.MAX_VALUE));
+        BlockCompressedFile.mark(huge);
+        BlockCompressedFile.mark(overflow);
+
+        assertThat(BlockCompressedFile.openIfCompressed(huge)).isNull();
+        assertThat(BlockCompressedFile.openIfCompressed(overflow)).isNull();
+    }
+
+    /** A single empty block claiming {@code size} bytes of content. */
+    private static byte[] container(int blockSize, long size) {
+        return ByteBuffer.allocate(44)
+                .putInt(0x4d435a31).putInt(blockSize)
+                .putLong(0).putLong(0)
+                .putLong(size).putInt(0).putInt(1).putInt(0x4d435a45)
+                .array();
+    }
+
+    private Path compress(String name, byte[] content) throws IOException {
+        Path source = Files.write(tempDir.resolve(name + ".source"), content);
+        Path target = tempDir.resolve(name);
+        BlockCompressedFile.compress(source, target, BLOCK_SIZE, 6);
+        return target;
+    }
+
+    static byte[] text(int size) {
+        StringBuilder text = new StringBuilder(size + 32);
+        for (int i = 0; text.length() < size; i++) {
+            text.append("line ").append(i).append(" of the log\n");
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,53 @@
+package com.estebandev.minicloud.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class LineIndexTest {
+
+    @Test
+    void countsALastLineWithoutBreak() throws Exception {
+        assertThat(build("", 16).lineCount()).isZero();
+        assertThat(build("one", 16).lineCount()).isEqualTo(1);
+        assertThat(build("one\n", 16).lineCount()).isEqualTo(1);
+        assertThat(build("one\ntwo", 16).lineCount()).isEqualTo(2);
+        assertThat(build("\n\n", 16).lineCount()).isEqualTo(2);
+    }
+
+    @Test
+    void floorPointsAtTheStartOfAnIndexedLine() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        String content = text.toString();
+        LineIndex index = build(content, 100);
+
+        assertThat(index.lineCount()).isEqualTo(1000);
+        assertThat(index.size()).isEqualTo(content.length());
+        assertThat(index.entries()).isBetween(60, 110);
+        for (long line : new long[] { 0, 1, 57, 500, 999 }) {
+            long floorLine = index.floorLine(line);
+            long floorOffset = index.floorOffset(line);
+            assertThat(floorLine).isLessThanOrEqualTo(line);
+            assertThat(line - floorLine).isLessThan(20);
+            assertThat(content.substring((int) floorOffset)).startsWith("line " + floorLine + "\n");
+        }
+    }
+
+    @Test
+    void sizeBoundsTheEntriesNotTheLines() throws Exception {
+        LineIndex index = build("\n".repeat(100_000), 1024);
+
+        assertThat(index.lineCount()).isEqualTo(100_000);
+        assertThat(index.entries()).isLessThanOrEqualTo(100_000 / 1024 + 1);
+    }
+
+    private static LineIndex build(String content, int granularity) throws Exception {
+        return LineIndex.build("v", new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), granularity);
+    }
+}
@@ -0,0 +1,87 @@
+package com.estebandev.minicloud.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ParallelGzipOutputStreamTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void emptyInputIsValidGzip() throws Exception {
+        assertThat(gunzip(compress(new byte[0]))).isEmpty();
+    }
+
+    @Test
+    void multiBlockInputRoundTrips() throws Exception {
+        byte[] input = new byte[ParallelGzipOutputStream.BLOCK_SIZE * 5 + 1234];
+        new Random(42).nextBytes(input);
+
+        assertThat(gunzip(compress(input))).isEqualTo(input);
+    }
+
+    @Test
+    void dictionaryKeepsMatchesAcrossBlocks() throws Exception {
+        byte[] chunk = new byte[16 * 1024];
+        new Random(7).nextBytes(chunk);
+        ByteArrayOutputStream repeated = new ByteArrayOutputStream();
+        for (int i = 0; i < 64; i++) {
+            repeated.write(chunk);
+        }
+        byte[] input = repeated.toByteArray();
+
+        byte[] parallel = compress(input);
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(serial)) {
+            gzip.write(input);
+        }
+
+        assertThat(gunzip(parallel)).isEqualTo(input);
+        assertThat(parallel.length).isLessThan(serial.size() * 2);
+    }
+
+    @Test
+    void smallWritesAreBuffered() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(compressed, executor, 4)) {
+            for (int i = 0; i < 50_000; i++) {
+                byte[] line = ("line " + i + "\n").getBytes(StandardCharsets.US_ASCII);
+                gzip.write(line);
+                expected.write(line);
+            }
+        }
+
+        assertThat(gunzip(compressed.toByteArray())).isEqualTo(expected.toByteArray());
+    }
+
+    private byte[] compress(byte[] input) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(compressed, executor, 4)) {
+            gzip.write(input);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
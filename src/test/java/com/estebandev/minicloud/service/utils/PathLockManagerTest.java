@@ -0,0 +1,81 @@
+package com.estebandev.minicloud.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.estebandev.minicloud.service.utils.PathLockManager.PathLock;
+
+public class PathLockManagerTest {
+    private final PathLockManager pathLockManager = new PathLockManager();
+    private final Path root = Path.of("/files");
+
+    @Test
+    void writersOnUnrelatedTreesDoNotContend() throws Exception {
+        PathLock first = pathLockManager.tryWriteLock(1, TimeUnit.SECONDS, root.resolve("a@mail.com/docs"));
+        PathLock second = runInOtherThread(root.resolve("b@mail.com/docs"));
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+    }
+
+    @Test
+    void writerOnDirectoryBlocksWritersBelowIt() throws Exception {
+        PathLock parent = pathLockManager.tryWriteLock(1, TimeUnit.SECONDS, root.resolve("a@mail.com"));
+
+        assertThat(parent).isNotNull();
+        assertThat(runInOtherThread(root.resolve("a@mail.com/docs/file.txt"))).isNull();
+
+        parent.unlock();
+        assertThat(runInOtherThread(root.resolve("a@mail.com/docs/file.txt"))).isNotNull();
+    }
+
+    @Test
+    void readerOfDirectoryDoesNotBlockWritersOfSiblingTrees() throws Exception {
+        try (PathLock reader = pathLockManager.readLock(root.resolve("a@mail.com/photos"))) {
+            assertThat(runInOtherThread(root.resolve("a@mail.com/docs"))).isNotNull();
+            assertThat(runInOtherThread(root.resolve("a@mail.com/photos"))).isNull();
+        }
+    }
+
+    @Test
+    void renameLocksBothPathsAndIsReentrant() throws Exception {
+        Path source = root.resolve("a@mail.com/old");
+        Path target = root.resolve("a@mail.com/new");
+
+        try (PathLock rename = pathLockManager.tryWriteLock(1, TimeUnit.SECONDS, target, source)) {
+            assertThat(rename).isNotNull();
+            assertThat(runInOtherThread(source)).isNull();
+            assertThat(runInOtherThread(target)).isNull();
+
+            try (PathLock nested = pathLockManager.readLock(source)) {
+                assertThat(nested).isNotNull();
+            }
+        }
+    }
+
+    @Test
+    void releasedEntriesAreRemovedFromTable() throws Exception {
+        pathLockManager.tryWriteLock(1, TimeUnit.SECONDS, root.resolve("a@mail.com/docs")).unlock();
+        pathLockManager.readLock(root.resolve("b@mail.com")).unlock();
+
+        assertThat(pathLockManager.size()).isZero();
+    }
+
+    private PathLock runInOtherThread(Path path) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                PathLock lock = pathLockManager.tryWriteLock(50, TimeUnit.MILLISECONDS, path);
+                if (lock != null)
+                    lock.unlock();
+                return lock;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }).get();
+    }
+}